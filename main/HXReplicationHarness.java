@@ -0,0 +1,141 @@
+package main;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Random;
+
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.entities.Square;
+import world.helper.replication.HXReplicationClient;
+import world.helper.replication.HXReplicationServer;
+import world.helper.snapshot.HXSnapshot;
+
+public class HXReplicationHarness {
+
+	private static final int TICKS = 600;
+	private static final int CLIENTS = 4;
+	private static final int BODIES = 200;
+	private static final double DT = 1000000000 / 30.0;
+	// Half of the 1/256 px position step, plus rounding slack
+	private static final double TOLERANCE = 1.0 / 512 + 1e-9;
+	// View of the last client, a quarter of the world
+	private static final double VIEW_MAX_X = 600;
+	private static final double VIEW_MAX_Y = 450;
+
+	/**
+	 * Runs a replicated world over loopback without a window and checks the clients.
+	 * <p>
+	 * A server world of moving squares is ticked as fast as possible while clients
+	 * connect, one of them half way through and one only viewing a quarter of the
+	 * world. Squares are added and removed during the run. Once every client has
+	 * caught up, each replicated entity is compared with the server's and the
+	 * bandwidth is printed next to the size of a full HXSnapshot per tick. The
+	 * viewing client must hold every entity in its view and none past the
+	 * interest margin. Exits with status 1 if any client disagrees.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Random rand = new Random(7);
+		HXWorld world = new HXWorld(1200, 900);
+		world.setDeterministic(true);
+		for (int i = 0; i < BODIES; i++) {
+			new Square(40 + rand.nextInt(1100), 40 + rand.nextInt(800), rand.nextDouble() * 4 - 2, rand.nextDouble() * 4 - 2, world);
+		}
+
+		HXReplicationServer server = new HXReplicationServer(world, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		server.start();
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+		ArrayList<HXReplicationClient> clients = new ArrayList<HXReplicationClient>();
+		for (int c = 0; c < CLIENTS - 1; c++) {
+			clients.add(new HXReplicationClient(address));
+		}
+		HXReplicationClient viewer = new HXReplicationClient(address);
+		viewer.setView(0, 0, VIEW_MAX_X, VIEW_MAX_Y);
+
+		long snapshotBytes = 0;
+		for (int t = 0; t < TICKS; t++) {
+			if (t == TICKS / 2) {
+				clients.add(new HXReplicationClient(address));
+			}
+			if (t % 50 == 25) {
+				new Square(40 + rand.nextInt(1100), 40 + rand.nextInt(800), 1, -1, world);
+				world.getEntities().get(rand.nextInt(world.getEntities().size())).remove();
+			}
+			world.updateTick(DT);
+			server.publish();
+			snapshotBytes += HXSnapshot.capture(world).remaining();
+			for (HXReplicationClient client : clients) {
+				client.update();
+			}
+			viewer.update();
+		}
+
+		long deadline = System.currentTimeMillis() + 5000;
+		boolean caughtUp = false;
+		while (!caughtUp && System.currentTimeMillis() < deadline) {
+			caughtUp = true;
+			for (HXReplicationClient client : clients) {
+				client.update();
+				caughtUp &= client.getTick() == server.getPublishedTick();
+			}
+			viewer.update();
+			caughtUp &= viewer.getTick() == server.getPublishedTick();
+			Thread.sleep(1);
+		}
+
+		boolean ok = caughtUp;
+		long received = 0;
+		for (int c = 0; c < clients.size(); c++) {
+			HXReplicationClient client = clients.get(c);
+			int mismatches = 0;
+			for (HXEntity e : world.getEntities()) {
+				HXEntity replica = client.getEntity(e.getSerial());
+				if (replica == null || replica.getClass() != e.getClass()
+						|| Math.abs(replica.getxPos() - e.getxPos()) > TOLERANCE
+						|| Math.abs(replica.getyPos() - e.getyPos()) > TOLERANCE) {
+					mismatches++;
+				}
+			}
+			if (client.getWorld().getEntities().size() != world.getEntities().size()) {
+				mismatches++;
+			}
+			System.out.println("Client " + c + ": tick " + client.getTick() + ", "
+					+ client.getWorld().getEntities().size() + " entities, "
+					+ mismatches + " mismatches, " + client.getBytesReceived() + " bytes received");
+			ok &= mismatches == 0;
+			received += client.getBytesReceived();
+			client.close();
+		}
+		int mismatches = 0;
+		double margin = server.getInterestManager().getMargin();
+		for (HXEntity e : world.getEntities()) {
+			HXEntity replica = viewer.getEntity(e.getSerial());
+			boolean inView = e.getCollider() == null || overlaps(e, 0, 0, VIEW_MAX_X, VIEW_MAX_Y);
+			boolean inMargin = e.getCollider() == null || overlaps(e, -margin, -margin, VIEW_MAX_X + margin, VIEW_MAX_Y + margin);
+			if (inView && replica == null || !inMargin && replica != null
+					|| replica != null && Math.abs(replica.getxPos() - e.getxPos()) > TOLERANCE) {
+				mismatches++;
+			}
+		}
+		System.out.println("Viewer: tick " + viewer.getTick() + ", " + viewer.getWorld().getEntities().size() + " entities, "
+				+ mismatches + " mismatches, " + viewer.getBytesReceived() + " bytes received");
+		ok &= mismatches == 0;
+		viewer.close();
+		System.out.println("Server tick " + server.getPublishedTick() + ", " + world.getEntities().size() + " entities, "
+				+ server.getEncodeCount() + " encodes for " + clients.size() + " clients");
+		System.out.println("Average per client per tick: " + received / clients.size() / TICKS
+				+ " bytes, full snapshot: " + snapshotBytes / TICKS + " bytes");
+		server.close();
+
+		System.out.println(ok ? "OK" : "FAILED");
+		if (!ok) {
+			System.exit(1);
+		}
+	}
+	private static boolean overlaps(HXEntity e, double minX, double minY, double maxX, double maxY) {
+		return e.getCollider().getMinX() <= maxX && minX <= e.getCollider().getMaxX()
+				&& e.getCollider().getMinY() <= maxY && minY <= e.getCollider().getMaxY();
+	}
+}
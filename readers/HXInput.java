@@ -0,0 +1,145 @@
+package readers;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class HXInput {
+
+	/* === Event kinds === */
+	private static final int KEY_DOWN = 1;
+	private static final int KEY_UP = 2;
+	private static final int MOUSE_DOWN = 3;
+	private static final int MOUSE_DRAG = 4;
+	private static final int MOUSE_UP = 5;
+
+	// Events from the event dispatch thread, drained by latch()
+	private final ConcurrentLinkedQueue<int[]> events = new ConcurrentLinkedQueue<int[]>();
+
+	/* === Latched state, latching thread only === */
+	private int keys = 0;
+	private boolean mouseDown = false;
+	private int mouseX = 0;
+	private int mouseY = 0;
+
+	private volatile HXInputSnapshot current = HXInputSnapshot.EMPTY;
+
+	/**
+	 * Collects keyboard and mouse input for a ticking world.
+	 * <p>
+	 * Listeners on the event dispatch thread only add events to a lock-free queue.
+	 * Once per tick the clock thread calls latch(), which drains the queue in order
+	 * and publishes an immutable HXInputSnapshot of the tick, so nothing read
+	 * during a tick can change under it and no lock is shared with Swing.
+	 */
+	public HXInput() {
+	}
+
+	// Mark: INPUT EVENTS
+	// ==================
+	// Called from the event dispatch thread
+
+	/**
+	 * @param key - Index from HXKey.indexOf(). Key repeats while held are ignored.
+	 */
+	public void keyPressed(int key) {
+		if (key >= 0) {
+			events.add(new int[] {KEY_DOWN, key, 0});
+		}
+	}
+	public void keyReleased(int key) {
+		if (key >= 0) {
+			events.add(new int[] {KEY_UP, key, 0});
+		}
+	}
+	/**
+	 * @param x - World x of the mouse.
+	 * @param y - World y of the mouse.
+	 */
+	public void mousePressed(int x, int y) {
+		events.add(new int[] {MOUSE_DOWN, x, y});
+	}
+	public void mouseDragged(int x, int y) {
+		events.add(new int[] {MOUSE_DRAG, x, y});
+	}
+	public void mouseReleased(int x, int y) {
+		events.add(new int[] {MOUSE_UP, x, y});
+	}
+
+	// Mark: LATCHING
+	// ==============
+
+	/**
+	 * Apply every event queued since the last call and publish the input of the
+	 * tick about to run. Call once per tick from the thread that ticks the world.
+	 * @return The snapshot, also available from getCurrent().
+	 */
+	public HXInputSnapshot latch() {
+		int pressed = 0;
+		int released = 0;
+		int mouse = 0;
+		int pressX = 0;
+		int pressY = 0;
+		int[] event;
+		while ((event = events.poll()) != null) {
+			switch (event[0]) {
+			case KEY_DOWN:
+				if ((keys & (1 << event[1])) == 0) {
+					keys |= 1 << event[1];
+					pressed |= 1 << event[1];
+				}
+				break;
+			case KEY_UP:
+				if ((keys & (1 << event[1])) != 0) {
+					keys &= ~(1 << event[1]);
+					released |= 1 << event[1];
+				}
+				break;
+			case MOUSE_DOWN:
+				if (!mouseDown) {
+					mouseDown = true;
+					mouse |= HXInputSnapshot.MOUSE_PRESSED;
+					pressX = event[1];
+					pressY = event[2];
+				}
+				mouseX = event[1];
+				mouseY = event[2];
+				break;
+			case MOUSE_DRAG:
+				mouseX = event[1];
+				mouseY = event[2];
+				if (mouseDown) {
+					mouse |= HXInputSnapshot.MOUSE_MOVED;
+				}
+				break;
+			case MOUSE_UP:
+				if (mouseDown) {
+					mouseDown = false;
+					mouse |= HXInputSnapshot.MOUSE_RELEASED;
+				}
+				mouseX = event[1];
+				mouseY = event[2];
+				break;
+			default:
+				break;
+			}
+		}
+		if (mouseDown) {
+			mouse |= HXInputSnapshot.MOUSE_DOWN;
+		}
+		HXInputSnapshot last = current;
+		// Held input reuses the last snapshot instead of making one every tick
+		if (last.isSteady() && pressed == 0 && released == 0 && mouse == last.getMouseFlags()
+				&& keys == last.getKeys() && mouseX == last.getMouseX() && mouseY == last.getMouseY()) {
+			return last;
+		}
+		current = new HXInputSnapshot(keys, pressed, released, mouse, mouseX, mouseY, pressX, pressY);
+		return current;
+	}
+
+	/**
+	 * @return The snapshot of the last latch().
+	 */
+	public HXInputSnapshot getCurrent() {
+		return current;
+	}
+
+}
@@ -0,0 +1,109 @@
+package readers;
+
+public final class HXInputSnapshot {
+
+	/* === Mouse flags === */
+	public static final int MOUSE_DOWN = 1;
+	public static final int MOUSE_PRESSED = 2;
+	public static final int MOUSE_RELEASED = 4;
+	// Dragged with the button down since the last tick
+	public static final int MOUSE_MOVED = 8;
+
+	public static final HXInputSnapshot EMPTY = new HXInputSnapshot(0, 0, 0, 0, 0, 0, 0, 0);
+
+	// Bit i is the i-th key of HXKey.TRACK_THESE_KEYS
+	private final int keys;
+	private final int pressed;
+	private final int released;
+	private final int mouse;
+	private final int mouseX;
+	private final int mouseY;
+	private final int pressX;
+	private final int pressY;
+
+	/**
+	 * The input of one tick, latched by HXInput and read by entities through HXWorld.getInput().
+	 * <p>
+	 * Keys are bits indexed by HXKey.indexOf(), resolved once, so a lookup is a
+	 * shift and a mask. Edges record the keys that went down or up since the last
+	 * tick, so a tap shorter than a tick is still seen. Mouse coordinates are in
+	 * world space.
+	 * @param keys - Keys held down at the end of the tick.
+	 * @param pressed - Keys that went down since the last tick.
+	 * @param released - Keys that went up since the last tick.
+	 * @param mouse - MOUSE_ flags.
+	 * @param mouseX - Last x of the mouse.
+	 * @param mouseY - Last y of the mouse.
+	 * @param pressX - X of the last press since the last tick.
+	 * @param pressY - Y of the last press since the last tick.
+	 */
+	public HXInputSnapshot(int keys, int pressed, int released, int mouse, int mouseX, int mouseY, int pressX, int pressY) {
+		this.keys = keys;
+		this.pressed = pressed;
+		this.released = released;
+		this.mouse = mouse;
+		this.mouseX = mouseX;
+		this.mouseY = mouseY;
+		this.pressX = pressX;
+		this.pressY = pressY;
+	}
+
+	/**
+	 * @param key - Index from HXKey.indexOf(). Returns false for -1, an untracked key.
+	 */
+	public boolean isDown(int key) {
+		return key >= 0 && (keys & (1 << key)) != 0;
+	}
+	public boolean wasPressed(int key) {
+		return key >= 0 && (pressed & (1 << key)) != 0;
+	}
+	public boolean wasReleased(int key) {
+		return key >= 0 && (released & (1 << key)) != 0;
+	}
+	public boolean isMouseDown() {
+		return (mouse & MOUSE_DOWN) != 0;
+	}
+	public boolean wasMousePressed() {
+		return (mouse & MOUSE_PRESSED) != 0;
+	}
+	public boolean wasMouseReleased() {
+		return (mouse & MOUSE_RELEASED) != 0;
+	}
+	public boolean wasMouseMoved() {
+		return (mouse & MOUSE_MOVED) != 0;
+	}
+	/**
+	 * @return True if nothing changed since the last tick, only keys or the button held.
+	 */
+	public boolean isSteady() {
+		return pressed == 0 && released == 0 && (mouse & ~MOUSE_DOWN) == 0;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public int getKeys() {
+		return keys;
+	}
+	public int getPressed() {
+		return pressed;
+	}
+	public int getReleased() {
+		return released;
+	}
+	public int getMouseFlags() {
+		return mouse;
+	}
+	public int getMouseX() {
+		return mouseX;
+	}
+	public int getMouseY() {
+		return mouseY;
+	}
+	public int getPressX() {
+		return pressX;
+	}
+	public int getPressY() {
+		return pressY;
+	}
+
+}
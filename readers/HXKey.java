@@ -1,11 +1,8 @@
 package readers;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public class HXKey {
 	
-	// ADD NEW KEYS TO THIS LIST = = = = = = = = = = = = = =...
+	// ADD NEW KEYS TO THIS LIST, AT MOST 32 = = = = = = = =...
 	private static String[] TRACK_THESE_KEYS = {
 			"r",
 			"d",
@@ -18,36 +15,27 @@ public class HXKey {
 	};
 	// ... = = = = = = = = = = = = = = = = = = = = = = = = = =
 	
-	// Hash map with <KEY_AS_STRING, keyPressedState>	
-	public static Map<String, Boolean> KEYS = new HashMap<String, Boolean>() {
-	   {
-		   for (String s : TRACK_THESE_KEYS)
-			   put(s, false);
-	   }
-	};
-	
 	/**
-	 * Returns true if the state of the given key is pressed down.
+	 * Index of a tracked key, its bit in HXInputSnapshot. Resolve it once, such as
+	 * into a static final field, rather than on every read.
 	 * <p>
-	 * @param key - Lowercase letter as a string. Returns false if the key is not mapped.
-	 * Example: if (HXKey.isPressed("a")) {// execute };
+	 * @param key - Lowercase letter as a string.
+	 * Example: static final int KEY_A = HXKey.indexOf("a");
+	 * @return The index, or -1 if the key is not tracked.
 	 */
-	public static Boolean isPressed(String key) {
-		if (KEYS.containsKey(key)) {
-			return KEYS.get(key);
+	public static int indexOf(String key) {
+		for (int k = 0; k < TRACK_THESE_KEYS.length; k++) {
+			if (TRACK_THESE_KEYS[k].equals(key)) {
+				return k;
+			}
 		}
-		return false;
+		return -1;
 	}
 	
-	/**
-	 * Used to simulate key typed by forcing key pressed to false
-	 * <p>
-	 * @param key - Lowercase letter as a string.
-	 * Example: HXKey.setReleased("a")
-	 */
-	public static void setReleased(String key) {
-		if (KEYS.containsKey(key)) {
-			KEYS.put(key, false);
-		}
+	public static int getKeyCount() {
+		return TRACK_THESE_KEYS.length;
+	}
+	public static String getKeyName(int index) {
+		return TRACK_THESE_KEYS[index];
 	}
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import javax.swing.JComponent;
 import javax.swing.JFrame;
 import javax.swing.KeyStroke;
 
+import readers.HXInput;
 import readers.HXKey;
 
 import java.awt.Dimension;
@@ -49,27 +50,30 @@ public class HXMasterWindow extends JFrame {
 		HXWorldPanel viewPanel = new HXWorldPanel(WORLD_WIDTH, WORLD_HEIGHT);
 		getContentPane().add(viewPanel);
 		
-		// === Initialize key bindings for keys listed in the HXKey.KEYS HashMap ===
+		// === Initialize key bindings for keys listed in HXKey ===
 		InputMap in = viewPanel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
 		ActionMap am = viewPanel.getActionMap();
-		// Iterate through keys in HXKey.KEYS HashMap
-		for (String key : HXKey.KEYS.keySet()) {
+		HXInput input = viewPanel.getInput();
+		// Iterate through the tracked keys of HXKey
+		for (int k = 0; k < HXKey.getKeyCount(); k++) {
+			final int index = k;
+			String key = HXKey.getKeyName(k);
 			// Put actionMapKey into inputmap and actionmap for pressed
 			in.put(KeyStroke.getKeyStroke(key.toUpperCase()), "do_" + key + "_pressed");
 			am.put("do_" + key + "_pressed", new AbstractAction() {
-				// Add method for key pressed down, letting isPressed() in HXKey return true
+				// Queue the key going down, latched into the input of the next tick
 				@Override
 				public void actionPerformed(ActionEvent e) {
-					HXKey.KEYS.put(key, true);
+					input.keyPressed(index);
 				}
 			});
 			// Put actionMapKey into inputmap and actionmap for released
 			in.put(KeyStroke.getKeyStroke("released " + key.toUpperCase()), "do_" + key + "_released");
 			am.put("do_" + key + "_released", new AbstractAction(){
-				// Add method for key released up, letting isPressed() in HXKey return false
+				// Queue the key going up
 				@Override
 				public void actionPerformed(ActionEvent e) {
-					HXKey.KEYS.put(key, false);
+					input.keyReleased(index);
 				}
 			});
 		}
@@ -4,10 +4,42 @@ public class HXPhysicsConstants {
 	
 	private static final double GRAVITY = 0.6; // speed the player falls down
 	private static final double FRICTION = 10;
+	private static final double CCD_SKIN = 0.05; // distance continuous bodies stop short of an impact
+	private static final int SOLVER_ITERATIONS = 8; // default impulse passes over all contacts per tick
+	private static final double RESTITUTION_THRESHOLD = 1; // approach speed below which contacts don't bounce
+	private static final double PENETRATION_SLOP = 0.5; // penetration left uncorrected to keep contacts alive
+	private static final double CORRECTION_PERCENT = 0.8; // portion of remaining penetration removed per tick
+	private static final double SLEEP_LINEAR_TOLERANCE = 0.05; // speed below which a body counts as resting
+	private static final double SLEEP_ANGULAR_TOLERANCE = 0.002; // rotational speed below which a body counts as resting
+	private static final int SLEEP_TICKS = 30; // ticks an island must rest before it sleeps
 	public static double getGravity() {
 		return GRAVITY;
 	}
 	public static double getFriction() {
 		return FRICTION;
 	}
+	public static double getCCDSkin() {
+		return CCD_SKIN;
+	}
+	public static int getSolverIterations() {
+		return SOLVER_ITERATIONS;
+	}
+	public static double getRestitutionThreshold() {
+		return RESTITUTION_THRESHOLD;
+	}
+	public static double getPenetrationSlop() {
+		return PENETRATION_SLOP;
+	}
+	public static double getCorrectionPercent() {
+		return CORRECTION_PERCENT;
+	}
+	public static double getSleepLinearTolerance() {
+		return SLEEP_LINEAR_TOLERANCE;
+	}
+	public static double getSleepAngularTolerance() {
+		return SLEEP_ANGULAR_TOLERANCE;
+	}
+	public static int getSleepTicks() {
+		return SLEEP_TICKS;
+	}
 }
\ No newline at end of file
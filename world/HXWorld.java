@@ -2,19 +2,38 @@ package world;
 
 import java.awt.Graphics;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import readers.HXInputSnapshot;
 import world.entities.HXEntity;
 import world.entities.Square;
 import world.entities.Wall;
 import world.entities.WorldBorder;
+import world.helper.HXEntityPool;
+import world.helper.HXLevelOfDetail;
+import world.helper.HXSpawnQueue;
+import world.helper.HXTimingWheel;
+import world.helper.chunks.HXChunkManager;
+import world.helper.math.HXShape;
 import world.helper.math.HXVector;
+import world.helper.physics.HXBroadphase;
+import world.helper.physics.HXCastMode;
+import world.helper.physics.HXContactSolver;
+import world.helper.physics.HXRayHit;
 import world.helper.properties.HXCollider;
+import world.helper.properties.HXCompoundCollider;
 import world.helper.properties.HXInteractable;
  
 public class HXWorld {
 	
 	private HXInteractable interactTarget = null;
+	// Input of the current tick, set by whatever ticks the world
+	private HXInputSnapshot input = HXInputSnapshot.EMPTY;
 	
 	private int width;
 	private int height;
@@ -24,6 +43,57 @@ public class HXWorld {
 	private final CopyOnWriteArrayList<HXEntity> entities = new CopyOnWriteArrayList<HXEntity>();
 	private final CopyOnWriteArrayList<HXEntity> physicsBodies = new CopyOnWriteArrayList<HXEntity>();
 	private final CopyOnWriteArrayList<HXCollider> colliders = new CopyOnWriteArrayList<HXCollider>();
+	
+	/* === Collision === */
+	private static final double BROADPHASE_CELL_SIZE = 64;
+	private final HXBroadphase broadphase = new HXBroadphase(BROADPHASE_CELL_SIZE);
+	private final HXContactSolver solver = new HXContactSolver();
+	// Batch narrowphase results, grown to the largest neighbor list seen
+	private HXVector[] mtvs = new HXVector[0];
+	private boolean[] hits = new boolean[0];
+	// Broadphase candidates of the current region query, sized to hold every collider
+	private HXCollider[] queryCandidates = new HXCollider[0];
+	// Set once bodies have moved since the broadphase was built, queries then re-index first
+	private boolean queryIndexStale = true;
+	// Region of the shape queries, posed for each query and never added to the world
+	private HXCollider queryRegion = null;
+	
+	/* === Spawning === */
+	private final HXSpawnQueue spawnQueue = new HXSpawnQueue();
+	// Thread committing a spawn batch, its adds are held until the batch ends
+	private Thread batchThread = null;
+	private final ArrayList<HXEntity> pendingEntities = new ArrayList<HXEntity>();
+	private final ArrayList<HXCollider> pendingColliders = new ArrayList<HXCollider>();
+	// Removes held by the batch, taken out with one copy of each list
+	private final Set<Object> pendingRemovals = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+	// Removed entities kept for reuse, by type
+	private final HXEntityPool entityPool = new HXEntityPool();
+	
+	/* === Lifespans === */
+	// Mortal entities by the tick of their last update
+	private final HXTimingWheel<HXEntity> expiry = new HXTimingWheel<HXEntity>(0);
+	private final ArrayList<HXEntity> expired = new ArrayList<HXEntity>();
+	
+	/* === Streaming === */
+	// Unloads far chunks and loads near ones, null if the whole world stays resident
+	private HXChunkManager chunks = null;
+	
+	/* === Level of detail === */
+	// Picks which entities update each tick, null if all of them do
+	private HXLevelOfDetail lod = null;
+	// Colliders of the entities updating this tick, and of those skipped, which are indexed apart as obstacles
+	private final ArrayList<HXCollider> steppingColliders = new ArrayList<HXCollider>();
+	private final ArrayList<HXCollider> frozenColliders = new ArrayList<HXCollider>();
+	private final HXBroadphase obstacles = new HXBroadphase(BROADPHASE_CELL_SIZE);
+	private boolean obstaclesIndexed = false;
+	// Obstacles around one stepping collider, sized to hold every frozen collider
+	private HXCollider[] obstacleHits = new HXCollider[0];
+	
+	/* === Determinism === */
+	private boolean deterministic = false;
+	private long nextEntitySerial = 0;
+	private long tick = 0;
+	private long stateHash = 0;
 
 	/**
 	 * The HXWorld object owns all entities in a CopyOnWriteArrayList but is drawn in a HXWorldPanel.
@@ -31,9 +101,20 @@ public class HXWorld {
 	 * @param parentPanel - The JPanel that draws the world.
 	 */
 	public HXWorld(int w, int h) {
+		this(w, h, true);
+	}
+	/**
+	 * @param populate - False for an empty world, such as one about to be filled
+	 * from an HXSnapshot, instead of the default scene.
+	 */
+	public HXWorld(int w, int h, boolean populate) {
 		this.width = w;
 		this.height = h;
 		
+		if (!populate) {
+			return;
+		}
+		
 		// Run anything at start of world...
 		
 		new WorldBorder(this);
@@ -52,20 +133,22 @@ public class HXWorld {
 	/**
 	 * Calls any targeted entities' interaction methods
 	 * <p>
-	 * Goes through all entities that deploy the HXInteractable interface
-	 * and calls its interact method if its hitbox was intersected by the 
-	 * interaction coordinates.
+	 * Finds the colliders under the interaction coordinates through the broadphase
+	 * and calls the interact method of the first whose entity deploys the
+	 * HXInteractable interface and whose shape contains the point. Where several
+	 * overlap the first in iteration order wins: the most recently added, or the
+	 * oldest in deterministic mode.
 	 * @param x - The x coordinate of the interaction
 	 * @param y - The y coordinate of the interactoin
 	 */
 	public void interactAt(int x, int y) {
-		for (HXEntity e : entities) {
-			if (e instanceof HXInteractable) {
-				if (HXInteractable.isPointInPolygon(x, y, ((HXInteractable) e).getCorners())) {
-					interactTarget = ((HXInteractable) e);
-					interactTarget.interactNotify();
-					break;
-				}
+		int n = queryCandidates(x, y, x, y);
+		for (int c = 0; c < n; c++) {
+			HXCollider candidate = queryCandidates[c];
+			if (candidate.getParent() instanceof HXInteractable && candidate.containsPoint(x, y)) {
+				interactTarget = ((HXInteractable) candidate.getParent());
+				interactTarget.interactNotify();
+				break;
 			}
 		}
 	}
@@ -84,11 +167,63 @@ public class HXWorld {
 	}
 	
 	public void entityAdd(HXEntity e) {
-		entities.add(0, e);
+		if (batchThread == Thread.currentThread()) {
+			pendingEntities.add(e);
+		} else if (deterministic) {
+			synchronized (entities) {
+				entities.add(serialIndex(e.getSerial()), e);
+			}
+		} else {
+			entities.add(0, e);
+		}
 	}
 	public void entityRemove(HXEntity e) {
+		if (batchThread == Thread.currentThread()) {
+			if (!pendingEntities.remove(e)) {
+				pendingRemovals.add(e);
+			}
+			return;
+		}
 		entities.remove(e);
 	}
+	public long nextEntitySerial() {
+		synchronized (entities) {
+			return nextEntitySerial++;
+		}
+	}
+	
+	/**
+	 * Schedule a mortal entity's removal. Called by HXEntity when its lifespan is
+	 * set, the entity is removed after its update on the given tick unless its
+	 * death tick has changed by then.
+	 * @param tick - Tick of the entity's last update.
+	 */
+	public void expiryAdd(HXEntity e, long tick) {
+		expiry.schedule(e, tick);
+	}
+	
+	/**
+	 * Remove every entity and collider, stop every spawner and forget all contacts,
+	 * stored chunks and level of detail tiers.
+	 */
+	public void clear() {
+		interactStop();
+		spawnQueue.clear();
+		expiry.reset(tick);
+		entities.clear();
+		physicsBodies.clear();
+		colliders.clear();
+		solver.clear();
+		if (chunks != null) {
+			chunks.reset();
+		}
+		if (lod != null) {
+			lod.reset(this);
+			steppingColliders.clear();
+			frozenColliders.clear();
+		}
+		queryIndexStale = true;
+	}
 	
 	public void physicsBodyAdd(HXEntity e) {
 		physicsBodies.add(0, e);
@@ -97,12 +232,124 @@ public class HXWorld {
 		physicsBodies.remove(e);
 	}
 	
+	/**
+	 * @param e - Collider to simulate. Must belong to an entity.
+	 * @throws IllegalArgumentException if the collider has no parent entity.
+	 */
 	public void colliderAdd(HXCollider e) {
-		colliders.add(0, e);
+		if (e.getParent() == null) {
+			throw new IllegalArgumentException("Colliders added to the world need a parent entity");
+		}
+		if (batchThread == Thread.currentThread()) {
+			pendingColliders.add(e);
+		} else if (deterministic) {
+			synchronized (colliders) {
+				colliders.add(colliderIndex(e), e);
+			}
+		} else {
+			colliders.add(0, e);
+		}
 	}
 	public void colliderRemove(HXCollider e) {
+		if (batchThread == Thread.currentThread()) {
+			if (!pendingColliders.remove(e)) {
+				pendingRemovals.add(e);
+			}
+			return;
+		}
 		colliders.remove(e);
 	}
+	/**
+	 * Registers every convex part of a compound collider.
+	 * <p>
+	 * Parts go through the broadphase individually, so a large concave body only
+	 * costs SAT tests for the parts near something else.
+	 */
+	public void compoundAdd(HXCompoundCollider c) {
+		for (HXCollider part : c.getParts()) {
+			colliderAdd(part);
+		}
+	}
+	public void compoundRemove(HXCompoundCollider c) {
+		for (HXCollider part : c.getParts()) {
+			colliderRemove(part);
+		}
+	}
+	
+	/**
+	 * Hold entities and colliders added or removed by the calling thread until commitBatch().
+	 * <p>
+	 * Every change to a CopyOnWriteArrayList copies its whole array, so adding or
+	 * removing many entities one by one copies the lists once per entity, and
+	 * another thread iterating meanwhile sees a half built spawn. A batch changes
+	 * them all with one copy per list instead. Changes from other threads are not held.
+	 */
+	public void beginBatch() {
+		if (batchThread != null) {
+			throw new IllegalStateException("A spawn batch is already open");
+		}
+		batchThread = Thread.currentThread();
+	}
+	/**
+	 * Add everything held since beginBatch() to the world.
+	 */
+	public void commitBatch() {
+		if (batchThread != Thread.currentThread()) {
+			throw new IllegalStateException("No spawn batch is open on this thread");
+		}
+		batchThread = null;
+		if (!pendingRemovals.isEmpty()) {
+			entities.removeAll(pendingRemovals);
+			colliders.removeAll(pendingRemovals);
+			pendingRemovals.clear();
+		}
+		if (deterministic) {
+			synchronized (entities) {
+				pendingEntities.sort(HXWorld::compareSerial);
+				commitSorted(entities, pendingEntities, HXWorld::compareSerial);
+			}
+			synchronized (colliders) {
+				pendingColliders.sort(HXWorld::compareColliders);
+				commitSorted(colliders, pendingColliders, HXWorld::compareColliders);
+			}
+		} else {
+			// Same order as adding one at a time to the front
+			Collections.reverse(pendingEntities);
+			Collections.reverse(pendingColliders);
+			entities.addAll(0, pendingEntities);
+			colliders.addAll(0, pendingColliders);
+		}
+		pendingEntities.clear();
+		pendingColliders.clear();
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Adds sorted elements to a sorted list. New spawns have the highest serials,
+	 * so they usually all go on the end in one copy.
+	 */
+	private static <T> void commitSorted(CopyOnWriteArrayList<T> list, ArrayList<T> sorted, Comparator<T> order) {
+		if (sorted.isEmpty()) {
+			return;
+		}
+		if (list.isEmpty() || order.compare(list.get(list.size() - 1), sorted.get(0)) < 0) {
+			list.addAll(sorted);
+			return;
+		}
+		for (T t : sorted) {
+			int lo = 0;
+			int hi = list.size();
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (order.compare(list.get(mid), t) < 0) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			list.add(lo, t);
+		}
+	}
 	
 	public void draw(Graphics g, float interpolation) {
 		for (HXEntity e : entities) {
@@ -110,32 +357,666 @@ public class HXWorld {
 		}
 	}
 	public void updateTick(double dT) {
-		boolean intersection[] = new boolean[colliders.size()];
-		for (int c = 0; c < colliders.size(); c++) {
-			for (int c2 = c + 1; c2 < colliders.size(); c2++) {
-				HXVector mtv = colliders.get(c).doesOverlap(colliders.get(c2));
-				if (mtv != null) {
-					colliders.get(c).getParent().intersectApplyMTV(mtv);
-					colliders.get(c2).getParent().intersectApplyMTV(mtv.opposite());
-					intersection[c] = true;
-					intersection[c2] = true;
+		applyMouse();
+		if (chunks != null) {
+			chunks.update();
+		}
+		if (spawnQueue.hasDue(tick)) {
+			beginBatch();
+			try {
+				spawnQueue.spawnDue(this, tick);
+			} finally {
+				commitBatch();
+			}
+		}
+		obstaclesIndexed = false;
+		if (lod != null) {
+			lod.update(this);
+			for (HXEntity e : entities) {
+				lod.step(e, tick);
+			}
+			steppingColliders.clear();
+			frozenColliders.clear();
+			for (HXCollider c : colliders) {
+				(c.getParent().isStepping() ? steppingColliders : frozenColliders).add(c);
+			}
+			broadphase.rebuild(steppingColliders);
+			if (!frozenColliders.isEmpty()) {
+				obstacles.rebuildIndex(frozenColliders);
+				obstaclesIndexed = true;
+			}
+		} else {
+			broadphase.rebuild(colliders);
+		}
+		solver.beginTick();
+		
+		for (int c = 0; c < broadphase.getColliderCount(); c++) {
+			broadphase.getCollider(c).getParent().intersectStop();
+		}
+		HXCollider[] neighbors = broadphase.getNeighbors();
+		for (int c = 0; c < broadphase.getColliderCount(); c++) {
+			int from = broadphase.getNeighborStart(c);
+			int to = broadphase.getNeighborStart(c + 1);
+			if (from == to) {
+				continue;
+			}
+			ensureNarrowphaseCapacity(to - from);
+			HXCollider a = broadphase.getCollider(c);
+			if (a.overlapMany(neighbors, from, to, mtvs, hits) == 0) {
+				continue;
+			}
+			for (int n = 0; n < to - from; n++) {
+				if (hits[n]) {
+					HXCollider b = neighbors[from + n];
+					HXVector mtv = mtvs[n];
+					solver.addContact(a, b, mtv);
+					a.getParent().intersectShowMTV(mtv.x, mtv.y);
+					b.getParent().intersectShowMTV(-mtv.x, -mtv.y);
+					a.getParent().intersectNotify();
+					b.getParent().intersectNotify();
 				}
 			}
-			colliders.get(c).getParent().intersectSet(intersection[c]);
 		}
+		if (obstaclesIndexed) {
+			collideObstacles();
+		}
+		solver.solve();
+		sweepContinuous();
+		queryIndexStale = true;
+		
 		for (HXEntity e : entities) {
-			e.update(dT);
+			if (e.isStepping()) {
+				e.update(dT * e.getStepScale());
+			}
+		}
+		expireDue();
+		
+		tick++;
+		if (deterministic) {
+			stateHash = computeStateHash();
+		}
+	}
+	
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Turns the mouse edges of the tick's input into interactions, in the order
+	 * they happened: a release before a new press stops the old interaction first.
+	 */
+	private void applyMouse() {
+		if (input.wasMouseReleased() && input.isMouseDown()) {
+			interactStop();
+		}
+		if (input.wasMousePressed()) {
+			interactAt(input.getPressX(), input.getPressY());
+		}
+		if (input.wasMouseMoved() && input.isMouseDown()) {
+			interactMove(input.getMouseX(), input.getMouseY());
+		}
+		if (input.wasMouseReleased() && !input.isMouseDown()) {
+			interactStop();
+		}
+	}
+	
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Removes the entities whose last update was this tick, in one batch. Only the
+	 * due slot of the timing wheel is looked at, so the cost follows the number
+	 * expiring rather than the number alive. Entries left by entities removed
+	 * early or given a new lifespan are skipped.
+	 */
+	private void expireDue() {
+		if (expiry.advance(tick, expired) == 0) {
+			return;
+		}
+		beginBatch();
+		try {
+			for (int i = 0; i < expired.size(); i++) {
+				HXEntity e = expired.get(i);
+				if (!e.isRemoved() && e.getWorld() == this && e.getDeathTick() == tick) {
+					e.remove();
+				}
+			}
+		} finally {
+			commitBatch();
+			expired.clear();
+		}
+	}
+	
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Tests every collider updating this tick against the frozen colliders
+	 * around its swept bounds. Frozen colliders are never tested against each other.
+	 */
+	private void collideObstacles() {
+		for (int c = 0; c < broadphase.getColliderCount(); c++) {
+			HXCollider a = broadphase.getCollider(c);
+			int found = queryObstacles(a);
+			if (found == 0) {
+				continue;
+			}
+			ensureNarrowphaseCapacity(found);
+			if (a.overlapMany(obstacleHits, 0, found, mtvs, hits) > 0) {
+				for (int n = 0; n < found; n++) {
+					if (hits[n]) {
+						HXCollider b = obstacleHits[n];
+						HXVector mtv = mtvs[n];
+						solver.addContact(a, b, mtv);
+						a.getParent().intersectShowMTV(mtv.x, mtv.y);
+						b.getParent().intersectShowMTV(-mtv.x, -mtv.y);
+						a.getParent().intersectNotify();
+						b.getParent().intersectNotify();
+					}
+				}
+			}
+			Arrays.fill(obstacleHits, 0, found, null);
+		}
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Finds the frozen colliders within a stepping collider's swept bounds.
+	 * Resting colliders find none, both sides being immovable.
+	 * @return Number of colliders written to obstacleHits.
+	 */
+	private int queryObstacles(HXCollider a) {
+		HXEntity e = a.getParent();
+		if ((e.isStaticObject() && !e.isInteracting()) || e.isSleeping()) {
+			return 0;
+		}
+		if (obstacleHits.length < frozenColliders.size()) {
+			obstacleHits = new HXCollider[frozenColliders.size() * 2];
+		}
+		double dx = e.getxVel() * e.getStepScale();
+		double dy = e.getyVel() * e.getStepScale();
+		return obstacles.query(a.getMinX() + Math.min(0, dx), a.getMinY() + Math.min(0, dy),
+				a.getMaxX() + Math.max(0, dx), a.getMaxY() + Math.max(0, dy), obstacleHits);
+	}
+	
+	private void ensureNarrowphaseCapacity(int n) {
+		if (mtvs.length < n) {
+			int size = Math.max(8, n * 2);
+			HXVector[] grown = new HXVector[size];
+			for (int v = 0; v < size; v++) {
+				grown[v] = v < mtvs.length ? mtvs[v] : new HXVector();
+			}
+			mtvs = grown;
+			hits = new boolean[size];
+		}
+	}
+	
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Continuous collision detection. Every candidate pair holding a continuous
+	 * entity is swept over this tick's motion. A hit limits that entity's next
+	 * step to just short of the impact and removes its velocity into the contact,
+	 * so it can't pass through thin colliders regardless of CLOCK_HERTZ. A moving
+	 * peer is limited to the same fraction of its own step, so both stop where the
+	 * sweep found them touching rather than the peer carrying on into the mover.
+	 */
+	private void sweepContinuous() {
+		for (int p = 0; p < broadphase.getPairCount(); p++) {
+			HXCollider a = broadphase.getPairA(p);
+			HXCollider b = broadphase.getPairB(p);
+			if (a.getParent().isContinuous()) {
+				sweepContinuous(a, b);
+			}
+			if (b.getParent().isContinuous()) {
+				sweepContinuous(b, a);
+			}
+		}
+		if (!obstaclesIndexed) {
+			return;
+		}
+		for (int c = 0; c < broadphase.getColliderCount(); c++) {
+			HXCollider a = broadphase.getCollider(c);
+			if (!a.getParent().isContinuous()) {
+				continue;
+			}
+			int found = queryObstacles(a);
+			for (int n = 0; n < found; n++) {
+				sweepContinuous(a, obstacleHits[n]);
+				obstacleHits[n] = null;
+			}
+		}
+	}
+	private void sweepContinuous(HXCollider mover, HXCollider peer) {
+		HXEntity e = mover.getParent();
+		if (e.isStaticObject() || e.isInteracting() || !e.isStepping()) {
+			return;
+		}
+		HXEntity other = peer.getParent();
+		// A peer the level of detail skips this tick stands still
+		double otherXVel = other.isStepping() ? other.getxVel() : 0;
+		double otherYVel = other.isStepping() ? other.getyVel() : 0;
+		double rvx = e.getxVel() - otherXVel;
+		double rvy = e.getyVel() - otherYVel;
+		// Each body's whole step, several ticks long at a lower level of detail, so the
+		// fraction found applies to both steps
+		double dx = e.getxVel() * e.getStepScale() - otherXVel * other.getStepScale();
+		double dy = e.getyVel() * e.getStepScale() - otherYVel * other.getStepScale();
+		double distance = Math.sqrt(dx * dx + dy * dy);
+		if (distance == 0) {
+			return;
+		}
+		double toi = mover.timeOfImpact(peer, dx, dy);
+		if (toi < 0 || toi > 1) {
+			return;
+		}
+		double fraction = toi - HXPhysicsConstants.getCCDSkin() / distance;
+		e.limitStep(fraction);
+		if (!other.isStaticObject() && !other.isInteracting() && (otherXVel != 0 || otherYVel != 0)) {
+			other.limitStep(fraction);
+		}
+		// Remove the approaching component of velocity along the impact normal
+		HXVector n = mover.getImpactNormal();
+		double approach = rvx * n.x + rvy * n.y;
+		if (approach > 0) {
+			e.setVelocity(e.getxVel() - approach * n.x, e.getyVel() - approach * n.y);
+		}
+	}
+	
+	// Mark: Determinism =======================================
+	
+	/**
+	 * Switch deterministic mode on or off.
+	 * <p>
+	 * In deterministic mode entities and colliders are processed in creation order
+	 * (entity serial, then collider id) whichever thread added them, islands are
+	 * solved on the calling thread and a state hash is taken after every tick. Two
+	 * worlds built the same way and fed the same inputs then produce bit identical
+	 * states, so lockstep peers only need to exchange inputs and compare hashes.
+	 * <p>
+	 * Arithmetic is plain double: since Java 17 all floating point is strict, and
+	 * collider trigonometry always uses StrictMath, so no fixed point is needed.
+	 * @param deterministic - True to enable.
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
+		solver.setParallel(!deterministic);
+		if (deterministic) {
+			synchronized (entities) {
+				entities.sort(HXWorld::compareSerial);
+			}
+			synchronized (colliders) {
+				colliders.sort(HXWorld::compareColliders);
+			}
+			stateHash = computeStateHash();
+		}
+	}
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+	/**
+	 * Hash of the simulation state of every entity, in iteration order.
+	 * <p>
+	 * Covers position, rotation, velocities and sleep state of each entity and the
+	 * center and angle of its collider. Taken automatically after each tick in
+	 * deterministic mode, see getStateHash().
+	 */
+	public long computeStateHash() {
+		long h = 0xcbf29ce484222325L;
+		for (HXEntity e : entities) {
+			h = mix(h, e.getSerial());
+			h = mix(h, Double.doubleToLongBits(e.getxPos()));
+			h = mix(h, Double.doubleToLongBits(e.getyPos()));
+			h = mix(h, Double.doubleToLongBits(e.getRotation()));
+			h = mix(h, Double.doubleToLongBits(e.getxVel()));
+			h = mix(h, Double.doubleToLongBits(e.getyVel()));
+			h = mix(h, Double.doubleToLongBits(e.getRotationalVelocity()));
+			h = mix(h, e.isSleeping() ? 1 : 0);
+			HXCollider c = e.getCollider();
+			if (c != null) {
+				h = mix(h, Double.doubleToLongBits(c.getCenter().x));
+				h = mix(h, Double.doubleToLongBits(c.getCenter().y));
+				h = mix(h, Double.doubleToLongBits(c.getAngle()));
+			}
+		}
+		return h;
+	}
+	private static long mix(long h, long value) {
+		h = (h ^ value) * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 32);
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Index keeping entities sorted by serial. Callers hold the entities lock.
+	 */
+	private int serialIndex(long serial) {
+		int lo = 0;
+		int hi = entities.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (entities.get(mid).getSerial() < serial) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Index keeping colliders sorted by compareColliders(). Callers hold the colliders lock.
+	 */
+	private int colliderIndex(HXCollider c) {
+		int lo = 0;
+		int hi = colliders.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compareColliders(colliders.get(mid), c) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	private static int compareSerial(HXEntity a, HXEntity b) {
+		return Long.compare(a.getSerial(), b.getSerial());
+	}
+	private static int compareColliders(HXCollider a, HXCollider b) {
+		long serialA = a.getParent() == null ? -1 : a.getParent().getSerial();
+		long serialB = b.getParent() == null ? -1 : b.getParent().getSerial();
+		if (serialA != serialB) {
+			return Long.compare(serialA, serialB);
+		}
+		return Integer.compare(a.getId(), b.getId());
+	}
+	
+	// Mark: Queries =======================================
+	
+	/**
+	 * Cast a ray into the world.
+	 * <p>
+	 * Walks the broadphase grid from the last tick, so only colliders near the ray
+	 * are tested. Allocation free: hits are written into the caller's buffer.
+	 * @param ox - X of the ray origin.
+	 * @param oy - Y of the ray origin.
+	 * @param dirX - X of the ray direction, need not be normalized.
+	 * @param dirY - Y of the ray direction, need not be normalized.
+	 * @param maxDistance - How far the ray reaches. Must be finite.
+	 * @param mode - CLOSEST, ALL or ANY hit.
+	 * @param ignore - Entity whose colliders are skipped, such as the caster. May be null.
+	 * @param hitsOut - Buffer receiving the hits. Hit t is the distance from the origin.
+	 * @return Number of hits written to hitsOut.
+	 */
+	public int raycast(double ox, double oy, double dirX, double dirY, double maxDistance, HXCastMode mode, HXEntity ignore, HXRayHit[] hitsOut) {
+		if (Double.isInfinite(maxDistance) || Double.isNaN(maxDistance)) {
+			throw new IllegalArgumentException("Raycast distance must be finite: " + maxDistance);
+		}
+		double length = HXVector.length(dirX, dirY);
+		if (length == 0) {
+			return 0;
+		}
+		refreshQueryIndex();
+		return broadphase.cast(ox, oy, dirX / length, dirY / length, maxDistance, mode, ignore, hitsOut);
+	}
+	/**
+	 * Cast the segment from (x1, y1) to (x2, y2) into the world.
+	 * <p>
+	 * Same as raycast() but hit t is the fraction of the segment, 0 at the start and 1 at the end.
+	 */
+	public int segmentCast(double x1, double y1, double x2, double y2, HXCastMode mode, HXEntity ignore, HXRayHit[] hitsOut) {
+		refreshQueryIndex();
+		return broadphase.cast(x1, y1, x2 - x1, y2 - y1, 1, mode, ignore, hitsOut);
+	}
+	/**
+	 * Find the colliders overlapping an axis aligned box.
+	 * <p>
+	 * Goes through the broadphase grid and compares bounding boxes. Allocation
+	 * free once the internal candidate buffer has grown to the collider count.
+	 * @param minX - Left of the box.
+	 * @param minY - Top of the box.
+	 * @param maxX - Right of the box.
+	 * @param maxY - Bottom of the box.
+	 * @param out - Receives the colliders. Results beyond its length are dropped.
+	 * @return Number of colliders written to out.
+	 */
+	public int queryAABB(double minX, double minY, double maxX, double maxY, HXCollider[] out) {
+		int n = queryCandidates(minX, minY, maxX, maxY);
+		int count = Math.min(n, out.length);
+		System.arraycopy(queryCandidates, 0, out, 0, count);
+		return count;
+	}
+	/**
+	 * Find the colliders overlapping a circle.
+	 * <p>
+	 * Candidates from the circle's bounding box are tested exactly with HXCollider.overlapsCircle().
+	 * @param out - Receives the colliders. Results beyond its length are dropped.
+	 * @return Number of colliders written to out.
+	 */
+	public int queryCircle(double cx, double cy, double radius, HXCollider[] out) {
+		int n = queryCandidates(cx - radius, cy - radius, cx + radius, cy + radius);
+		int count = 0;
+		for (int c = 0; c < n && count < out.length; c++) {
+			if (queryCandidates[c].overlapsCircle(cx, cy, radius)) {
+				out[count++] = queryCandidates[c];
+			}
+		}
+		return count;
+	}
+	/**
+	 * Find the colliders overlapping a convex shape placed in the world.
+	 * <p>
+	 * The shape is posed on a collider kept for queries, so nothing is allocated
+	 * per query. Candidates from its bounding box go through the same batched SAT
+	 * narrowphase as collisions.
+	 * @param shape - The region, usually from HXShapeFactory.box() or polygon().
+	 * @param centerX - X of the shape's origin in the world.
+	 * @param centerY - Y of the shape's origin in the world.
+	 * @param angle - Rotation of the shape in radians.
+	 * @param out - Receives the colliders. Results beyond its length are dropped.
+	 * @return Number of colliders written to out.
+	 */
+	public int queryPolygon(HXShape shape, double centerX, double centerY, double angle, HXCollider[] out) {
+		if (queryRegion == null) {
+			queryRegion = new HXCollider(shape, centerX, centerY, angle, null);
+		} else {
+			queryRegion.setPose(shape, centerX, centerY, angle);
+		}
+		return queryPolygon(queryRegion, out);
+	}
+	/**
+	 * Find the colliders overlapping an existing collider, such as an entity's own.
+	 * @param region - The collider to test. Its own entity's colliders are skipped.
+	 * @param out - Receives the colliders. Results beyond its length are dropped.
+	 * @return Number of colliders written to out.
+	 */
+	public int queryPolygon(HXCollider region, HXCollider[] out) {
+		int n = queryCandidates(region.getMinX(), region.getMinY(), region.getMaxX(), region.getMaxY());
+		ensureNarrowphaseCapacity(n);
+		region.overlapMany(queryCandidates, 0, n, mtvs, hits);
+		int count = 0;
+		for (int c = 0; c < n && count < out.length; c++) {
+			if (hits[c] && queryCandidates[c] != region && (region.getParent() == null || queryCandidates[c].getParent() != region.getParent())) {
+				out[count++] = queryCandidates[c];
+			}
+		}
+		return count;
+	}
+	/**
+	 * Entity versions of the region queries. Each entity is reported once, even when
+	 * several of its colliders overlap (such as the parts of a compound collider).
+	 * @return Number of entities written to out.
+	 */
+	public int queryAABB(double minX, double minY, double maxX, double maxY, HXEntity[] out) {
+		return toEntities(queryAABB(minX, minY, maxX, maxY, queryCandidates), out);
+	}
+	public int queryCircle(double cx, double cy, double radius, HXEntity[] out) {
+		return toEntities(queryCircle(cx, cy, radius, queryCandidates), out);
+	}
+	public int queryPolygon(HXShape shape, double centerX, double centerY, double angle, HXEntity[] out) {
+		return toEntities(queryPolygon(shape, centerX, centerY, angle, queryCandidates), out);
+	}
+	public int queryPolygon(HXCollider region, HXEntity[] out) {
+		return toEntities(queryPolygon(region, queryCandidates), out);
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Fills queryCandidates from the broadphase and returns how many there are.
+	 */
+	private int queryCandidates(double minX, double minY, double maxX, double maxY) {
+		refreshQueryIndex();
+		if (queryCandidates.length < colliders.size()) {
+			queryCandidates = new HXCollider[colliders.size() * 2];
+		}
+		return broadphase.query(minX, minY, maxX, maxY, queryCandidates);
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Writes the distinct parents of the first count query candidates into out.
+	 */
+	private int toEntities(int count, HXEntity[] out) {
+		int written = 0;
+		for (int c = 0; c < count && written < out.length; c++) {
+			HXEntity parent = queryCandidates[c].getParent();
+			if (parent == null) {
+				continue;
+			}
+			boolean seen = false;
+			for (int e = written - 1; e >= 0 && !seen; e--) {
+				seen = out[e] == parent;
+			}
+			if (!seen) {
+				out[written++] = parent;
+			}
+		}
+		return written;
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Re-indexes the broadphase if bodies were moved by the solver since it was built.
+	 * Bounds are swept by velocity, so the index stays valid while entities integrate.
+	 */
+	private void refreshQueryIndex() {
+		if (queryIndexStale) {
+			broadphase.rebuildIndex(colliders);
+			queryIndexStale = false;
 		}
 	}
 	
 	// Mark: Getters/Setters =======================================
 	
+	/**
+	 * Number of ticks simulated so far.
+	 */
+	public long getTick() {
+		return tick;
+	}
+	/**
+	 * Used when restoring a snapshot, so the tick count continues from the saved world.
+	 */
+	public void setTick(long tick) {
+		long shift = tick - this.tick;
+		this.tick = tick;
+		// Lifespans, spawn schedules and level of detail steps count in ticks, so they move with the tick count
+		spawnQueue.shift(shift);
+		expiry.reset(tick);
+		// Stored chunks belong to the timeline being left
+		if (chunks != null) {
+			chunks.reset();
+		}
+		for (HXEntity e : entities) {
+			if (e.getDeathTick() != -1) {
+				e.setDeathTick(e.getDeathTick() + shift);
+			}
+			if (e.getLastStepTick() != Long.MIN_VALUE) {
+				e.setLastStepTick(e.getLastStepTick() + shift);
+			}
+		}
+	}
+	/**
+	 * Serial the next entity created in this world will get. Restoring a snapshot
+	 * sets it before constructing each entity so serials match the saved world.
+	 */
+	public long getNextEntitySerial() {
+		return nextEntitySerial;
+	}
+	public void setNextEntitySerial(long serial) {
+		synchronized (entities) {
+			nextEntitySerial = serial;
+		}
+	}
+	/**
+	 * State hash taken after the last tick in deterministic mode.
+	 */
+	public long getStateHash() {
+		return stateHash;
+	}
+	
+	public CopyOnWriteArrayList<HXEntity> getEntities() {
+		return entities;
+	}
 	public CopyOnWriteArrayList<HXEntity> getPhysicsBodies() {
 		return physicsBodies;
 	}
 	public CopyOnWriteArrayList<HXCollider> getRotatedColliders() {
 		return colliders;
 	}
+	/**
+	 * Input entities read during the current tick.
+	 */
+	public HXInputSnapshot getInput() {
+		return input;
+	}
+	/**
+	 * Set the input of the next tick, once before each updateTick(). Its mouse
+	 * edges start and stop interactions at the start of the tick.
+	 * @param input - Usually from HXInput.latch(), or HXInputSnapshot.EMPTY for none.
+	 */
+	public void setInput(HXInputSnapshot input) {
+		this.input = input;
+	}
+	/**
+	 * Spawners due at the start of each tick, see HXSpawner.
+	 */
+	public HXSpawnQueue getSpawnQueue() {
+		return spawnQueue;
+	}
+	/**
+	 * Removed entities kept for reuse, see HXEntityPool. Nothing is pooled until a type is given a capacity.
+	 */
+	public HXEntityPool getEntityPool() {
+		return entityPool;
+	}
+	/**
+	 * Stream the world in chunks, see HXChunkManager. Null keeps everything resident.
+	 * Chunks still in the store of a replaced manager are dropped.
+	 */
+	public void setChunkManager(HXChunkManager chunks) {
+		if (this.chunks != null && this.chunks != chunks) {
+			this.chunks.reset();
+		}
+		this.chunks = chunks;
+	}
+	public HXChunkManager getChunkManager() {
+		return chunks;
+	}
+	/**
+	 * Update entities less often the further they are from the observers, see
+	 * HXLevelOfDetail. Null updates every entity every tick.
+	 */
+	public void setLevelOfDetail(HXLevelOfDetail lod) {
+		if (this.lod != null && this.lod != lod) {
+			this.lod.reset(this);
+		}
+		this.lod = lod;
+	}
+	public HXLevelOfDetail getLevelOfDetail() {
+		return lod;
+	}
+	public HXContactSolver getContactSolver() {
+		return solver;
+	}
 	public void setScale(double scale) {
 		this.scale = scale;
 		for (HXEntity e : entities) {
@@ -151,6 +1032,16 @@ public class HXWorld {
 		}
 		return false;
 	}
+	public HXInteractable getInteractTarget() {
+		return interactTarget;
+	}
+	/**
+	 * Point the interaction at a target without notifying it, for restoring a
+	 * recorded drag. The target should already be interacting.
+	 */
+	public void setInteractTarget(HXInteractable target) {
+		this.interactTarget = target;
+	}
 	public int getWidth() {
 		return width;
 	}
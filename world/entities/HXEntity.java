@@ -3,10 +3,12 @@ package world.entities;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Image;
+import java.nio.ByteBuffer;
 
 import world.HXWorld;
 import world.helper.properties.HXCollider;
 import world.helper.math.HXLine;
+import world.helper.math.HXShapeFactory;
 import world.helper.math.HXVector;
 
 public abstract class HXEntity {
@@ -30,20 +32,36 @@ public abstract class HXEntity {
 	private HXWorld parentWorld;
 	private Image img;
 	private double mass;
-	private double lifespan; // an entity with -1 lifespan will not decay
+	private long deathTick = -1; // World tick of the last update before expiring, -1 for an entity that will not decay
 	private double xVel; // x velocity
 	private double yVel; // y velocity
 	private double rVel; // rotational velocity
 	
-	private double LIFESPAN_DECAY = 0.03;
+	private static final double LIFESPAN_DECAY = 0.03; // Lifespan spent per tick
 	
 	private HXVector GRAVITY = new HXVector(0, -1); // update ignores GRAVITY.x
 	private double TERMINAL_FREE_FALL = 5;
 	private boolean statis = false; // Locks place of entity, unless interacting with
+	private boolean continuous = false; // Sweeps motion against colliders so fast bodies can't tunnel
+	private boolean sleeping = false; // Resting bodies skip integration and resting pairs skip collision
+	private int sleepTime = 0; // Consecutive ticks spent below the sleep tolerances
+	private int islandIndex = -1; // Scratch slot used by the contact solver while building islands
+	private long serial = -1; // Order of creation within the parent world, for deterministic iteration
+	private boolean removed = false;
+	private int lodTier = 0; // HXLevelOfDetail tier, NEAR unless the world has one
+	private int stepScale = 1; // Ticks of motion per update, above one when updated every Nth tick
+	private boolean stepping = true; // False on ticks HXLevelOfDetail skips, an immovable obstacle until the next
+	private long lastStepTick = Long.MIN_VALUE; // World tick of the last update under a level of detail, MIN_VALUE before any
+	// Next update's step when limited by the world's CCD pass (velocity at time of limit, scaled by fraction)
+	private boolean stepLimited = false;
+	private double stepFraction = 1;
+	private double xStepVel;
+	private double yStepVel;
 	
 	// PHYSICS BODY
 	// Friction can still be applied to an entity w/o a physicsBody
 	private double FRICTION = 0.2;
+	private double restitution = 0.1; // Bounciness of contacts, 0 is fully inelastic
 	private double sphere_radius; // Circle around square shape.
 	
 	private HXCollider collisionBody = null;
@@ -81,39 +99,68 @@ public abstract class HXEntity {
 		this.mass = withMass;
 		this.xPos_prev = x;
 		this.yPos_prev = y;
-		this.lifespan = life;
 		this.parentWorld = parent;
 		this.xVel = velX;
 		this.yVel = velY;
+		if (removed) {
+			// Recycled from an HXEntityPool, clear what the last life left behind
+			resetRecycled();
+		}
 		
 		this.sphere_radius = Math.sqrt(Math.pow((width/2), 2) + Math.pow((height/2), 2));
 		
+		this.serial = this.parentWorld.nextEntitySerial();
 		this.parentWorld.entityAdd(this);
+		setLifespan(life);
 //		if (this instanceof HXPhysicsBody) {
 //			this.parentWorld.physicsBodyAdd(this);
 //		}
 		
 		if (hasCollider) {
-			double c1x = xPos;
-			double c1y = yPos;
-			double c2x = xPos + width;
-			double c2y = yPos;
-			double c3x = xPos + width;
-			double c3y = yPos + height;
-			double c4x = xPos;
-			double c4y = yPos + height;
-			
-			collisionBody = new HXCollider(new HXVector[]{
-					new HXVector(c1x,c1y),
-					new HXVector(c2x,c2y),
-					new HXVector(c3x,c3y),
-					new HXVector(c4x,c4y)
-					}, this);
+			// Every entity of the same size shares one interned box shape
+			if (collisionBody != null) {
+				collisionBody.reset(HXShapeFactory.box(width, height), xPos + width/2, yPos + height/2, 0);
+			} else {
+				collisionBody = new HXCollider(HXShapeFactory.box(width, height), xPos + width/2, yPos + height/2, 0, this);
+			}
+			mtvLine.a.set(collisionBody.getCenter());
+			mtvLine.b.set(collisionBody.getCenter());
 			this.getWorld().colliderAdd(collisionBody);
+		} else {
+			collisionBody = null;
 		}
 		
 	}
 	
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Returns the state init() doesn't set to that of a new entity.
+	 */
+	private void resetRecycled() {
+		removed = false;
+		rotation = 0;
+		rVel = 0;
+		interacting = false;
+		intersecting = false;
+		statis = false;
+		continuous = false;
+		sleeping = false;
+		sleepTime = 0;
+		islandIndex = -1;
+		stepLimited = false;
+		stepFraction = 1;
+		lodTier = 0;
+		stepScale = 1;
+		stepping = true;
+		lastStepTick = Long.MIN_VALUE;
+		restitution = 0.1;
+		netForceMagnitude = 0;
+		netForceDirection.set(0, 0);
+		mtvLine.a.set(0, 0);
+		mtvLine.b.set(0, 0);
+	}
+	
 	/**
 	 * Called by HXWorldPanel within its paintComponent() based on HXClock repaint timer.
 	 * <p>
@@ -141,12 +188,38 @@ public abstract class HXEntity {
 		}
 		
 		
-		xPos += xVel;
-		yPos += yVel;
+		if (!sleeping) {
+			integrate();
+		}
+		
+		
+		
+		
+		// TODO Change xPos or yPos variables for movement
+	}
+	
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Moves the entity and its collider by one tick of velocity, or by stepScale
+	 * ticks when HXLevelOfDetail only updates it every Nth tick.
+	 */
+	private void integrate() {
+		double xStep = xVel * stepScale;
+		double yStep = yVel * stepScale;
+		double rStep = rVel * stepScale;
+		if (stepLimited) {
+			xStep = xStepVel * stepFraction * stepScale;
+			yStep = yStepVel * stepFraction * stepScale;
+			stepLimited = false;
+		}
+		
+		xPos += xStep;
+		yPos += yStep;
 		
 		xPos_prev = xPos;
 		yPos_prev = yPos;
-		rotation = (rotation + rVel);
+		rotation = (rotation + rStep);
 		if (rotation >= 2 * Math.PI) {
 			rotation -= (2 * Math.PI);
 		} else if (rotation < 0) {
@@ -155,27 +228,13 @@ public abstract class HXEntity {
 		
 		if (collisionBody != null) {
 			if (!intersecting) {
-				mtvLine.a.x = collisionBody.getCenter().x;
-				mtvLine.a.y = collisionBody.getCenter().y;
-				mtvLine.b.x = collisionBody.getCenter().x;
-				mtvLine.b.y = collisionBody.getCenter().y;
+				mtvLine.a.set(collisionBody.getCenter());
+				mtvLine.b.set(collisionBody.getCenter());
 			}
 			
-			collisionBody.translateBy(xVel, yVel);
-			collisionBody.rotateBy(rVel);
-		}
-		
-		
-		if (lifespan != -1) {
-			lifespan -= LIFESPAN_DECAY;
-			if (lifespan <= 0) {
-				remove();
-			}
+			collisionBody.translateBy(xStep, yStep);
+			collisionBody.rotateBy(rStep);
 		}
-		
-		
-		
-		// TODO Change xPos or yPos variables for movement
 	}
 	
 	private void netForces() {
@@ -187,11 +246,24 @@ public abstract class HXEntity {
 	/**
 	 * Used to delete an entity
 	 * <p>
-	 * Removes the caller from the world's entity array list.
+	 * Removes the caller and its collider from the world. If its type is pooled the
+	 * entity is then kept by the world's HXEntityPool for reuse, so it should not be
+	 * used after removal. Removing twice does nothing.
 	 */
 	public void remove() {
+		if (removed) {
+			return;
+		}
+		removed = true;
+		if (this.parentWorld.getInteractTarget() == this) {
+			this.parentWorld.interactStop();
+		}
 		this.parentWorld.entityRemove(this);
 		this.parentWorld.physicsBodyRemove(this);
+		if (collisionBody != null) {
+			this.parentWorld.colliderRemove(collisionBody);
+		}
+		this.parentWorld.getEntityPool().release(this);
 	}
 	public void interactImpulse(int xDist, int yDist) {
 		collisionBody.translateBy(xDist - width/2 - xPos, yDist - height/2 - yPos);
@@ -199,32 +271,129 @@ public abstract class HXEntity {
 		yPos = yDist - height/2;
 	}
 	public void intersectApplyMTV(HXVector mtv) {
-		
-		mtvLine.a.x = collisionBody.getCenter().x;
-		mtvLine.a.y = collisionBody.getCenter().y;
-		mtvLine.b.x = collisionBody.getCenter().x + mtv.x;
-		mtvLine.b.y = collisionBody.getCenter().y + mtv.y;
+		intersectShowMTV(mtv.x, mtv.y);
 		
 		if (!interacting && !statis) {
-			this.xPos -= mtv.x;
-			this.yPos -= mtv.y;
-			
-			collisionBody.translateBy(-mtv.x, -mtv.y);
+			translateBy(-mtv.x, -mtv.y);
 		}
 	}
+	/**
+	 * Draws the given minimum translation vector from the collider's center for debugging.
+	 */
+	public void intersectShowMTV(double mtvX, double mtvY) {
+		if (collisionBody == null) {
+			return;
+		}
+		mtvLine.a.set(collisionBody.getCenter());
+		mtvLine.b.set(collisionBody.getCenter()).translateInPlace(mtvX, mtvY);
+	}
+	/**
+	 * Move the entity and its collider.
+	 * @param x - Distance in the x direction.
+	 * @param y - Distance in the y direction.
+	 */
+	public void translateBy(double x, double y) {
+		this.xPos += x;
+		this.yPos += y;
+		if (collisionBody != null) {
+			collisionBody.translateBy(x, y);
+		}
+	}
+	/**
+	 * Limit how far the next update moves this entity.
+	 * <p>
+	 * Called by the world when a continuous sweep finds an impact during this tick.
+	 * The step keeps the velocity held at the first limit, so the impact response
+	 * may change velocity afterwards. The smallest limit of the tick wins and the
+	 * limit resets after the update.
+	 * @param fraction - Portion (0 to 1) of the step to apply on the next update.
+	 */
+	public void limitStep(double fraction) {
+		if (!stepLimited) {
+			stepLimited = true;
+			stepFraction = 1;
+			xStepVel = xVel;
+			yStepVel = yVel;
+		}
+		stepFraction = Math.max(0, Math.min(stepFraction, fraction));
+	}
 	public HXVector[] getCorners() {
 		return collisionBody.getVertices();
 	}
 	
+	// ============================   MARK: Snapshot ============================ 
+	
+	/**
+	 * Write the simulation state shared by every entity type.
+	 * <p>
+	 * Used by HXSnapshot after the entity's type codec has written its constructor
+	 * arguments. Transient UI state (interacting, intersecting) is not saved.
+	 * @param out - Buffer to write to.
+	 */
+	public void writeState(ByteBuffer out) {
+		out.putDouble(xPos);
+		out.putDouble(yPos);
+		out.putDouble(xPos_prev);
+		out.putDouble(yPos_prev);
+		out.putDouble(rotation);
+		out.putDouble(xVel);
+		out.putDouble(yVel);
+		out.putDouble(rVel);
+		out.putDouble(mass);
+		out.putDouble(getLifespan());
+		out.putDouble(restitution);
+		out.put((byte) ((statis ? 1 : 0) | (continuous ? 2 : 0) | (sleeping ? 4 : 0) | (collisionBody != null ? 8 : 0)));
+		out.putInt(sleepTime);
+		if (collisionBody != null) {
+			out.putDouble(collisionBody.getCenter().x);
+			out.putDouble(collisionBody.getCenter().y);
+			out.putDouble(collisionBody.getAngle());
+		}
+	}
+	/**
+	 * Read the state written by writeState() over this freshly constructed entity.
+	 * @param in - Buffer to read from.
+	 */
+	public void readState(ByteBuffer in) {
+		xPos = in.getDouble();
+		yPos = in.getDouble();
+		xPos_prev = in.getDouble();
+		yPos_prev = in.getDouble();
+		rotation = in.getDouble();
+		xVel = in.getDouble();
+		yVel = in.getDouble();
+		rVel = in.getDouble();
+		mass = in.getDouble();
+		setLifespan(in.getDouble());
+		restitution = in.getDouble();
+		byte flags = in.get();
+		statis = (flags & 1) != 0;
+		continuous = (flags & 2) != 0;
+		sleeping = (flags & 4) != 0;
+		sleepTime = in.getInt();
+		if ((flags & 8) != 0) {
+			double cx = in.getDouble();
+			double cy = in.getDouble();
+			double angle = in.getDouble();
+			if (collisionBody != null) {
+				collisionBody.setTransform(cx, cy, angle);
+				mtvLine.a.set(collisionBody.getCenter());
+				mtvLine.b.set(collisionBody.getCenter());
+			}
+		}
+	}
+	
 	// ============================   MARK: Getters and Setters ============================ 
 	public boolean isInteracting() {
 		return interacting;
 	}
 	public void interactNotify() {
 		interacting = true;
+		wake();
 	}
 	public void interactStop() {
 		interacting = false;
+		wake();
 	}
 	public boolean isIntersecting() {
 		return intersecting;
@@ -249,6 +418,90 @@ public abstract class HXEntity {
 	public void setStatic(boolean statis) {
 		this.statis = statis;
 	}
+	/**
+	 * Put the entity to sleep. Called by the contact solver once the entity's
+	 * whole island has been at rest long enough.
+	 */
+	public void sleep() {
+		sleeping = true;
+		xVel = 0;
+		yVel = 0;
+		rVel = 0;
+	}
+	public void wake() {
+		sleeping = false;
+		sleepTime = 0;
+	}
+	public void setSleepTime(int sleepTime) {
+		this.sleepTime = sleepTime;
+	}
+	public void setIslandIndex(int islandIndex) {
+		this.islandIndex = islandIndex;
+	}
+	/**
+	 * Set by the world's HXLevelOfDetail when it reassigns tiers.
+	 * @param lodTier - NEAR, MID or FAR.
+	 */
+	public void setLevelOfDetail(int lodTier) {
+		this.lodTier = lodTier;
+	}
+	/**
+	 * Set by the world's HXLevelOfDetail at the start of every tick.
+	 * @param stepping - False if the entity isn't updated this tick, so colliding
+	 * bodies treat it as immovable.
+	 */
+	public void setStepping(boolean stepping) {
+		this.stepping = stepping;
+	}
+	/**
+	 * @param stepScale - Ticks of velocity the next update moves the entity by.
+	 */
+	public void setStepScale(int stepScale) {
+		this.stepScale = stepScale;
+	}
+	/**
+	 * @param lastStepTick - World tick of the entity's last update under a level
+	 * of detail, or Long.MIN_VALUE for none.
+	 */
+	public void setLastStepTick(long lastStepTick) {
+		this.lastStepTick = lastStepTick;
+	}
+	public void setVelocity(double xVel, double yVel) {
+		this.xVel = xVel;
+		this.yVel = yVel;
+	}
+	/**
+	 * Move the entity and its collider to a state received from a replication
+	 * server. The current position becomes the previous one so drawing
+	 * interpolates toward the new state.
+	 */
+	public void setReplicatedState(double xPos, double yPos, double rotation, double xVel, double yVel, double rVel, double lifespan) {
+		if (collisionBody != null) {
+			collisionBody.setTransform(
+					collisionBody.getCenter().x + xPos - this.xPos,
+					collisionBody.getCenter().y + yPos - this.yPos,
+					collisionBody.getAngle() + rotation - this.rotation);
+		}
+		this.xPos_prev = this.xPos;
+		this.yPos_prev = this.yPos;
+		this.xPos = xPos;
+		this.yPos = yPos;
+		this.rotation = rotation;
+		this.xVel = xVel;
+		this.yVel = yVel;
+		this.rVel = rVel;
+		// Replicated worlds aren't ticked, the server removes the entity. Only kept for getLifespan()
+		this.deathTick = lifespan == -1 ? -1 : parentWorld.getTick() + lifespanUpdates(lifespan) - 1;
+	}
+	/**
+	 * Flags this entity for continuous collision detection.
+	 * <p>
+	 * Continuous entities sweep their motion against nearby colliders every tick
+	 * and stop at the first impact rather than passing through thin geometry.
+	 */
+	public void setContinuous(boolean continuous) {
+		this.continuous = continuous;
+	}
 	
 	
 	public double getRotation() {
@@ -257,6 +510,36 @@ public abstract class HXEntity {
 	public boolean isStaticObject() {
 		return statis;
 	}
+	public boolean isContinuous() {
+		return continuous;
+	}
+	public boolean isSleeping() {
+		return sleeping;
+	}
+	public int getSleepTime() {
+		return sleepTime;
+	}
+	public int getLodTier() {
+		return lodTier;
+	}
+	public int getStepScale() {
+		return stepScale;
+	}
+	public boolean isStepping() {
+		return stepping;
+	}
+	public long getLastStepTick() {
+		return lastStepTick;
+	}
+	public boolean isRemoved() {
+		return removed;
+	}
+	public long getSerial() {
+		return serial;
+	}
+	public int getIslandIndex() {
+		return islandIndex;
+	}
 	public double getSphereRadius() {
 		return sphere_radius;
 	}
@@ -281,15 +564,88 @@ public abstract class HXEntity {
 	public Double getMass() {
 		return mass;
 	}
+	/**
+	 * Inverse mass used by the contact solver. Static entities, entities being
+	 * dragged, entities not updated this tick and massless entities are immovable
+	 * and return 0.
+	 */
+	public double getInverseMass() {
+		if (statis || interacting || !stepping || mass <= 0) {
+			return 0;
+		}
+		return 1 / mass;
+	}
+	/**
+	 * Inverse moment of inertia used by the contact solver. Zero for anything
+	 * getInverseMass() treats as immovable, or without a collider.
+	 */
+	public double getInverseInertia() {
+		if (getInverseMass() == 0 || collisionBody == null || collisionBody.getUnitInertia() <= 0) {
+			return 0;
+		}
+		return 1 / (mass * collisionBody.getUnitInertia());
+	}
+	public double getFriction() {
+		return FRICTION;
+	}
+	public double getRestitution() {
+		return restitution;
+	}
+	public void setRestitution(double restitution) {
+		this.restitution = restitution;
+	}
 	public HXWorld getWorld() {
 		return parentWorld;
 	}
+	/**
+	 * @return Lifespan left, which decays by LIFESPAN_DECAY each tick, or -1 for an entity that will not decay.
+	 */
 	public Double getLifespan() {
-		return lifespan;
+		if (deathTick == -1) {
+			return -1.0;
+		}
+		return Math.max(0, deathTick - parentWorld.getTick() + 1) * LIFESPAN_DECAY;
+	}
+	/**
+	 * Set how long the entity lives before it is removed.
+	 * <p>
+	 * The lifespan is turned into the tick of the entity's last update, once, and
+	 * handed to the world's expiry wheel; nothing is spent per tick.
+	 * @param lifespan - Lifespan left, or -1 to never decay.
+	 */
+	public void setLifespan(double lifespan) {
+		if (lifespan == -1) {
+			setDeathTick(-1);
+			return;
+		}
+		setDeathTick(parentWorld.getTick() + lifespanUpdates(lifespan) - 1);
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Updates left including the next one. Slack keeps whole multiples of the decay exact.
+	 */
+	private static long lifespanUpdates(double lifespan) {
+		return Math.max(1, (long) Math.ceil(lifespan / LIFESPAN_DECAY - 1e-9));
+	}
+	public long getDeathTick() {
+		return deathTick;
+	}
+	/**
+	 * @param deathTick - World tick of the entity's last update, or -1 to never decay.
+	 */
+	public void setDeathTick(long deathTick) {
+		this.deathTick = deathTick;
+		if (deathTick != -1) {
+			parentWorld.expiryAdd(this, deathTick);
+		}
 	}
 	public double getxVel() {
 		return xVel;
 	}
+	public double getRotationalVelocity() {
+		return rVel;
+	}
 	public double getyVel() {
 		return yVel;
 	}
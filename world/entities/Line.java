@@ -74,4 +74,20 @@ public class Line extends HXEntity {
 		yPosB = (int) yB;
 	}
 	
+	public int getxPosA() {
+		return xPosA;
+	}
+	public int getyPosA() {
+		return yPosA;
+	}
+	public int getxPosB() {
+		return xPosB;
+	}
+	public int getyPosB() {
+		return yPosB;
+	}
+	public Color getColor() {
+		return c;
+	}
+	
 }
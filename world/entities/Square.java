@@ -2,6 +2,7 @@ package world.entities;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import readers.HXInputSnapshot;
 import readers.HXKey;
 import world.HXWorld;
 import world.helper.properties.HXInteractable;
@@ -9,6 +10,8 @@ import world.helper.properties.HXInteractable;
 public class Square extends HXEntity implements HXInteractable {
 
 	private final int DEFAULT_WIDTH = 60, DEFAULT_HEIGHT = DEFAULT_WIDTH;
+	// Rotation keys, resolved once
+	private static final int KEY_Q = HXKey.indexOf("q"), KEY_W = HXKey.indexOf("w");
 
 	/**
 	 * Template for creating a new entiity. Should always override drawing, to have
@@ -24,6 +27,19 @@ public class Square extends HXEntity implements HXInteractable {
 		init(null, xPos, yPos, DEFAULT_WIDTH, DEFAULT_HEIGHT, xVel, yVel, 1, -1, w.getScale(), true, w);
 	}
 	
+	/**
+	 * Same as the constructor, but reuses a removed Square held by the world's
+	 * HXEntityPool when there is one.
+	 */
+	public static Square obtain(int xPos, int yPos, double xVel, double yVel, HXWorld w) {
+		Square square = w.getEntityPool().obtain(Square.class);
+		if (square == null) {
+			return new Square(xPos, yPos, xVel, yVel, w);
+		}
+		square.init(null, xPos, yPos, square.DEFAULT_WIDTH, square.DEFAULT_HEIGHT, xVel, yVel, 1, -1, w.getScale(), true, w);
+		return square;
+	}
+	
 	/**
 	 * Unless it has no visuals, it should override draw() but still call super.draw()
 	 */
@@ -60,9 +76,10 @@ public class Square extends HXEntity implements HXInteractable {
 		// Rotation with Q & W keys
 		if (this instanceof HXInteractable) {
 			if (((HXInteractable) this).isInteracting()) {
-				if (HXKey.isPressed("q")) {
+				HXInputSnapshot input = getWorld().getInput();
+				if (input.isDown(KEY_Q)) {
 					this.setRotationalVelocity(4 / 180.0 * Math.PI);			
-				} else if (HXKey.isPressed("w")){
+				} else if (input.isDown(KEY_W)) {
 					this.setRotationalVelocity(- 4 / 180.0 * Math.PI);
 				} else {
 					this.setRotationalVelocity(0);
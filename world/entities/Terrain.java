@@ -0,0 +1,68 @@
+package world.entities;
+
+import java.awt.Color;
+import java.awt.Graphics;
+
+import world.HXWorld;
+import world.helper.math.HXVector;
+import world.helper.properties.HXCompoundCollider;
+
+public class Terrain extends HXEntity {
+
+	private HXCompoundCollider compoundBody;
+
+	/**
+	 * Static level geometry of any simple outline, concave included.
+	 * <p>
+	 * The outline is split into convex parts by an HXCompoundCollider and each part
+	 * is registered with the world as a regular collider.
+	 * @param outline - World space outline in order, either winding.
+	 * @param w - HXWorld this terrain will belong to.
+	 */
+	public Terrain(HXVector[] outline, HXWorld w) {
+		double minX = outline[0].x;
+		double minY = outline[0].y;
+		double maxX = minX;
+		double maxY = minY;
+		for (int v = 1; v < outline.length; v++) {
+			minX = Math.min(minX, outline[v].x);
+			minY = Math.min(minY, outline[v].y);
+			maxX = Math.max(maxX, outline[v].x);
+			maxY = Math.max(maxY, outline[v].y);
+		}
+		init(null, minX, minY, maxX - minX, maxY - minY, 0, 0, 1, -1, w.getScale(), false, w);
+
+		this.setStatic(true);
+
+		compoundBody = new HXCompoundCollider(outline, this);
+		w.compoundAdd(compoundBody);
+	}
+
+	/**
+	 * Unless it has no visuals, it should override draw() but still call super.draw()
+	 */
+	@Override
+	public void draw(Graphics g, float interpolation) {
+		super.draw(g, interpolation);
+
+		g.setColor(Color.black);
+		HXVector[] outline = compoundBody.getOutline();
+		for (int v = 0; v < outline.length; v++) {
+			HXVector next = outline[(v+1)%outline.length];
+			g.drawLine((int) outline[v].x, (int) outline[v].y, (int) next.x, (int) next.y);
+		}
+	}
+
+	@Override
+	public void remove() {
+		if (!isRemoved()) {
+			getWorld().compoundRemove(compoundBody);
+		}
+		super.remove();
+	}
+
+	public HXCompoundCollider getCompoundCollider() {
+		return compoundBody;
+	}
+
+}
@@ -3,11 +3,15 @@ package world.entities;
 import java.awt.Color;
 import java.awt.Graphics;
 
+import readers.HXInputSnapshot;
 import readers.HXKey;
 import world.HXWorld;
 import world.helper.properties.HXInteractable;
 
 public class Wall extends HXEntity implements HXInteractable {
+	
+	// Rotation keys, resolved once
+	private static final int KEY_Q = HXKey.indexOf("q"), KEY_W = HXKey.indexOf("w");
 
 	/**
 	 * Template for creating a new entiity. Should always override drawing, to have
@@ -19,7 +23,7 @@ public class Wall extends HXEntity implements HXInteractable {
 	 * @param yVel
 	 * @param w
 	 */
-	public Wall(int xPos, int yPos, int width, int height, HXWorld w) {
+	public Wall(double xPos, double yPos, double width, double height, HXWorld w) {
 		init(null, xPos, yPos, width, height, 0, 0, 1, -1, w.getScale(), true, w);
 		
 		this.setStatic(true);
@@ -61,9 +65,10 @@ public class Wall extends HXEntity implements HXInteractable {
 		// Rotation with Q & W keys
 		if (this instanceof HXInteractable) {
 			if (((HXInteractable) this).isInteracting()) {
-				if (HXKey.isPressed("q")) {
+				HXInputSnapshot input = getWorld().getInput();
+				if (input.isDown(KEY_Q)) {
 					this.setRotationalVelocity(4 / 180.0 * Math.PI);			
-				} else if (HXKey.isPressed("w")){
+				} else if (input.isDown(KEY_W)) {
 					this.setRotationalVelocity(- 4 / 180.0 * Math.PI);
 				} else {
 					this.setRotationalVelocity(0);
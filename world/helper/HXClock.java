@@ -5,6 +5,7 @@ import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
 import readers.HXKey;
 import world.user_interface.HXWorldPanel;
@@ -12,17 +13,33 @@ import world.user_interface.HXWorldPanel;
 public class HXClock {
 	
 	public static final double CLOCK_HERTZ = 30;
+	public static final double RENDER_HERTZ = 30;
 	
 	public static ArrayList<Long> timings = new ArrayList<Long>();
 	public static int numberOfSecondsRun = 0;
 	
 	private HXWorldPanel parentPanel;
 	
-	private final float NANO_SECONDS = 1000000000;
-	private Boolean appRunning = true;
-	private Boolean appPaused = false;
+	private static final long NANO_SECONDS = 1000000000L;
+	private static final int KEY_BENCHMARK = HXKey.indexOf("b");
+	// Terminal number of updates allowed before repaint, time owed past this is dropped
+	private static final int MAX_UPDATES_BEFORE_RENDER = 5;
+	// Park until this close to a deadline, then spin the rest. Covers the usual oversleep of parkNanos
+	private static final long SPIN_NANOS = 250000;
+	
+	private final long updatePeriod;
+	private final long renderPeriod;
+	private final double updateDelta;
+	private volatile Boolean appRunning = true;
+	private volatile Boolean appPaused = false;
 	private Object pauseLock = new Object();
 	
+	/* === Pacing stats === */
+	// Updates run beyond the first in one pass, to catch up with a late loop
+	private volatile long catchUpTicks = 0;
+	// Updates skipped because more than MAX_UPDATES_BEFORE_RENDER were owed
+	private volatile long droppedTicks = 0;
+	
 	/**
 	 * Loops the draw and update principle methods of a 2D scene. 
 	 * <p>
@@ -30,91 +47,117 @@ public class HXClock {
 	 * @param parent - HXClock requires access to the panel it is being used on in order to reference update and rendering methods within its parent.
 	 */
 	public HXClock(HXWorldPanel parent) {
+		this(parent, CLOCK_HERTZ, RENDER_HERTZ);
+	}
+	/**
+	 * @param updateHertz - Fixed rate of world updates per second.
+	 * @param renderHertz - Most repaints per second.
+	 */
+	public HXClock(HXWorldPanel parent, double updateHertz, double renderHertz) {
+		if (!(updateHertz > 0) || !(renderHertz > 0)) {
+			throw new IllegalArgumentException("Clock rates must be positive");
+		}
 		this.parentPanel = parent;
+		this.updatePeriod = Math.max(1, Math.round(NANO_SECONDS / updateHertz));
+		this.renderPeriod = Math.max(1, Math.round(NANO_SECONDS / renderHertz));
+		// World updates keep receiving the period in nanoseconds
+		this.updateDelta = NANO_SECONDS / updateHertz;
 		initialize();
 	}
 
 	/* === FIXED TIMESTEP LOOP === */
 	private void initialize() {
-		new Thread() {
+		new Thread("HXClock") {
 			public void run() {
-				// Time between repaints
-				// Convert to nanoseconds for update cycle value
-				final double TIME_BETWEEN_UPDATES = NANO_SECONDS / CLOCK_HERTZ;
-				// Terminal number of updates allowed before repaint
-				final int MAX_UPDATES_BEFORE_RENDER = 5; // Adjust if there are any visual hiccups
-				
-				double lastUpdateTime = System.nanoTime();
-				double lastRenderTime = System.nanoTime();
-
-				// Limits frame rate to the target constant, saves CPU
-				final double TARGET_FPS = 30; //60
-				// Convert to nanseconds
-				final double TARGET_TIME_BETWEEN_RENDERS = NANO_SECONDS / TARGET_FPS;
-
-				// Only used to track frame rate and display when a real time second has passed
-				int lastSecondTime = (int) (lastUpdateTime / NANO_SECONDS);
+				long now = System.nanoTime();
+				// Deadlines of the next update and render. Compared by difference, so nanoTime may wrap
+				long nextUpdate = now + updatePeriod;
+				long nextRender = now;
+				// Only used to track when a real time second has passed
+				long nextSecond = now + NANO_SECONDS;
 
 				while (appRunning) {
-					double now = System.nanoTime();
-					int updateCount = 0;
-
-					if (!appPaused) {
-						// Attempts to do as many updates as are allowed before a render
-						while (now - lastUpdateTime > TIME_BETWEEN_UPDATES && updateCount < MAX_UPDATES_BEFORE_RENDER) {
-							updateWorld(TIME_BETWEEN_UPDATES);
-							lastUpdateTime += TIME_BETWEEN_UPDATES;
-							updateCount++;
-						}
-						// The follow prevents a really slow update from forcing too many catchups
-						// This does not keep exact time
-						if (now - lastUpdateTime > TIME_BETWEEN_UPDATES) {
-							lastUpdateTime = now - TIME_BETWEEN_UPDATES;
-						}
-						// Render. To do so, we need to calculate interpolation for a smooth render.
-						float interpolation = Math.min(1.0f, (float) ((now - lastUpdateTime) / TIME_BETWEEN_UPDATES));
-						drawWorld(interpolation);
-						lastRenderTime = now;
-						// FPS and timing code
-						int thisSecond = (int) (lastUpdateTime / NANO_SECONDS);
-						if (thisSecond > lastSecondTime) {
-//							System.out.println("Second has passed " + thisSecond + ": updates -> " + updateCount);
-							numberOfSecondsRun++;
-//							fps = frameCount;
-//							frameCount = 0;
-							lastSecondTime = thisSecond;
-						}
-						// Yield until it has been at least the target time between renders. Saves CPU
-			            while ( now - lastRenderTime < TARGET_TIME_BETWEEN_RENDERS && now - lastUpdateTime < TIME_BETWEEN_UPDATES)
-			            {
-			               Thread.yield();
-			               // Reduces time accuracy but saves CPU. May cause stuttering. Check on different OS's
-			               try {Thread.sleep(1);} catch(Exception e) {} 
-			               now = System.nanoTime();
-			            }
-			            
-			            if (HXKey.isPressed("b")) {
-			    			printBenchmarks();
-			    		}
-			            if (HXKey.isPressed("t")) {
-			            	
-			            	HXKey.setReleased("t");
-			            }
-			            
-					} else {
+					if (appPaused) {
 						// Allows clock to start back up after a pause
 						synchronized (pauseLock) {
-							try {
-								pauseLock.wait();
-							} catch (InterruptedException e) {
-								e.printStackTrace();
+							while (appPaused && appRunning) {
+								try {
+									pauseLock.wait();
+								} catch (InterruptedException e) {
+									e.printStackTrace();
+								}
 							}
 						}
+						// Time spent paused is not owed
+						now = System.nanoTime();
+						nextUpdate = now + updatePeriod;
+						nextRender = now;
+						continue;
+					}
+					
+					now = System.nanoTime();
+					// Attempts to do as many updates as are owed, up to the limit before a render
+					int updateCount = 0;
+					while (now - nextUpdate >= 0 && updateCount < MAX_UPDATES_BEFORE_RENDER) {
+						updateWorld(updateDelta);
+						nextUpdate += updatePeriod;
+						updateCount++;
+					}
+					if (updateCount > 1) {
+						catchUpTicks += updateCount - 1;
+					}
+					// The updates took time, which counts toward drops and the interpolation
+					if (updateCount > 0) {
+						now = System.nanoTime();
 					}
+					// A really slow update can't force too many catchups, the rest is dropped and counted.
+					// Below the limit anything still owed runs on the next pass
+					if (updateCount == MAX_UPDATES_BEFORE_RENDER && now - nextUpdate >= 0) {
+						long behind = (now - nextUpdate) / updatePeriod + 1;
+						droppedTicks += behind;
+						nextUpdate += behind * updatePeriod;
+					}
+					
+					// Render. To do so, we need to calculate interpolation for a smooth render.
+					if (now - nextRender >= 0) {
+						long sinceUpdate = now - (nextUpdate - updatePeriod);
+						float interpolation = Math.min(1.0f, (float) sinceUpdate / updatePeriod);
+						drawWorld(interpolation);
+						nextRender += renderPeriod;
+						if (now - nextRender >= 0) {
+							// Renders are never caught up, skip to the next slot
+							nextRender = now + renderPeriod;
+						}
+					}
+					// Timing code
+					if (now - nextSecond >= 0) {
+						numberOfSecondsRun++;
+						nextSecond += NANO_SECONDS;
+					}
+					
+					sleepUntil(nextUpdate - nextRender < 0 ? nextUpdate : nextRender);
 				}
 			}
 		}.start();
 	}
+	
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Parks until shortly before the deadline then spins the rest, which keeps
+	 * ticks close to their deadline without burning a core while idle.
+	 * @param deadline - System.nanoTime() to return at.
+	 */
+	private static void sleepUntil(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+			LockSupport.parkNanos(remaining - SPIN_NANOS);
+		}
+		while (deadline - System.nanoTime() > 0) {
+			Thread.onSpinWait();
+		}
+	}
+	
 	public void setPaused(Boolean paused) {
 		this.appPaused = paused;
 		synchronized (pauseLock) {
@@ -124,6 +167,18 @@ public class HXClock {
 	public Boolean getPaused() {
 		return appPaused;
 	}
+	/**
+	 * @return Updates run beyond the first in one pass of the loop, to catch up after it was late.
+	 */
+	public long getCatchUpTicks() {
+		return catchUpTicks;
+	}
+	/**
+	 * @return Updates skipped because more than MAX_UPDATES_BEFORE_RENDER were owed at once.
+	 */
+	public long getDroppedTicks() {
+		return droppedTicks;
+	}
 	
 	public void printBenchmarks() {
 		// The following is only used for benchmarking
@@ -133,7 +188,7 @@ public class HXClock {
 		average = average.divide(BigDecimal.valueOf(NANO_SECONDS));
 		timings = new ArrayList<Long>();
 		System.out.println("Average update timing: \t" + average + " \tns after " + numberOfSecondsRun + " seconds.");
-		HXKey.setReleased("b");
+		System.out.println("Catch-up updates: " + catchUpTicks + ", dropped updates: " + droppedTicks);
 		numberOfSecondsRun = 0;
 	}
 	
@@ -145,6 +200,10 @@ public class HXClock {
 		
 		long estimatedTime = System.nanoTime() - startTime;
 		timings.add(estimatedTime);
+		
+		if (parentPanel.getWorld().getInput().wasPressed(KEY_BENCHMARK)) {
+			printBenchmarks();
+		}
 	}
 	public void drawWorld(float interpolation) {
 		parentPanel.repaintWorld(interpolation);
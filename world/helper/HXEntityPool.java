@@ -0,0 +1,159 @@
+package world.helper;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import world.entities.HXEntity;
+
+public class HXEntityPool {
+
+	private final HashMap<Class<? extends HXEntity>, TypePool> types = new HashMap<Class<? extends HXEntity>, TypePool>();
+
+	/**
+	 * Idle removed entities of one type and its sizing stats.
+	 */
+	private static class TypePool {
+		final ArrayDeque<HXEntity> idle = new ArrayDeque<HXEntity>();
+		int capacity;
+		int peakIdle = 0;
+		long reused = 0;
+		long missed = 0;
+		long released = 0;
+		long discarded = 0;
+	}
+
+	/**
+	 * Recycles removed entities of the types it is told to pool.
+	 * <p>
+	 * Owned by HXWorld. When a pooled entity is removed it is kept, with its
+	 * collider and vertex arrays, instead of left to the garbage collector. The
+	 * type's obtain factory (see Square.obtain()) takes one back and calls init()
+	 * on it, which reinitializes the entity and its collider in place. Types are
+	 * pooled only once given a capacity, so nothing is kept by default.
+	 * <p>
+	 * The stats tell whether a capacity fits: misses that keep growing in steady
+	 * play mean it is too small, a peak idle count far below it means it can shrink.
+	 */
+	public HXEntityPool() {
+	}
+
+	/**
+	 * @param type - The concrete entity class.
+	 * @param capacity - Most idle entities of the type to keep, 0 stops pooling it.
+	 */
+	public synchronized void setCapacity(Class<? extends HXEntity> type, int capacity) {
+		TypePool pool = pool(type);
+		pool.capacity = Math.max(0, capacity);
+		while (pool.idle.size() > pool.capacity) {
+			pool.idle.poll();
+			pool.discarded++;
+		}
+	}
+
+	/**
+	 * Take an idle entity to reinitialize.
+	 * @return A removed entity of exactly the given type, or null if none is idle
+	 * and a new one should be constructed.
+	 */
+	public synchronized <T extends HXEntity> T obtain(Class<T> type) {
+		TypePool pool = pool(type);
+		HXEntity e = pool.idle.poll();
+		if (e == null) {
+			pool.missed++;
+			return null;
+		}
+		pool.reused++;
+		return type.cast(e);
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Called by HXEntity.remove() once the entity has left the world.
+	 * @return True if the entity was kept.
+	 */
+	public synchronized boolean release(HXEntity e) {
+		TypePool pool = types.get(e.getClass());
+		if (pool == null || pool.capacity == 0) {
+			return false;
+		}
+		pool.released++;
+		if (pool.idle.size() >= pool.capacity) {
+			pool.discarded++;
+			return false;
+		}
+		pool.idle.push(e);
+		pool.peakIdle = Math.max(pool.peakIdle, pool.idle.size());
+		return true;
+	}
+
+	/**
+	 * Drop every idle entity, keeping capacities and stats.
+	 */
+	public synchronized void clear() {
+		for (TypePool pool : types.values()) {
+			pool.idle.clear();
+		}
+	}
+
+	private TypePool pool(Class<? extends HXEntity> type) {
+		TypePool pool = types.get(type);
+		if (pool == null) {
+			pool = new TypePool();
+			types.put(type, pool);
+		}
+		return pool;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public synchronized int getCapacity(Class<? extends HXEntity> type) {
+		return pool(type).capacity;
+	}
+	public synchronized int getIdleCount(Class<? extends HXEntity> type) {
+		return pool(type).idle.size();
+	}
+	/**
+	 * @return Most entities of the type ever idle at once.
+	 */
+	public synchronized int getPeakIdleCount(Class<? extends HXEntity> type) {
+		return pool(type).peakIdle;
+	}
+	/**
+	 * @return Obtains served by a recycled entity.
+	 */
+	public synchronized long getReuseCount(Class<? extends HXEntity> type) {
+		return pool(type).reused;
+	}
+	/**
+	 * @return Obtains that found the pool empty and constructed a new entity.
+	 */
+	public synchronized long getMissCount(Class<? extends HXEntity> type) {
+		return pool(type).missed;
+	}
+	public synchronized long getReleaseCount(Class<? extends HXEntity> type) {
+		return pool(type).released;
+	}
+	/**
+	 * @return Removed entities not kept because the pool was full.
+	 */
+	public synchronized long getDiscardCount(Class<? extends HXEntity> type) {
+		return pool(type).discarded;
+	}
+	@Override
+	public synchronized String toString() {
+		StringBuilder out = new StringBuilder();
+		for (Map.Entry<Class<? extends HXEntity>, TypePool> entry : types.entrySet()) {
+			TypePool pool = entry.getValue();
+			out.append(entry.getKey().getSimpleName())
+				.append(": idle ").append(pool.idle.size()).append('/').append(pool.capacity)
+				.append(", peak ").append(pool.peakIdle)
+				.append(", reused ").append(pool.reused)
+				.append(", missed ").append(pool.missed)
+				.append(", discarded ").append(pool.discarded).append('\n');
+		}
+		return out.toString();
+	}
+
+}
@@ -0,0 +1,253 @@
+package world.helper;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.helper.properties.HXCollider;
+
+public class HXLevelOfDetail {
+
+	/* === Tiers === */
+	public static final int NEAR = 0;
+	public static final int MID = 1;
+	public static final int FAR = 2;
+
+	private final double nearRadius;
+	private final double farRadius;
+	private final double margin;
+	private final int midInterval;
+	// Ticks between tier assignments
+	private int assignInterval = 8;
+
+	// Focus points by id, x and y. Set from any thread
+	private final ConcurrentHashMap<Integer, double[]> observers = new ConcurrentHashMap<Integer, double[]>();
+
+	/* === Scratch, ticking thread only === */
+	private HXCollider[] hits = new HXCollider[0];
+	// Best tier of each entity found near an observer this assignment
+	private final IdentityHashMap<HXEntity, Integer> assigned = new IdentityHashMap<HXEntity, Integer>();
+	private int ticksUntilAssign = 0;
+
+	/* === Stats, as of the last assignment === */
+	private int nearCount = 0;
+	private int midCount = 0;
+	private int farCount = 0;
+
+	/**
+	 * Simulation level of detail by distance to the nearest observer.
+	 * <p>
+	 * NEAR entities, within nearRadius of an observer such as the HXCamera focus,
+	 * update every tick. MID entities, within farRadius, update together on one
+	 * tick in midInterval and move by the ticks of velocity since their last
+	 * update when they do, so an entity changing tier keeps its pace. They share
+	 * the tick so MID bodies still collide with each other. FAR entities are
+	 * frozen, and the time they spend frozen isn't made up later. Entities not
+	 * updating on a tick are indexed apart as immovable obstacles, which only the
+	 * updating bodies look up, so nothing passes through them but they are never
+	 * tested against each other, solved or integrated. Broadphase, narrowphase,
+	 * solving and integration all follow what the observers are near rather than
+	 * the size of the world.
+	 * <p>
+	 * Tiers are reassigned every few ticks from circle queries over the world's
+	 * broadphase, so the cost follows the entities in range. An entity only moves
+	 * in once it is inside a radius, and only moves out once it is the margin past
+	 * it, so bodies on a boundary don't switch every assignment. Entities without a
+	 * collider of their own, like lines, borders and terrain, never go FAR. The
+	 * entity being interacted with, and every entity while there are no observers,
+	 * stay NEAR.
+	 * <p>
+	 * Tiers depend on where the observers are, which replays and replication
+	 * don't record, so a deterministic world should keep its observers in the
+	 * simulation. Attach with HXWorld.setLevelOfDetail().
+	 * @param nearRadius - Distance from an observer updated every tick. Should cover the screen.
+	 * @param farRadius - Distance from an observer updated every midInterval ticks.
+	 * @param margin - Distance past a radius an entity can go before it drops a tier.
+	 * @param midInterval - Ticks between updates of MID entities.
+	 */
+	public HXLevelOfDetail(double nearRadius, double farRadius, double margin, int midInterval) {
+		if (nearRadius < 0 || farRadius < nearRadius || margin < 0 || midInterval < 1) {
+			throw new IllegalArgumentException("Level of detail needs 0 <= nearRadius <= farRadius, margin >= 0 and midInterval >= 1");
+		}
+		this.nearRadius = nearRadius;
+		this.farRadius = farRadius;
+		this.margin = margin;
+		this.midInterval = midInterval;
+	}
+
+	/**
+	 * Simulate at full detail around a point, such as the HXCamera focus. Replaces
+	 * the point of the same id.
+	 */
+	public void setObserver(int id, double x, double y) {
+		observers.put(id, new double[] {x, y});
+	}
+	public void removeObserver(int id) {
+		observers.remove(id);
+	}
+
+	// Mark: TIERS
+	// ===========
+
+	/**
+	 * Reassign tiers when due. Called by HXWorld at the start of every tick, before
+	 * the broadphase is built.
+	 */
+	public void update(HXWorld world) {
+		if (--ticksUntilAssign > 0) {
+			return;
+		}
+		ticksUntilAssign = assignInterval;
+		assign(world);
+	}
+
+	/**
+	 * Mark whether the entity updates on the given tick and, if it does, give it
+	 * the ticks of motion since its last update. Called by HXWorld for every
+	 * entity at the start of every tick, after update().
+	 */
+	public void step(HXEntity e, long tick) {
+		if (!isDue(e, tick)) {
+			e.setStepping(false);
+			if (e.getLodTier() == FAR) {
+				// Frozen time isn't owed when the entity comes back
+				e.setLastStepTick(tick);
+			}
+			return;
+		}
+		long last = e.getLastStepTick();
+		// Never more than a MID interval, in case the tick count moved under it
+		long since = last == Long.MIN_VALUE ? 1 : Math.max(1, Math.min(midInterval, tick - last));
+		e.setStepping(true);
+		e.setStepScale((int) since);
+		e.setLastStepTick(tick);
+	}
+
+	/**
+	 * @return True if the entity updates on the given tick.
+	 */
+	public boolean isDue(HXEntity e, long tick) {
+		switch (e.getLodTier()) {
+		case NEAR:
+			return true;
+		case MID:
+			return Math.floorMod(tick, midInterval) == 0;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Put every entity back to NEAR, for a world dropping its level of detail or
+	 * being cleared.
+	 */
+	public void reset(HXWorld world) {
+		for (HXEntity e : world.getEntities()) {
+			e.setLevelOfDetail(NEAR);
+			e.setStepping(true);
+			e.setStepScale(1);
+			e.setLastStepTick(Long.MIN_VALUE);
+		}
+		ticksUntilAssign = 0;
+		nearCount = 0;
+		midCount = 0;
+		farCount = 0;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Finds the best tier of every entity near an observer with one broadphase
+	 * query each, then gives every other entity with a collider FAR.
+	 */
+	private void assign(HXWorld world) {
+		assigned.clear();
+		if (!observers.isEmpty() && hits.length < world.getRotatedColliders().size()) {
+			hits = new HXCollider[world.getRotatedColliders().size() * 2];
+		}
+		for (double[] o : observers.values()) {
+			int n = world.queryCircle(o[0], o[1], farRadius + margin, hits);
+			for (int h = 0; h < n; h++) {
+				HXCollider c = hits[h];
+				hits[h] = null;
+				HXEntity e = c.getParent();
+				if (e == null) {
+					continue;
+				}
+				int previous = e.getLodTier();
+				int tier;
+				if (c.overlapsCircle(o[0], o[1], previous == NEAR ? nearRadius + margin : nearRadius)) {
+					tier = NEAR;
+				} else if (previous != FAR || c.overlapsCircle(o[0], o[1], farRadius)) {
+					tier = MID;
+				} else {
+					continue;
+				}
+				Integer best = assigned.get(e);
+				if (best == null || tier < best) {
+					assigned.put(e, tier);
+				}
+			}
+		}
+		nearCount = 0;
+		midCount = 0;
+		farCount = 0;
+		for (HXEntity e : world.getEntities()) {
+			int tier;
+			Integer found = assigned.get(e);
+			if (observers.isEmpty() || e.isInteracting()) {
+				tier = NEAR;
+			} else if (found != null) {
+				tier = found;
+			} else {
+				// Out of range, unless nothing of its own could have been found
+				tier = e.getCollider() == null ? NEAR : FAR;
+			}
+			e.setLevelOfDetail(tier);
+			if (tier == NEAR) {
+				nearCount++;
+			} else if (tier == MID) {
+				midCount++;
+			} else {
+				farCount++;
+			}
+		}
+		assigned.clear();
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public double getNearRadius() {
+		return nearRadius;
+	}
+	public double getFarRadius() {
+		return farRadius;
+	}
+	public double getMargin() {
+		return margin;
+	}
+	public int getMidInterval() {
+		return midInterval;
+	}
+	public int getAssignInterval() {
+		return assignInterval;
+	}
+	/**
+	 * @param assignInterval - Ticks between tier assignments. Lower reacts faster
+	 * to moving observers, higher spends less on the queries.
+	 */
+	public void setAssignInterval(int assignInterval) {
+		this.assignInterval = Math.max(1, assignInterval);
+	}
+	public int getNearCount() {
+		return nearCount;
+	}
+	public int getMidCount() {
+		return midCount;
+	}
+	public int getFarCount() {
+		return farCount;
+	}
+
+}
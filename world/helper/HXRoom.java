@@ -0,0 +1,110 @@
+package world.helper;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import world.HXWorld;
+
+public class HXRoom {
+
+	private final HXWorld world;
+	private final long periodNanos;
+	private final double dT;
+	private final Consumer<HXWorld> afterTick;
+
+	/* === Scheduler thread only === */
+	// Time of the next tick owed to the world
+	long nextTickNanos;
+	// When the scheduler looks at the room again, its place in the queue
+	long wakeNanos;
+
+	// Set while a worker is ticking the world, so ticks of one room never overlap
+	final AtomicBoolean running = new AtomicBoolean(false);
+	volatile boolean removed = false;
+
+	/* === Stats === */
+	private volatile long ticks = 0;
+	private volatile long droppedTicks = 0;
+	private volatile long overruns = 0;
+	private volatile Throwable failure = null;
+
+	/**
+	 * A headless world stepped by an HXWorldHost at a fixed rate.
+	 * <p>
+	 * Created by HXWorldHost.add().
+	 */
+	HXRoom(HXWorld world, double hertz, Consumer<HXWorld> afterTick, long startNanos) {
+		this.world = world;
+		this.periodNanos = Math.max(1, Math.round(1000000000 / hertz));
+		// Same units HXClock ticks with
+		this.dT = 1000000000 / hertz;
+		this.afterTick = afterTick;
+		this.nextTickNanos = startNanos + periodNanos;
+		this.wakeNanos = nextTickNanos;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Runs on a worker: ticks the world the given number of times. A failure stops
+	 * the room rather than the worker.
+	 */
+	void run(int count) {
+		try {
+			for (int t = 0; t < count && !removed; t++) {
+				world.updateTick(dT);
+				if (afterTick != null) {
+					afterTick.accept(world);
+				}
+				ticks++;
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+			failure = e;
+			removed = true;
+		} finally {
+			running.set(false);
+		}
+	}
+
+	void addDropped(long count) {
+		droppedTicks += count;
+	}
+	void addOverrun() {
+		overruns++;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public HXWorld getWorld() {
+		return world;
+	}
+	public long getPeriodNanos() {
+		return periodNanos;
+	}
+	public long getTicks() {
+		return ticks;
+	}
+	/**
+	 * @return Ticks skipped because the room fell further behind than the host's catch-up limit.
+	 */
+	public long getDroppedTicks() {
+		return droppedTicks;
+	}
+	/**
+	 * @return Times the room came due while its previous ticks were still running.
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+	/**
+	 * @return What stopped the room, or null.
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+	public boolean isRemoved() {
+		return removed;
+	}
+
+}
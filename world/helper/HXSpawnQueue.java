@@ -0,0 +1,227 @@
+package world.helper;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import world.HXWorld;
+
+public class HXSpawnQueue {
+
+	// Spawners by due tick, then by when they were queued. Ticking thread only
+	private final PriorityQueue<HXSpawner> queue = new PriorityQueue<HXSpawner>((a, b) -> {
+		if (a.nextTick != b.nextTick) {
+			return Long.compare(a.nextTick, b.nextTick);
+		}
+		return Long.compare(a.order, b.order);
+	});
+	// Spawners started from any thread, moved into the queue at the next tick
+	private final ConcurrentLinkedQueue<HXSpawner> added = new ConcurrentLinkedQueue<HXSpawner>();
+	private long nextOrder = 0;
+	private long spawnCount = 0;
+	// Ids of the spawners made for the world, in creation order
+	private final AtomicLong nextId = new AtomicLong();
+	// Every spawner made for the world by id, running or not. Weak, so dropped spawners can go
+	private final ConcurrentHashMap<Long, Registration> registry = new ConcurrentHashMap<Long, Registration>();
+	private final ReferenceQueue<HXSpawner> collected = new ReferenceQueue<HXSpawner>();
+
+	private static final class Registration extends WeakReference<HXSpawner> {
+		private final long id;
+
+		Registration(long id, HXSpawner spawner, ReferenceQueue<HXSpawner> queue) {
+			super(spawner, queue);
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Runs the HXSpawners of one world from its tick.
+	 * <p>
+	 * Owned by HXWorld, which asks it at the start of every tick for the spawners
+	 * due and commits everything they create as one batch before the broadphase is
+	 * built, so spawns never land mid-tick and hundreds of spawners cost no threads.
+	 * Spawners due on the same tick run in the order they were started, so a
+	 * deterministic world spawns the same serials every run.
+	 * <p>
+	 * Due ticks are absolute, so they move with HXWorld.setTick(). HXSnapshot saves
+	 * how far off each running spawner is by its id, the order it was made for the
+	 * world, since the factories themselves can't be saved. Every spawner made for
+	 * the world is registered by id, held weakly, and restoring re-times the ones
+	 * the snapshot lists, so a rollback keeps its spawners, even those stopped
+	 * since, and a world rebuilt elsewhere, like a replay, gets them back by making
+	 * the same spawners in the same order first.
+	 */
+	public HXSpawnQueue() {
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Called by HXSpawner.start() from any thread.
+	 */
+	void add(HXSpawner spawner) {
+		added.add(spawner);
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Called by the HXSpawner constructor.
+	 * @return The spawner's id.
+	 */
+	long register(HXSpawner spawner) {
+		expunge();
+		long id = nextId.getAndIncrement();
+		registry.put(id, new Registration(id, spawner, collected));
+		return id;
+	}
+
+	/**
+	 * @return The spawner made for this world with the given id, running or not,
+	 * or null if there is none or it was garbage collected.
+	 */
+	public HXSpawner getSpawner(long id) {
+		expunge();
+		Registration registration = registry.get(id);
+		return registration == null ? null : registration.get();
+	}
+
+	private void expunge() {
+		Object reference;
+		while ((reference = collected.poll()) != null) {
+			Registration registration = (Registration) reference;
+			registry.remove(registration.id, registration);
+		}
+	}
+
+	/**
+	 * @param tick - The world tick about to run.
+	 * @return True if a spawner is due on it.
+	 */
+	public boolean hasDue(long tick) {
+		HXSpawner spawner;
+		drainAdded(tick);
+		while ((spawner = queue.peek()) != null && !spawner.isRunning()) {
+			queue.poll();
+			spawner.inQueue = false;
+		}
+		return spawner != null && spawner.nextTick <= tick;
+	}
+
+	/**
+	 * Run every spawner due on the tick and queue it again a period later.
+	 * Stopped spawners leave the queue. Called by HXWorld inside a spawn batch.
+	 * @return Number of entities created.
+	 */
+	public int spawnDue(HXWorld world, long tick) {
+		int spawned = 0;
+		HXSpawner spawner;
+		while ((spawner = queue.peek()) != null && spawner.nextTick <= tick) {
+			queue.poll();
+			if (!spawner.isRunning()) {
+				spawner.inQueue = false;
+				continue;
+			}
+			try {
+				if (spawner.spawn() != null) {
+					spawned++;
+				}
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+			spawner.nextTick = tick + spawner.getPeriodTicks();
+			spawner.order = nextOrder++;
+			queue.add(spawner);
+		}
+		spawnCount += spawned;
+		return spawned;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Queues the spawners started since the last tick, due their delay after the
+	 * given tick. A spawner restarted while still queued on its old schedule is
+	 * moved to the new one.
+	 */
+	private void drainAdded(long tick) {
+		HXSpawner spawner;
+		while ((spawner = added.poll()) != null) {
+			if (!spawner.isRunning()) {
+				// Stopped again before this tick, any old entry leaves when it comes up
+				continue;
+			}
+			if (spawner.inQueue) {
+				queue.remove(spawner);
+			}
+			spawner.inQueue = true;
+			spawner.nextTick = tick + spawner.startDelay;
+			spawner.order = nextOrder++;
+			queue.add(spawner);
+		}
+	}
+
+	/**
+	 * Move every due tick by the same amount, for HXWorld.setTick(). A uniform
+	 * shift keeps the queue's order, so it is updated in place.
+	 */
+	public void shift(long ticks) {
+		for (HXSpawner spawner : queue) {
+			spawner.nextTick += ticks;
+		}
+	}
+
+	/**
+	 * Stop and drop every spawner, for HXWorld.clear(). They can be started again.
+	 */
+	public void clear() {
+		ArrayList<HXSpawner> dropped = new ArrayList<HXSpawner>(queue);
+		queue.clear();
+		HXSpawner spawner;
+		while ((spawner = added.poll()) != null) {
+			dropped.add(spawner);
+		}
+		for (HXSpawner s : dropped) {
+			s.stop();
+			s.inQueue = false;
+		}
+	}
+
+	/**
+	 * The running spawners in the order they will next spawn, with the ticks until
+	 * each is due. Spawners started since the last tick are queued first, as the
+	 * tick about to run would.
+	 * @param tick - The world tick about to run.
+	 * @param dueIn - Receives the ticks until each returned spawner is due, in the same order.
+	 */
+	public ArrayList<HXSpawner> getSchedule(long tick, ArrayList<Long> dueIn) {
+		drainAdded(tick);
+		ArrayList<HXSpawner> running = new ArrayList<HXSpawner>();
+		for (HXSpawner spawner : queue) {
+			if (spawner.isRunning()) {
+				running.add(spawner);
+			}
+		}
+		running.sort(queue.comparator());
+		for (HXSpawner spawner : running) {
+			dueIn.add(spawner.nextTick - tick);
+		}
+		return running;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	/**
+	 * @return Spawners queued as of the last tick.
+	 */
+	public int size() {
+		return queue.size();
+	}
+	public long getSpawnCount() {
+		return spawnCount;
+	}
+
+}
@@ -1,89 +1,120 @@
 package world.helper;
 
-import java.lang.reflect.InvocationTargetException;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.function.Function;
+
+import world.HXWorld;
+import world.entities.HXEntity;
 
 public class HXSpawner {
-	
-	private Timer spawnTimer = new Timer();
-	private Boolean timerRunning = true;
-	private double rate;
-	private Class<?>[] parameterTypes;
-	private Object[] parameterValues;
-	private Class<?> entityClass;
-	
+
+	private final HXWorld world;
+	private final Function<HXWorld, ? extends HXEntity> factory;
+	private final long periodTicks;
+	// Order of creation among the world's spawners, how snapshots find it again
+	private final long id;
+	private volatile boolean running = false;
+
+	/* === HXSpawnQueue only === */
+	// Ticks after being queued until the first spawn
+	volatile long startDelay;
+	long nextTick;
+	long order;
+	// Set while the spawner has an entry in the queue, ticking thread only
+	boolean inQueue = false;
+
 	/**
-	 * Sets up a timed reoccuring spawn of the given entity. 
+	 * Sets up a timed reoccuring spawn of the given entity.
+	 * <p>
+	 * Spawns are run by the world's HXSpawnQueue at the start of a tick, so they
+	 * keep to the simulation's time, pause with it and are added in one batch with
+	 * every other spawn of that tick. The first spawn happens on the next tick.
 	 * <p>
 	 * <b>Example:</b><br>
-	 * &nbsp&nbsp new HXSpawner( HXEntityTemplate.class, <br>
-	 * &nbsp&nbsp&nbsp&nbsp new Class[] {int.class, int.class, double.class, double.class, HXWorld.class}, <br>
-	 * &nbsp&nbsp&nbsp&nbsp new object[] { 50, 50, 6.5, 0, this}, <br>
+	 * &nbsp&nbsp new HXSpawner( world, <br>
+	 * &nbsp&nbsp&nbsp&nbsp w -&gt; new Square(50, 50, 6.5, 0, w), <br>
 	 * &nbsp&nbsp&nbsp&nbsp SPAWN_RATE_SECS <br>
 	 * &nbsp&nbsp&nbsp&nbsp );
-	 * @param entityClass - A subclass of the HXEntity class
-	 * @param parameterTypes - The data types for the given classes constructor's parameters
-	 * @param parameterValues - The values for the parameters of the classes constructor
-	 * @param rate - How often a new entity will spawn (in seconds)
+	 * @param world - The world to spawn into
+	 * @param factory - Creates one entity in the world it is given, or returns null to skip a spawn
+	 * @param rate - How often a new entity will spawn (in seconds) at the HXClock.CLOCK_HERTZ tick rate
 	 */
-	public HXSpawner(Class<?> entityClass, Class<?>[] parameterTypes, Object[] parameterValues, double rate) {
-		this.rate = rate;
-		this.parameterTypes = parameterTypes;
-		this.parameterValues = parameterValues;
-		this.entityClass = entityClass;
-		
-		cycle();
+	public HXSpawner(HXWorld world, Function<HXWorld, ? extends HXEntity> factory, double rate) {
+		this(world, factory, rate, HXClock.CLOCK_HERTZ);
 	}
-	
 	/**
-	 * Internal class usage only.
-	 * <p>
-	 * Abstracted from the constructor to allow TimerTask to call itself as a method
+	 * @param hertz - Tick rate of the world, for worlds not ticked by an HXClock.
 	 */
-	private void cycle() {
-		if (timerRunning) {
-			try {
-				entityClass.getConstructor(parameterTypes).newInstance(parameterValues);
-			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-					| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-				e.printStackTrace();
-			}
-			
-			spawnTimer.schedule(new TimerTask() {
-				@Override
-				public void run() {
-					cycle();
-				}
-			}, (long) ( rate * 1000));
+	public HXSpawner(HXWorld world, Function<HXWorld, ? extends HXEntity> factory, double rate, double hertz) {
+		if (!(rate > 0) || !(hertz > 0)) {
+			throw new IllegalArgumentException("Spawn rate and tick rate must be positive");
 		}
+		this.world = world;
+		this.factory = factory;
+		this.periodTicks = Math.max(1, Math.round(rate * hertz));
+		this.id = world.getSpawnQueue().register(this);
+
+		queue(0);
 	}
-	
+
 	/**
-	 * Start the HXSpawner if it was previously stopped.
+	 * Start the HXSpawner if it was previously stopped. The next spawn is one rate
+	 * after the next tick, even if the spawner was stopped and started again before
+	 * its old spawn came due.
 	 * <p>
 	 * This will occur automatically when a new HXSpawner is instantiated
 	 */
 	public void start() {
-		if (!timerRunning) {
-			timerRunning = true;
-			spawnTimer = new Timer();
-			spawnTimer.schedule(new TimerTask() {
-				@Override
-				public void run() {
-					cycle();
-				}
-			}, (long) ( rate * 1000));
+		if (!running) {
+			queue(periodTicks);
 		}
 	}
-	
+
 	/**
-	 * Halt the running of an active HXSpawner.
+	 * Start the HXSpawner if it was previously stopped, with its next spawn the
+	 * given number of ticks after the next tick. Used by HXSnapshot to restore a
+	 * spawner's schedule.
 	 */
-	public void stop() {
-		if (timerRunning) {
-			timerRunning = false;
-			spawnTimer.cancel();
+	public void startIn(long ticks) {
+		if (!running) {
+			queue(Math.max(0, ticks));
 		}
 	}
+
+	/**
+	 * Halt the running of an active HXSpawner. It leaves the queue at its next due tick.
+	 */
+	public void stop() {
+		running = false;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Every start goes through the queue's added list, which replaces any entry
+	 * still queued on the old schedule.
+	 */
+	private void queue(long delay) {
+		startDelay = delay;
+		running = true;
+		world.getSpawnQueue().add(this);
+	}
+
+	/**
+	 * Internal class usage only.
+	 */
+	HXEntity spawn() {
+		return factory.apply(world);
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public boolean isRunning() {
+		return running;
+	}
+	public long getPeriodTicks() {
+		return periodTicks;
+	}
+	public long getId() {
+		return id;
+	}
 }
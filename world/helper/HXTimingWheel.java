@@ -0,0 +1,174 @@
+package world.helper;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class HXTimingWheel<T> {
+
+	private static final int SLOT_BITS = 8;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+
+	// Level l slot s holds entries due on a tick whose bits above level l match the
+	// current tick and whose level l bits are s. Buckets are made on first use
+	private final Bucket[][] wheel = new Bucket[LEVELS][SLOTS];
+	// Entries more than 2^32 ticks out, looked at again when the tick crosses 2^32
+	private final Bucket overflow = new Bucket();
+	private final Bucket scratch = new Bucket();
+	private long now;
+	private int size = 0;
+
+	/**
+	 * Growable list of entries with their due ticks.
+	 */
+	private static class Bucket {
+		Object[] items = new Object[4];
+		long[] ticks = new long[4];
+		int size = 0;
+
+		void add(Object item, long tick) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size * 2);
+				ticks = Arrays.copyOf(ticks, size * 2);
+			}
+			items[size] = item;
+			ticks[size] = tick;
+			size++;
+		}
+		void clear() {
+			Arrays.fill(items, 0, size, null);
+			size = 0;
+		}
+	}
+
+	/**
+	 * Hierarchical timing wheel of items due on a tick.
+	 * <p>
+	 * Four levels of 256 slots cover 2^32 ticks ahead. An item goes into the
+	 * lowest level whose span reaches its tick, and a higher level slot is only
+	 * broken up into the levels below when the wheel reaches it, so each item is
+	 * moved at most four times. Scheduling is O(1) and advancing a tick costs the
+	 * items due on it plus any slots cascading, never the number of items waiting.
+	 * <p>
+	 * Items can't be cancelled. Holders mark them stale instead and skip them when
+	 * they come due, see HXWorld's lifespan expiry.
+	 * @param now - The first tick advance() will pop.
+	 */
+	public HXTimingWheel(long now) {
+		this.now = now;
+	}
+
+	/**
+	 * @param item - Item to pop on the tick.
+	 * @param tick - When it is due. Ticks already passed pop on the next advance().
+	 */
+	public void schedule(T item, long tick) {
+		place(item, Math.max(tick, now));
+		size++;
+	}
+
+	/**
+	 * Pop every item due on or before the given tick, in tick order.
+	 * @param tick - The last tick to pop.
+	 * @param out - Receives the due items.
+	 * @return Number of items popped.
+	 */
+	@SuppressWarnings("unchecked")
+	public int advance(long tick, List<? super T> out) {
+		int popped = 0;
+		while (now <= tick) {
+			cascade();
+			Bucket due = wheel[0][(int) now & MASK];
+			if (due != null && due.size > 0) {
+				for (int i = 0; i < due.size; i++) {
+					out.add((T) due.items[i]);
+				}
+				popped += due.size;
+				size -= due.size;
+				due.clear();
+			}
+			now++;
+		}
+		return popped;
+	}
+
+	/**
+	 * Drop every item and start again from the given tick.
+	 */
+	public void reset(long now) {
+		for (Bucket[] level : wheel) {
+			for (Bucket bucket : level) {
+				if (bucket != null) {
+					bucket.clear();
+				}
+			}
+		}
+		overflow.clear();
+		size = 0;
+		this.now = now;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Breaks up the higher level slots the wheel reached this tick, top down, so an
+	 * item can fall through several levels at once.
+	 */
+	private void cascade() {
+		if ((now & 0xFFFFFFFFL) == 0 && overflow.size > 0) {
+			rehome(overflow);
+		}
+		for (int level = LEVELS - 1; level > 0; level--) {
+			int shift = SLOT_BITS * level;
+			if ((now & ((1L << shift) - 1)) == 0) {
+				Bucket bucket = wheel[level][(int) (now >>> shift) & MASK];
+				if (bucket != null && bucket.size > 0) {
+					rehome(bucket);
+				}
+			}
+		}
+	}
+	private void rehome(Bucket bucket) {
+		for (int i = 0; i < bucket.size; i++) {
+			scratch.add(bucket.items[i], bucket.ticks[i]);
+		}
+		bucket.clear();
+		for (int i = 0; i < scratch.size; i++) {
+			place(scratch.items[i], scratch.ticks[i]);
+		}
+		scratch.clear();
+	}
+	private void place(Object item, long tick) {
+		for (int level = 0; level < LEVELS; level++) {
+			int shift = SLOT_BITS * (level + 1);
+			if ((tick >>> shift) == (now >>> shift)) {
+				int slot = (int) (tick >>> (SLOT_BITS * level)) & MASK;
+				Bucket bucket = wheel[level][slot];
+				if (bucket == null) {
+					bucket = new Bucket();
+					wheel[level][slot] = bucket;
+				}
+				bucket.add(item, tick);
+				return;
+			}
+		}
+		overflow.add(item, tick);
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	/**
+	 * @return Items scheduled and not popped yet, stale ones included.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * @return The next tick advance() will pop.
+	 */
+	public long getNow() {
+		return now;
+	}
+
+}
@@ -0,0 +1,184 @@
+package world.helper;
+
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import world.HXWorld;
+
+public class HXWorldHost {
+
+	private final ForkJoinPool pool;
+	private final int maxCatchUp;
+	private final Thread scheduler;
+	private volatile boolean running = true;
+
+	// Rooms by wake time, scheduler thread only
+	private final PriorityQueue<HXRoom> queue = new PriorityQueue<HXRoom>((a, b) -> Long.compare(a.wakeNanos, b.wakeNanos));
+	// Rooms added from other threads, moved into the queue by the scheduler
+	private final ConcurrentLinkedQueue<HXRoom> added = new ConcurrentLinkedQueue<HXRoom>();
+	private final AtomicInteger roomCount = new AtomicInteger();
+	// Worlds of the rooms, so no world is stepped by two rooms at once
+	private final Set<HXWorld> worlds = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Steps many headless HXWorlds, such as game rooms, on one shared worker pool.
+	 * <p>
+	 * A single scheduler thread keeps the rooms in a queue ordered by when they are
+	 * next due and parks until the earliest. Each due room is handed to a
+	 * work-stealing ForkJoinPool to run the ticks it is owed, so the thread count
+	 * follows the cores rather than the rooms. Every room keeps its own fixed
+	 * timestep: ticks are owed by elapsed time at its own rate, and a room that
+	 * falls more than maxCatchUp ticks behind drops the rest instead of stalling
+	 * others to catch up. Rooms are dispatched earliest deadline first, a room
+	 * never has two dispatches in flight, and each dispatch is capped at maxCatchUp
+	 * ticks, so a slow room can't starve the others.
+	 * <p>
+	 * Rooms share nothing but the workers and the static caches of HXShapeFactory
+	 * and HXSnapshot, which are thread safe, and HXShapeFactory's only hold shapes
+	 * live colliders still use, so they don't grow with the number of rooms. Anything a
+	 * room's afterTick touches must belong to that room alone, since two rooms can
+	 * run at once on different workers.
+	 * @param parallelism - Worker threads, usually the number of cores.
+	 * @param maxCatchUp - Most ticks a room may run in one dispatch when it is behind.
+	 */
+	public HXWorldHost(int parallelism, int maxCatchUp) {
+		if (maxCatchUp < 1) {
+			throw new IllegalArgumentException("Catch-up limit must be at least 1 tick");
+		}
+		this.pool = new ForkJoinPool(parallelism);
+		this.maxCatchUp = maxCatchUp;
+		this.scheduler = new Thread("HXWorldHost") {
+			public void run() {
+				schedule();
+			}
+		};
+		scheduler.setDaemon(true);
+		scheduler.start();
+	}
+
+	/**
+	 * Start stepping a world.
+	 * <p>
+	 * Rooms already run in parallel with each other, so the world's contact solver
+	 * is set to solve its islands on the worker ticking it.
+	 * @param world - The world. Should not be ticked by anything else.
+	 * @param hertz - Ticks per second.
+	 * @param afterTick - Called on the worker after every tick, or null. Runs at the
+	 * same time as other rooms' callbacks, so it may only use state of its own room,
+	 * such as publishing an HXReplicationServer made for this world alone. One
+	 * server per room, a server shared by two rooms fails in publish().
+	 * @return The room, to read its stats or remove it.
+	 * @throws IllegalArgumentException if the world is already hosted by a room.
+	 */
+	public HXRoom add(HXWorld world, double hertz, Consumer<HXWorld> afterTick) {
+		if (!(hertz > 0)) {
+			throw new IllegalArgumentException("Tick rate must be positive");
+		}
+		if (!worlds.add(world)) {
+			throw new IllegalArgumentException("World is already hosted by another room");
+		}
+		world.getContactSolver().setParallel(false);
+		HXRoom room = new HXRoom(world, hertz, afterTick, System.nanoTime());
+		added.add(room);
+		roomCount.incrementAndGet();
+		LockSupport.unpark(scheduler);
+		return room;
+	}
+
+	/**
+	 * Stop stepping a room. A tick already running finishes first.
+	 */
+	public void remove(HXRoom room) {
+		if (!room.removed) {
+			room.removed = true;
+			LockSupport.unpark(scheduler);
+		}
+	}
+
+	// Mark: SCHEDULING
+	// ================
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * The scheduler loop: dispatch every due room, then park until the next one.
+	 */
+	private void schedule() {
+		while (running) {
+			HXRoom room;
+			while ((room = added.poll()) != null) {
+				queue.add(room);
+			}
+			long now = System.nanoTime();
+			while ((room = queue.peek()) != null && room.wakeNanos - now <= 0) {
+				queue.poll();
+				if (room.removed) {
+					roomCount.decrementAndGet();
+					worlds.remove(room.getWorld());
+					continue;
+				}
+				dispatch(room, now);
+				queue.add(room);
+			}
+			if (room == null) {
+				LockSupport.park(this);
+			} else {
+				LockSupport.parkNanos(this, room.wakeNanos - now);
+			}
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Works out how many ticks a due room is owed, hands them to the pool and sets
+	 * when the room is next due.
+	 */
+	private void dispatch(HXRoom room, long now) {
+		if (!room.running.compareAndSet(false, true)) {
+			// Still running its last dispatch, look again in a period without adding to the debt
+			room.addOverrun();
+			room.wakeNanos = now + room.getPeriodNanos();
+			return;
+		}
+		long owed = (now - room.nextTickNanos) / room.getPeriodNanos() + 1;
+		int count = (int) Math.min(owed, maxCatchUp);
+		if (owed > count) {
+			room.addDropped(owed - count);
+		}
+		room.nextTickNanos += owed * room.getPeriodNanos();
+		room.wakeNanos = room.nextTickNanos;
+		pool.execute(() -> room.run(count));
+	}
+
+	/**
+	 * Stop the scheduler and wait for running ticks to finish.
+	 */
+	public void shutdown() throws InterruptedException {
+		running = false;
+		LockSupport.unpark(scheduler);
+		scheduler.join();
+		pool.shutdown();
+		pool.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public int getRoomCount() {
+		return roomCount.get();
+	}
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+	public int getMaxCatchUp() {
+		return maxCatchUp;
+	}
+
+}
@@ -0,0 +1,486 @@
+package world.helper.chunks;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.helper.properties.HXCollider;
+import world.helper.snapshot.HXSnapshot;
+
+public class HXChunkManager {
+
+	// Ticks between looking for chunks to load and unload
+	private static final int CHECK_INTERVAL = 15;
+
+	private final HXWorld world;
+	private final HXChunkStore store;
+	private final double chunkSize;
+	private double loadMargin;
+	private double unloadMargin;
+	private boolean bodiesAnchor = true;
+
+	// Rectangles kept loaded, such as camera viewports, by id. Set from any thread
+	private final ConcurrentHashMap<Integer, double[]> views = new ConcurrentHashMap<Integer, double[]>();
+
+	/* === Ticking thread only === */
+	// Chunks whose entities are in the store, by key. Every other chunk is resident
+	private final HashMap<Long, Chunk> offline = new HashMap<Long, Chunk>();
+	private final ArrayList<double[]> anchors = new ArrayList<double[]>();
+	private final HashSet<Long> keep = new HashSet<Long>();
+	private final HashMap<Long, ArrayList<HXEntity>> leaving = new HashMap<Long, ArrayList<HXEntity>>();
+	// Appends the store hasn't finished, oldest first
+	private final ArrayList<Storing> storing = new ArrayList<Storing>();
+	private int recordCapacity = 4 * 1024;
+
+	/* === Stats === */
+	private long entitiesUnloaded = 0;
+	private long entitiesLoaded = 0;
+	private long bytesStored = 0;
+	private long storeFailures = 0;
+
+	/**
+	 * A chunk in the store, and its load while one is in flight.
+	 */
+	private static class Chunk {
+		final int cx;
+		final int cy;
+		CompletableFuture<ByteBuffer> loading = null;
+
+		Chunk(int cx, int cy) {
+			this.cx = cx;
+			this.cy = cy;
+		}
+	}
+
+	/**
+	 * Records on their way to the store, kept until the append succeeds.
+	 */
+	private static class Storing {
+		final int count;
+		final ByteBuffer records;
+		final CompletableFuture<Void> appending;
+
+		Storing(int count, ByteBuffer records, CompletableFuture<Void> appending) {
+			this.count = count;
+			this.records = records;
+			this.appending = appending;
+		}
+	}
+
+	/**
+	 * Streams the parts of a large world nobody is near out to an HXChunkStore.
+	 * <p>
+	 * The world is split into square chunks. On every tick that is a multiple of
+	 * CHECK_INTERVAL the anchors are collected: the views set with setView() and
+	 * every awake, moving body. Entities in a chunk further than the unload margin from every anchor
+	 * are written with HXSnapshot's entity records, removed from the world in one
+	 * batch and appended to the store in the background. Stored chunks within the
+	 * load margin of an anchor are read back in the background and added in one
+	 * batch at the start of the first tick after the read completes. Removed
+	 * entities are gone from the world's lists, so updates, drawing and the
+	 * broadphase only ever see resident chunks, and the heap holds only what is
+	 * near an anchor. The unload margin is larger than the load margin, so a chunk
+	 * at the edge isn't written and read back every check. If an append fails the
+	 * entities are added back from the records still held in memory.
+	 * <p>
+	 * In a deterministic world loads and appends are instead waited on at the
+	 * next check, so chunks come back on the same tick however fast the store is.
+	 * Entities in the store aren't part of an HXSnapshot, so a world can't be
+	 * snapshotted, recorded or rolled back while any chunk is offline.
+	 * <p>
+	 * An entity belongs to the chunk holding its center. Entities larger than a
+	 * chunk, such as walls and the world border, entities without a snapshot codec
+	 * and the entity being interacted with always stay resident. Stored entities
+	 * keep their serials and don't simulate, their remaining lifespan included.
+	 * Attach with HXWorld.setChunkManager().
+	 * @param world - The world to stream.
+	 * @param store - Where unloaded chunks go.
+	 * @param chunkSize - Width and height of a chunk in world coordinates.
+	 */
+	public HXChunkManager(HXWorld world, HXChunkStore store, double chunkSize) {
+		if (!(chunkSize > 0)) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		this.world = world;
+		this.store = store;
+		this.chunkSize = chunkSize;
+		this.loadMargin = chunkSize / 2;
+		this.unloadMargin = chunkSize;
+	}
+
+	/**
+	 * Keep a rectangle of world coordinates and its surroundings loaded, such as
+	 * the HXCamera viewport. Replaces the rectangle of the same id.
+	 */
+	public void setView(int id, double minX, double minY, double maxX, double maxY) {
+		views.put(id, new double[] {minX, minY, maxX, maxY});
+	}
+	public void removeView(int id) {
+		views.remove(id);
+	}
+
+	// Mark: STREAMING
+	// ===============
+
+	/**
+	 * Add the chunks finished loading and, when a check is due, start loads and
+	 * unload far chunks. Called by HXWorld at the start of every tick. Only waits
+	 * on the store at the checks of a deterministic world.
+	 */
+	public void update() {
+		boolean check = Math.floorMod(world.getTick(), CHECK_INTERVAL) == 0;
+		boolean wait = world.isDeterministic();
+		if (wait && !check) {
+			return;
+		}
+		integrateFailedStores(wait);
+		integrateLoads(wait);
+		if (!check) {
+			return;
+		}
+		collectAnchors();
+		requestLoads();
+		unloadFar();
+	}
+
+	/**
+	 * Forget every offline chunk and delete its file, for a world that was
+	 * cleared or moved to another tick. Called by HXWorld.clear() and
+	 * HXWorld.setTick(). Views are kept.
+	 */
+	public void reset() {
+		for (Storing s : storing) {
+			s.appending.cancel(false);
+		}
+		storing.clear();
+		for (Chunk chunk : offline.values()) {
+			if (chunk.loading == null) {
+				// Queued after every append asked for, so it deletes what they wrote
+				store.take(chunk.cx, chunk.cy);
+			} else {
+				chunk.loading.cancel(false);
+			}
+		}
+		offline.clear();
+		anchors.clear();
+		keep.clear();
+		leaving.clear();
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Adds back the entities of every failed append in one batch and forgets the
+	 * ones that succeeded.
+	 * @param wait - True to wait for appends still running.
+	 */
+	private void integrateFailedStores(boolean wait) {
+		ArrayList<Storing> failed = null;
+		Iterator<Storing> pending = storing.iterator();
+		while (pending.hasNext()) {
+			Storing s = pending.next();
+			if (!wait && !s.appending.isDone()) {
+				// Appends finish in order, so the rest are still running too
+				break;
+			}
+			pending.remove();
+			try {
+				s.appending.join();
+			} catch (CompletionException | CancellationException e) {
+				e.printStackTrace();
+				if (failed == null) {
+					failed = new ArrayList<Storing>();
+				}
+				failed.add(s);
+			}
+		}
+		if (failed == null) {
+			return;
+		}
+		long nextSerial = world.getNextEntitySerial();
+		world.beginBatch();
+		try {
+			for (Storing s : failed) {
+				for (int i = 0; i < s.count; i++) {
+					HXSnapshot.readEntity(s.records, world);
+				}
+				storeFailures++;
+				entitiesUnloaded -= s.count;
+				bytesStored -= s.records.capacity();
+			}
+		} finally {
+			world.commitBatch();
+			world.setNextEntitySerial(nextSerial);
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Adds the entities of every completed load in one batch. The world's next
+	 * serial is kept, loaded entities take back their own.
+	 * @param wait - True to wait for loads still running.
+	 */
+	private void integrateLoads(boolean wait) {
+		ArrayList<ByteBuffer> loaded = null;
+		Iterator<Chunk> chunks = offline.values().iterator();
+		while (chunks.hasNext()) {
+			Chunk chunk = chunks.next();
+			if (chunk.loading == null || (!wait && !chunk.loading.isDone())) {
+				continue;
+			}
+			ByteBuffer in;
+			try {
+				in = chunk.loading.join();
+			} catch (CompletionException e) {
+				// Left stored, asked for again at the next check
+				e.printStackTrace();
+				chunk.loading = null;
+				continue;
+			}
+			chunks.remove();
+			if (in != null) {
+				if (loaded == null) {
+					loaded = new ArrayList<ByteBuffer>();
+				}
+				loaded.add(in);
+			}
+		}
+		if (loaded == null) {
+			return;
+		}
+		long nextSerial = world.getNextEntitySerial();
+		world.beginBatch();
+		try {
+			for (ByteBuffer in : loaded) {
+				while (in.remaining() >= HXChunkStore.SEGMENT_HEADER_SIZE) {
+					if (in.getInt() != HXChunkStore.MAGIC || in.getShort() != HXChunkStore.VERSION) {
+						throw new IllegalStateException("Corrupt chunk file in " + store.getDirectory());
+					}
+					int count = in.getInt();
+					in.getInt();
+					for (int i = 0; i < count; i++) {
+						if (HXSnapshot.readEntity(in, world) != null) {
+							entitiesLoaded++;
+						}
+					}
+				}
+			}
+		} finally {
+			world.commitBatch();
+			world.setNextEntitySerial(nextSerial);
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Gathers the rectangles that keep chunks loaded.
+	 */
+	private void collectAnchors() {
+		anchors.clear();
+		anchors.addAll(views.values());
+		if (!bodiesAnchor) {
+			return;
+		}
+		for (HXEntity e : world.getEntities()) {
+			if (e.isSleeping() || e.isStaticObject() || (e.getxVel() == 0 && e.getyVel() == 0 && e.getRotationalVelocity() == 0)) {
+				continue;
+			}
+			HXCollider c = e.getCollider();
+			if (c != null) {
+				anchors.add(new double[] {c.getMinX(), c.getMinY(), c.getMaxX(), c.getMaxY()});
+			} else {
+				anchors.add(new double[] {e.getxPos(), e.getyPos(), e.getxPos() + e.getWidth(), e.getyPos() + e.getHeight()});
+			}
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Starts loading every stored chunk within the load margin of an anchor.
+	 */
+	private void requestLoads() {
+		if (offline.isEmpty()) {
+			return;
+		}
+		for (double[] a : anchors) {
+			int minCX = chunkOf(a[0] - loadMargin);
+			int minCY = chunkOf(a[1] - loadMargin);
+			int maxCX = chunkOf(a[2] + loadMargin);
+			int maxCY = chunkOf(a[3] + loadMargin);
+			for (int cx = minCX; cx <= maxCX; cx++) {
+				for (int cy = minCY; cy <= maxCY; cy++) {
+					Chunk chunk = offline.get(key(cx, cy));
+					if (chunk != null && chunk.loading == null) {
+						chunk.loading = store.take(cx, cy);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Writes out and removes the entities of every chunk past the unload margin of all anchors.
+	 */
+	private void unloadFar() {
+		keep.clear();
+		for (double[] a : anchors) {
+			int minCX = chunkOf(a[0] - unloadMargin);
+			int minCY = chunkOf(a[1] - unloadMargin);
+			int maxCX = chunkOf(a[2] + unloadMargin);
+			int maxCY = chunkOf(a[3] + unloadMargin);
+			for (int cx = minCX; cx <= maxCX; cx++) {
+				for (int cy = minCY; cy <= maxCY; cy++) {
+					keep.add(key(cx, cy));
+				}
+			}
+		}
+		leaving.clear();
+		for (HXEntity e : world.getEntities()) {
+			if (!isChunked(e)) {
+				continue;
+			}
+			long key = key(chunkOf(e.getxPos() + e.getWidth() / 2), chunkOf(e.getyPos() + e.getHeight() / 2));
+			if (keep.contains(key)) {
+				continue;
+			}
+			Chunk chunk = offline.get(key);
+			if (chunk != null && chunk.loading != null) {
+				// Wait for the load so the chunk isn't written while it is being read
+				continue;
+			}
+			ArrayList<HXEntity> list = leaving.get(key);
+			if (list == null) {
+				list = new ArrayList<HXEntity>();
+				leaving.put(key, list);
+			}
+			list.add(e);
+		}
+		if (leaving.isEmpty()) {
+			return;
+		}
+		world.beginBatch();
+		try {
+			for (Map.Entry<Long, ArrayList<HXEntity>> entry : leaving.entrySet()) {
+				unload(entry.getKey(), entry.getValue());
+			}
+		} finally {
+			world.commitBatch();
+			leaving.clear();
+		}
+	}
+	private void unload(long key, ArrayList<HXEntity> entities) {
+		ByteBuffer records;
+		while (true) {
+			records = ByteBuffer.allocate(recordCapacity);
+			try {
+				for (HXEntity e : entities) {
+					HXSnapshot.writeEntity(e, records);
+				}
+				break;
+			} catch (BufferOverflowException e) {
+				recordCapacity *= 2;
+			}
+		}
+		records.flip();
+		for (HXEntity e : entities) {
+			e.remove();
+		}
+		int cx = (int) (key >> 32);
+		int cy = (int) key;
+		// Trimmed copy kept to add the entities back if the append fails
+		ByteBuffer kept = ByteBuffer.allocate(records.remaining()).put(records.duplicate()).flip();
+		bytesStored += kept.capacity();
+		entitiesUnloaded += entities.size();
+		storing.add(new Storing(entities.size(), kept, store.append(cx, cy, entities.size(), records)));
+		if (!offline.containsKey(key)) {
+			offline.put(key, new Chunk(cx, cy));
+		}
+	}
+	private boolean isChunked(HXEntity e) {
+		return !e.isRemoved() && !e.isInteracting()
+				&& e.getWidth() <= chunkSize && e.getHeight() <= chunkSize
+				&& HXSnapshot.isRegistered(e.getClass());
+	}
+	private int chunkOf(double coordinate) {
+		return (int) Math.floor(coordinate / chunkSize);
+	}
+	private static long key(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public double getChunkSize() {
+		return chunkSize;
+	}
+	public double getLoadMargin() {
+		return loadMargin;
+	}
+	/**
+	 * @param loadMargin - Distance from an anchor within which stored chunks are loaded.
+	 * Kept below the unload margin.
+	 */
+	public void setLoadMargin(double loadMargin) {
+		this.loadMargin = Math.min(loadMargin, unloadMargin);
+	}
+	public double getUnloadMargin() {
+		return unloadMargin;
+	}
+	/**
+	 * @param unloadMargin - Distance from every anchor past which chunks are unloaded.
+	 * Kept above the load margin.
+	 */
+	public void setUnloadMargin(double unloadMargin) {
+		this.unloadMargin = Math.max(unloadMargin, loadMargin);
+	}
+	/**
+	 * @param bodiesAnchor - False to keep only the views loaded, so moving bodies
+	 * freeze when they are left behind instead of keeping chunks around them.
+	 */
+	public void setBodiesAnchor(boolean bodiesAnchor) {
+		this.bodiesAnchor = bodiesAnchor;
+	}
+	public boolean isBodiesAnchor() {
+		return bodiesAnchor;
+	}
+	/**
+	 * @return Chunks whose entities are in the store or being loaded.
+	 */
+	public int getOfflineChunkCount() {
+		return offline.size();
+	}
+	public long getEntitiesUnloaded() {
+		return entitiesUnloaded;
+	}
+	public long getEntitiesLoaded() {
+		return entitiesLoaded;
+	}
+	public long getBytesStored() {
+		return bytesStored;
+	}
+	/**
+	 * @return Appends that failed, whose entities were added back to the world.
+	 */
+	public long getStoreFailures() {
+		return storeFailures;
+	}
+	public HXChunkStore getStore() {
+		return store;
+	}
+
+}
@@ -0,0 +1,127 @@
+package world.helper.chunks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class HXChunkStore implements Closeable {
+
+	// "HXCK"
+	static final int MAGIC = 0x4858434B;
+	static final short VERSION = 1;
+	// Magic, version, record count, length of the records
+	static final int SEGMENT_HEADER_SIZE = 4 + 2 + 4 + 4;
+
+	private final Path directory;
+	// One thread, so operations on a chunk happen in the order they were asked for
+	private final ExecutorService io;
+
+	/**
+	 * Keeps unloaded chunks in a directory, one file per chunk.
+	 * <p>
+	 * Every unload of a chunk appends a segment of HXSnapshot entity records to
+	 * its file, so entities that wandered into a chunk already on disk are added to
+	 * it rather than overwriting it. Loading reads every segment and deletes the
+	 * file. All file access runs on one background thread in the order requested,
+	 * so a load asked for after an append always sees it, and the ticking thread
+	 * only ever waits on completed futures.
+	 * @param directory - Directory for the chunk files, created if missing.
+	 */
+	public HXChunkStore(Path directory) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.io = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "HXChunkStore");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Append entity records to a chunk's file. A failed append leaves the file
+	 * as it was.
+	 * @param cx - Chunk column.
+	 * @param cy - Chunk row.
+	 * @param count - Number of records.
+	 * @param records - The records, from position to limit. Owned by the store from now on.
+	 */
+	public CompletableFuture<Void> append(int cx, int cy, int count, ByteBuffer records) {
+		return CompletableFuture.runAsync(() -> {
+			ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putShort(VERSION);
+			header.putInt(count);
+			header.putInt(records.remaining());
+			header.flip();
+			try (FileChannel channel = FileChannel.open(file(cx, cy), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+				long size = channel.size();
+				try {
+					while (header.hasRemaining()) {
+						channel.write(header);
+					}
+					while (records.hasRemaining()) {
+						channel.write(records);
+					}
+				} catch (IOException e) {
+					// Drop the partial segment so the segments before it still load
+					channel.truncate(size);
+					throw e;
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not store chunk " + cx + ", " + cy, e);
+			}
+		}, io);
+	}
+
+	/**
+	 * Read a chunk's file and delete it.
+	 * @return Future of the file's segments, flipped, or of null if the chunk has no file.
+	 */
+	public CompletableFuture<ByteBuffer> take(int cx, int cy) {
+		return CompletableFuture.supplyAsync(() -> {
+			Path file = file(cx, cy);
+			try {
+				if (!Files.exists(file)) {
+					return null;
+				}
+				ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+				Files.delete(file);
+				return in;
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not load chunk " + cx + ", " + cy, e);
+			}
+		}, io);
+	}
+
+	private Path file(int cx, int cy) {
+		return directory.resolve("chunk_" + cx + "_" + cy + ".hxc");
+	}
+
+	/**
+	 * Finish the file operations already asked for and stop the thread.
+	 */
+	@Override
+	public void close() throws IOException {
+		io.shutdown();
+		try {
+			io.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public Path getDirectory() {
+		return directory;
+	}
+
+}
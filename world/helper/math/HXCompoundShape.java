@@ -0,0 +1,70 @@
+package world.helper.math;
+
+public final class HXCompoundShape {
+
+	// Local space outline of the concave polygon, positive area, centered on its vertex average
+	private final double[] outlineXs;
+	private final double[] outlineYs;
+	// Convex parts of the outline, each placed at a local offset from the outline's center
+	private final HXShape[] parts;
+	private final double[] partXs;
+	private final double[] partYs;
+	// Bounding circle radius around the local origin
+	private final double boundingRadius;
+
+	/**
+	 * Immutable concave polygon in local space, stored as its convex decomposition.
+	 * <p>
+	 * Only built by HXShapeFactory, which decomposes each distinct outline once and
+	 * hands out the cached result to every later request for the same outline.
+	 * Arrays are not copied.
+	 * @param outlineXs - Local x coordinates of the outline.
+	 * @param outlineYs - Local y coordinates of the outline.
+	 * @param parts - Interned convex parts.
+	 * @param partXs - Local x of each part's origin.
+	 * @param partYs - Local y of each part's origin.
+	 */
+	HXCompoundShape(double[] outlineXs, double[] outlineYs, HXShape[] parts, double[] partXs, double[] partYs) {
+		this.outlineXs = outlineXs;
+		this.outlineYs = outlineYs;
+		this.parts = parts;
+		this.partXs = partXs;
+		this.partYs = partYs;
+
+		double farthestDistance = 0;
+		for (int v = 0; v < outlineXs.length; v++) {
+			farthestDistance = Math.max(farthestDistance, outlineXs[v] * outlineXs[v] + outlineYs[v] * outlineYs[v]);
+		}
+		this.boundingRadius = Math.sqrt(farthestDistance);
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public int getOutlineCount() {
+		return outlineXs.length;
+	}
+	public double getOutlineX(int vertex) {
+		return outlineXs[vertex];
+	}
+	public double getOutlineY(int vertex) {
+		return outlineYs[vertex];
+	}
+	public int getPartCount() {
+		return parts.length;
+	}
+	public HXShape getPart(int part) {
+		return parts[part];
+	}
+	public double getPartX(int part) {
+		return partXs[part];
+	}
+	public double getPartY(int part) {
+		return partYs[part];
+	}
+	public double getBoundingRadius() {
+		return boundingRadius;
+	}
+	public String toString() {
+		return "HXCompoundShape(" + outlineXs.length + " vertices, " + parts.length + " parts)";
+	}
+}
@@ -0,0 +1,113 @@
+package world.helper.math;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+public class HXProjection {
+
+	// Below this many vertices the unrolled kernel isn't worth its setup
+	private static final int UNROLL_MIN_VERTICES = 8;
+
+	/* === Vector API kernel, see HXProjectionVector === */
+	// HXProjectionVector.minMax, null unless the JVM runs with --add-modules jdk.incubator.vector
+	private static final MethodHandle VECTOR_MIN_MAX;
+	// Below a full vector of vertices only the scalar tail would run
+	private static final int VECTOR_MIN_VERTICES;
+	static {
+		MethodHandle kernel = null;
+		int lanes = Integer.MAX_VALUE;
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				Class<?> vector = Class.forName("world.helper.math.HXProjectionVector");
+				kernel = lookup.findStatic(vector, "minMax", MethodType.methodType(HXVector.class,
+						double[].class, double[].class, int.class, double.class, double.class, HXVector.class));
+				lanes = (int) lookup.findStatic(vector, "lanes", MethodType.methodType(int.class)).invokeExact();
+			} catch (Throwable e) {
+				// Compiled without the module, keep the scalar kernel
+				kernel = null;
+				lanes = Integer.MAX_VALUE;
+			}
+		}
+		VECTOR_MIN_MAX = kernel;
+		VECTOR_MIN_VERTICES = lanes;
+	}
+
+	/**
+	 * Project packed vertex coordinates onto an axis.
+	 * <p>
+	 * Coordinates are kept in two flat arrays (structure of arrays) rather than
+	 * an HXVector[], so the loop reads contiguous doubles. When the JVM runs with
+	 * --add-modules jdk.incubator.vector, polygons of at least one vector of
+	 * vertices go through the Vector API kernel in HXProjectionVector. Otherwise
+	 * large polygons are projected four lanes at a time with independent,
+	 * branch-free min/max accumulators that are reduced at the end, which keeps
+	 * the lanes in registers and breaks the dependency between steps. Every path
+	 * gives the same bits.
+	 * @param xs - X coordinates of the vertices.
+	 * @param ys - Y coordinates of the vertices.
+	 * @param count - Number of vertices to project, at least 1.
+	 * @param axisX - X of the axis to be projected onto.
+	 * @param axisY - Y of the axis to be projected onto.
+	 * @param out - Will be set to a vector whose x value is the minimum and
+	 * whose y value is the maximum.
+	 * @return The out vector.
+	 */
+	public static HXVector minMax(double[] xs, double[] ys, int count, double axisX, double axisY, HXVector out) {
+		if (count >= VECTOR_MIN_VERTICES) {
+			try {
+				return (HXVector) VECTOR_MIN_MAX.invokeExact(xs, ys, count, axisX, axisY, out);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		if (count < UNROLL_MIN_VERTICES) {
+			double min = xs[0] * axisX + ys[0] * axisY;
+			double max = min;
+			for (int v = 1; v < count; v++) {
+				double d = xs[v] * axisX + ys[v] * axisY;
+				min = Math.min(min, d);
+				max = Math.max(max, d);
+			}
+			return out.set(min, max);
+		}
+
+		double d0 = xs[0] * axisX + ys[0] * axisY;
+		double min0 = d0, min1 = d0, min2 = d0, min3 = d0;
+		double max0 = d0, max1 = d0, max2 = d0, max3 = d0;
+		int v = 0;
+		int lanes = count & ~3;
+		for (; v < lanes; v += 4) {
+			double p0 = xs[v] * axisX + ys[v] * axisY;
+			double p1 = xs[v + 1] * axisX + ys[v + 1] * axisY;
+			double p2 = xs[v + 2] * axisX + ys[v + 2] * axisY;
+			double p3 = xs[v + 3] * axisX + ys[v + 3] * axisY;
+			min0 = Math.min(min0, p0);
+			min1 = Math.min(min1, p1);
+			min2 = Math.min(min2, p2);
+			min3 = Math.min(min3, p3);
+			max0 = Math.max(max0, p0);
+			max1 = Math.max(max1, p1);
+			max2 = Math.max(max2, p2);
+			max3 = Math.max(max3, p3);
+		}
+		for (; v < count; v++) {
+			double p = xs[v] * axisX + ys[v] * axisY;
+			min0 = Math.min(min0, p);
+			max0 = Math.max(max0, p);
+		}
+		return out.set(
+				Math.min(Math.min(min0, min1), Math.min(min2, min3)),
+				Math.max(Math.max(max0, max1), Math.max(max2, max3)));
+	}
+
+	/**
+	 * @return True if minMax() uses the Vector API kernel.
+	 */
+	public static boolean isVectorized() {
+		return VECTOR_MIN_MAX != null;
+	}
+}
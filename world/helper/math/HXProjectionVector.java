@@ -0,0 +1,58 @@
+package world.helper.math;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class HXProjectionVector {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Vector API kernel behind HXProjection.minMax().
+	 * <p>
+	 * Needs the incubating jdk.incubator.vector module, so this class is compiled
+	 * and run with --add-modules jdk.incubator.vector. HXProjection only links it
+	 * through a MethodHandle when the module is in the boot layer, so the rest of
+	 * the tree runs without the flag and falls back to the scalar kernel.
+	 * <p>
+	 * Projects as many vertices per step as the platform's preferred double vector
+	 * holds, with one min and one max accumulator reduced across lanes at the end.
+	 * Multiplies and adds aren't fused and min/max are exact, so the result is
+	 * bit for bit the scalar kernel's.
+	 */
+	private HXProjectionVector() {
+	}
+
+	/**
+	 * See HXProjection.minMax().
+	 */
+	static HXVector minMax(double[] xs, double[] ys, int count, double axisX, double axisY, HXVector out) {
+		DoubleVector min = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+		DoubleVector max = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+		int v = 0;
+		int lanes = SPECIES.loopBound(count);
+		for (; v < lanes; v += SPECIES.length()) {
+			DoubleVector p = DoubleVector.fromArray(SPECIES, xs, v).mul(axisX)
+					.add(DoubleVector.fromArray(SPECIES, ys, v).mul(axisY));
+			min = min.min(p);
+			max = max.max(p);
+		}
+		double minD = min.reduceLanes(VectorOperators.MIN);
+		double maxD = max.reduceLanes(VectorOperators.MAX);
+		for (; v < count; v++) {
+			double p = xs[v] * axisX + ys[v] * axisY;
+			minD = Math.min(minD, p);
+			maxD = Math.max(maxD, p);
+		}
+		return out.set(minD, maxD);
+	}
+
+	/**
+	 * @return Vertices projected per step.
+	 */
+	static int lanes() {
+		return SPECIES.length();
+	}
+
+}
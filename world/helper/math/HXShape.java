@@ -0,0 +1,102 @@
+package world.helper.math;
+
+import java.util.Arrays;
+
+public final class HXShape {
+
+	// Local space vertices, counter clockwise (positive area), centered on their average
+	private final double[] xs;
+	private final double[] ys;
+	// Outward unit normal of the edge from vertex i to vertex i+1
+	private final double[] normalXs;
+	private final double[] normalYs;
+	// Bounding circle radius around the local origin
+	private final double boundingRadius;
+	// Moment of inertia about the local origin per unit of mass
+	private final double unitInertia;
+	private final int hash;
+
+	/**
+	 * Immutable convex polygon in local space, shared between colliders.
+	 * <p>
+	 * Only built by HXShapeFactory, which guarantees the vertices are a convex
+	 * hull with consistent winding and interns identical shapes, so every collider
+	 * of the same geometry references one HXShape and one set of normals.
+	 * @param xs - Local x coordinates, already wound and centered. Not copied.
+	 * @param ys - Local y coordinates, already wound and centered. Not copied.
+	 */
+	HXShape(double[] xs, double[] ys) {
+		this.xs = xs;
+		this.ys = ys;
+		int n = xs.length;
+		this.normalXs = new double[n];
+		this.normalYs = new double[n];
+
+		double farthestDistance = 0;
+		double numerator = 0;
+		double denominator = 0;
+		for (int v = 0; v < n; v++) {
+			int next = (v+1)%n;
+			double ex = xs[next] - xs[v];
+			double ey = ys[next] - ys[v];
+			double length = Math.sqrt(ex * ex + ey * ey);
+			if (length > 0) {
+				normalXs[v] = ey / length;
+				normalYs[v] = -ex / length;
+			}
+			farthestDistance = Math.max(farthestDistance, xs[v] * xs[v] + ys[v] * ys[v]);
+
+			// Polygon second moment of area, summed over triangles fanned from the origin
+			double cross = Math.abs(xs[v] * ys[next] - ys[v] * xs[next]);
+			numerator += cross * (xs[v] * xs[v] + ys[v] * ys[v] + xs[v] * xs[next] + ys[v] * ys[next] + xs[next] * xs[next] + ys[next] * ys[next]);
+			denominator += cross;
+		}
+		this.boundingRadius = Math.sqrt(farthestDistance);
+		this.unitInertia = denominator > 0 ? numerator / (6 * denominator) : 0;
+		this.hash = 31 * Arrays.hashCode(xs) + Arrays.hashCode(ys);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof HXShape)) {
+			return false;
+		}
+		HXShape other = (HXShape) o;
+		return hash == other.hash && Arrays.equals(xs, other.xs) && Arrays.equals(ys, other.ys);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public int getVertexCount() {
+		return xs.length;
+	}
+	public double getX(int vertex) {
+		return xs[vertex];
+	}
+	public double getY(int vertex) {
+		return ys[vertex];
+	}
+	public double getNormalX(int edge) {
+		return normalXs[edge];
+	}
+	public double getNormalY(int edge) {
+		return normalYs[edge];
+	}
+	public double getBoundingRadius() {
+		return boundingRadius;
+	}
+	public double getUnitInertia() {
+		return unitInertia;
+	}
+	public String toString() {
+		return "HXShape(" + xs.length + " vertices, r: " + boundingRadius + ")";
+	}
+}
@@ -0,0 +1,473 @@
+package world.helper.math;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class HXShapeFactory {
+
+	// Local coordinates are rounded to this step, so placements differing only by rounding share a shape
+	private static final double QUANTUM = 1.0 / (1 << 20);
+
+	// Prototype cache. Every shape handed out is the single interned instance of its geometry,
+	// held weakly so a shape goes once no collider uses it
+	private static final WeakCache<HXShape> PROTOTYPES = new WeakCache<HXShape>();
+	// Decomposition cache, keyed by the outline relative to its first vertex and held weakly like the prototypes
+	private static final WeakCache<HXCompoundShape> DECOMPOSITIONS = new WeakCache<HXCompoundShape>();
+
+	/**
+	 * Shared rectangle shape centered on the origin.
+	 * @param width - Width of the rectangle.
+	 * @param height - Height of the rectangle.
+	 * @return The interned HXShape.
+	 */
+	public static HXShape box(double width, double height) {
+		double hw = width / 2;
+		double hh = height / 2;
+		return intern(
+				new double[] {quantize(-hw), quantize(hw), quantize(hw), quantize(-hw)},
+				new double[] {quantize(-hh), quantize(-hh), quantize(hh), quantize(hh)});
+	}
+
+	/**
+	 * Shared convex shape for any set of points.
+	 * <p>
+	 * Builds the convex hull of the points, so concave or unordered input is made
+	 * safe for SAT, then moves it to local space around the hull's vertex average.
+	 * Local coordinates are rounded to a fine grid, so the same polygon placed
+	 * anywhere in the world gets the same shape.
+	 * @param points - World or local points, in any order.
+	 * @param centerOut - Receives the vertex average of the hull in the points' space,
+	 * which is where the returned local shape should be placed. May be null.
+	 * @return The interned HXShape.
+	 */
+	public static HXShape polygon(HXVector[] points, HXVector centerOut) {
+		double[] xs = new double[points.length];
+		double[] ys = new double[points.length];
+		for (int p = 0; p < points.length; p++) {
+			xs[p] = points[p].x;
+			ys[p] = points[p].y;
+		}
+		return polygon(xs, ys, points.length, centerOut);
+	}
+	public static HXShape polygon(double[] xs, double[] ys, int count, HXVector centerOut) {
+		double[][] hull = convexHull(xs, ys, count);
+		double[] hx = hull[0];
+		double[] hy = hull[1];
+		double midX = 0;
+		double midY = 0;
+		for (int v = 0; v < hx.length; v++) {
+			midX += hx[v];
+			midY += hy[v];
+		}
+		if (hx.length > 0) {
+			midX /= hx.length;
+			midY /= hx.length;
+		}
+		for (int v = 0; v < hx.length; v++) {
+			hx[v] = quantize(hx[v] - midX);
+			hy[v] = quantize(hy[v] - midY);
+		}
+		if (centerOut != null) {
+			centerOut.set(midX, midY);
+		}
+		return intern(hx, hy);
+	}
+
+	/**
+	 * Shared convex decomposition of a simple, possibly concave, polygon.
+	 * <p>
+	 * The outline is wound with positive area, rotated to start at its smallest x
+	 * (then y) vertex and keyed relative to that vertex, rounded to a fine grid, so
+	 * the same outline placed anywhere hits the cache. The shape is centered on the
+	 * key's vertex average, which keeps its local space the same for every
+	 * placement. A new outline is triangulated by
+	 * ear clipping and the triangles are then merged back into larger convex parts
+	 * (Hertel-Mehlhorn) wherever removing a diagonal keeps the union convex.
+	 * @param points - Outline of the polygon in order, either winding. Must not self intersect.
+	 * @param centerOut - Receives the vertex average of the outline in the points' space. May be null.
+	 * @return The cached HXCompoundShape.
+	 */
+	public static HXCompoundShape concave(HXVector[] points, HXVector centerOut) {
+		int n = points.length;
+		double area = 0;
+		int first = 0;
+		for (int p = 0; p < n; p++) {
+			HXVector next = points[(p+1)%n];
+			area += points[p].x * next.y - next.x * points[p].y;
+			if (points[p].x < points[first].x || (points[p].x == points[first].x && points[p].y < points[first].y)) {
+				first = p;
+			}
+		}
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		int step = area < 0 ? -1 : 1;
+		double originX = n > 0 ? points[first].x : 0;
+		double originY = n > 0 ? points[first].y : 0;
+		for (int v = 0; v < n; v++) {
+			HXVector point = points[Math.floorMod(first + v * step, n)];
+			xs[v] = quantize(point.x - originX);
+			ys[v] = quantize(point.y - originY);
+		}
+		if (centerOut != null) {
+			double[] mid = average(xs, ys);
+			centerOut.set(originX + mid[0], originY + mid[1]);
+		}
+		return DECOMPOSITIONS.get(new Outline(xs, ys), HXShapeFactory::decompose);
+	}
+	private static double[] average(double[] xs, double[] ys) {
+		double midX = 0;
+		double midY = 0;
+		for (int v = 0; v < xs.length; v++) {
+			midX += xs[v];
+			midY += ys[v];
+		}
+		if (xs.length > 0) {
+			midX /= xs.length;
+			midY /= xs.length;
+		}
+		return new double[] {midX, midY};
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Centers the key's outline on its vertex average, then ear clipping followed
+	 * by a Hertel-Mehlhorn merge, then every convex part is interned as its own HXShape.
+	 */
+	private static HXCompoundShape decompose(Outline outline) {
+		double[] mid = average(outline.xs, outline.ys);
+		double[] xs = new double[outline.xs.length];
+		double[] ys = new double[outline.ys.length];
+		for (int v = 0; v < xs.length; v++) {
+			xs[v] = outline.xs[v] - mid[0];
+			ys[v] = outline.ys[v] - mid[1];
+		}
+		ArrayList<int[]> polygons = triangulate(xs, ys);
+		mergeConvex(polygons, xs, ys);
+
+		int count = polygons.size();
+		HXShape[] parts = new HXShape[count];
+		double[] partXs = new double[count];
+		double[] partYs = new double[count];
+		HXVector partCenter = new HXVector();
+		for (int p = 0; p < count; p++) {
+			int[] polygon = polygons.get(p);
+			double[] px = new double[polygon.length];
+			double[] py = new double[polygon.length];
+			for (int v = 0; v < polygon.length; v++) {
+				px[v] = xs[polygon[v]];
+				py[v] = ys[polygon[v]];
+			}
+			parts[p] = polygon(px, py, polygon.length, partCenter);
+			partXs[p] = partCenter.x;
+			partYs[p] = partCenter.y;
+		}
+		return new HXCompoundShape(xs, ys, parts, partXs, partYs);
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Ear clipping triangulation of a positive area simple polygon. Collinear
+	 * vertices are dropped. Returns index triples into the given coordinates.
+	 */
+	private static ArrayList<int[]> triangulate(double[] xs, double[] ys) {
+		ArrayList<int[]> triangles = new ArrayList<int[]>();
+		int size = xs.length;
+		int[] remaining = new int[size];
+		for (int v = 0; v < size; v++) {
+			remaining[v] = v;
+		}
+		while (size > 3) {
+			boolean clipped = false;
+			for (int k = 0; k < size && !clipped; k++) {
+				int prev = remaining[(k + size - 1) % size];
+				int cur = remaining[k];
+				int next = remaining[(k+1) % size];
+				double turn = cross(xs, ys, prev, cur, next);
+				if (turn < 0) {
+					// Reflex vertex, can't be an ear
+					continue;
+				}
+				if (turn > 0) {
+					// Convex vertex is an ear if no other remaining vertex is inside its triangle
+					boolean ear = true;
+					for (int o = 0; o < size && ear; o++) {
+						int other = remaining[o];
+						if (other == prev || other == cur || other == next) {
+							continue;
+						}
+						if (cross(xs, ys, prev, cur, other) >= 0
+								&& cross(xs, ys, cur, next, other) >= 0
+								&& cross(xs, ys, next, prev, other) >= 0) {
+							ear = false;
+						}
+					}
+					if (!ear) {
+						continue;
+					}
+					triangles.add(new int[] {prev, cur, next});
+				}
+				// Clip the ear, or drop the collinear vertex
+				System.arraycopy(remaining, k + 1, remaining, k, size - k - 1);
+				size--;
+				clipped = true;
+			}
+			if (!clipped) {
+				// Only happens for self intersecting outlines. Fan out what is left so the shape still collides
+				for (int k = 1; k + 1 < size; k++) {
+					triangles.add(new int[] {remaining[0], remaining[k], remaining[k+1]});
+				}
+				return triangles;
+			}
+		}
+		if (size == 3 && cross(xs, ys, remaining[0], remaining[1], remaining[2]) > 0) {
+			triangles.add(new int[] {remaining[0], remaining[1], remaining[2]});
+		}
+		return triangles;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Hertel-Mehlhorn: repeatedly joins two polygons across their shared diagonal
+	 * when the joined polygon is still convex.
+	 */
+	private static void mergeConvex(ArrayList<int[]> polygons, double[] xs, double[] ys) {
+		boolean merged = true;
+		while (merged) {
+			merged = false;
+			for (int i = 0; i < polygons.size() && !merged; i++) {
+				for (int j = i + 1; j < polygons.size() && !merged; j++) {
+					int[] union = join(polygons.get(i), polygons.get(j), xs, ys);
+					if (union != null) {
+						polygons.set(i, union);
+						polygons.remove(j);
+						merged = true;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Union of two polygons sharing an edge, or null if they share none or the
+	 * union would be concave.
+	 */
+	private static int[] join(int[] p, int[] q, double[] xs, double[] ys) {
+		for (int a = 0; a < p.length; a++) {
+			int from = p[a];
+			int to = p[(a+1) % p.length];
+			for (int b = 0; b < q.length; b++) {
+				if (q[b] != to || q[(b+1) % q.length] != from) {
+					continue;
+				}
+				// Walk p from 'to' around to 'from', then q past 'from' back to just before 'to'
+				int[] union = new int[p.length + q.length - 2];
+				int u = 0;
+				for (int v = 0; v < p.length; v++) {
+					union[u++] = p[(a + 1 + v) % p.length];
+				}
+				for (int v = 2; v < q.length; v++) {
+					union[u++] = q[(b + v) % q.length];
+				}
+				for (int v = 0; v < union.length; v++) {
+					if (cross(xs, ys, union[v], union[(v+1) % union.length], union[(v+2) % union.length]) < 0) {
+						return null;
+					}
+				}
+				return union;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Shared copy of a shape scaled uniformly about its origin.
+	 * <p>
+	 * A negative scale mirrors through the origin, which is a half turn, so the
+	 * winding is unchanged.
+	 */
+	public static HXShape scaled(HXShape shape, double scale) {
+		int n = shape.getVertexCount();
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		for (int v = 0; v < n; v++) {
+			xs[v] = quantize(shape.getX(v) * scale);
+			ys[v] = quantize(shape.getY(v) * scale);
+		}
+		return intern(xs, ys);
+	}
+
+	/**
+	 * Return the cached prototype equal to the given shape, caching it if new.
+	 */
+	public static HXShape intern(HXShape shape) {
+		int n = shape.getVertexCount();
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		for (int v = 0; v < n; v++) {
+			xs[v] = shape.getX(v);
+			ys[v] = shape.getY(v);
+		}
+		return PROTOTYPES.get(new Outline(xs, ys), key -> shape);
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Interns local coordinates, only building the shape and its normals on a miss.
+	 * The arrays are shared by the key and the shape.
+	 */
+	private static HXShape intern(double[] xs, double[] ys) {
+		return PROTOTYPES.get(new Outline(xs, ys), key -> new HXShape(xs, ys));
+	}
+	private static double quantize(double coordinate) {
+		return Math.rint(coordinate / QUANTUM) * QUANTUM;
+	}
+
+	/**
+	 * Andrew's monotone chain convex hull.
+	 * <p>
+	 * Sorts the points by x then y and builds the lower and upper hulls. Collinear
+	 * and duplicate points are dropped. The result is wound with positive signed
+	 * area and starts at the point with the smallest x (then y).
+	 * @param xs - X coordinates.
+	 * @param ys - Y coordinates.
+	 * @param count - Number of points to use.
+	 * @return {hullXs, hullYs}.
+	 */
+	public static double[][] convexHull(double[] xs, double[] ys, int count) {
+		Integer[] order = new Integer[count];
+		for (int p = 0; p < count; p++) {
+			order[p] = p;
+		}
+		Arrays.sort(order, (a, b) -> xs[a] != xs[b] ? Double.compare(xs[a], xs[b]) : Double.compare(ys[a], ys[b]));
+		if (count < 3) {
+			double[] hx = new double[count];
+			double[] hy = new double[count];
+			for (int p = 0; p < count; p++) {
+				hx[p] = xs[order[p]];
+				hy[p] = ys[order[p]];
+			}
+			return new double[][] {hx, hy};
+		}
+
+		int[] hull = new int[count * 2];
+		int k = 0;
+		// Lower hull
+		for (int i = 0; i < count; i++) {
+			while (k >= 2 && cross(xs, ys, hull[k-2], hull[k-1], order[i]) <= 0) {
+				k--;
+			}
+			hull[k++] = order[i];
+		}
+		// Upper hull
+		for (int i = count - 2, lower = k + 1; i >= 0; i--) {
+			while (k >= lower && cross(xs, ys, hull[k-2], hull[k-1], order[i]) <= 0) {
+				k--;
+			}
+			hull[k++] = order[i];
+		}
+		// Last point repeats the first
+		k--;
+		double[] hx = new double[k];
+		double[] hy = new double[k];
+		for (int v = 0; v < k; v++) {
+			hx[v] = xs[hull[v]];
+			hy[v] = ys[hull[v]];
+		}
+		return new double[][] {hx, hy};
+	}
+
+	private static double cross(double[] xs, double[] ys, int o, int a, int b) {
+		return HXVector.cross(xs[a] - xs[o], ys[a] - ys[o], xs[b] - xs[o], ys[b] - ys[o]);
+	}
+
+	public static int getPrototypeCount() {
+		return PROTOTYPES.size();
+	}
+	public static int getDecompositionCount() {
+		return DECOMPOSITIONS.size();
+	}
+
+	/**
+	 * Concurrent map whose values are only weakly held. An entry is dropped once
+	 * its value has been collected, so the cache never holds more than what is
+	 * still in use somewhere. Collected entries are swept on every lookup.
+	 */
+	private static final class WeakCache<V> {
+		private final ConcurrentHashMap<Outline, Entry<V>> map = new ConcurrentHashMap<Outline, Entry<V>>();
+		private final ReferenceQueue<V> collected = new ReferenceQueue<V>();
+
+		V get(Outline key, Function<Outline, V> make) {
+			expunge();
+			while (true) {
+				Entry<V> entry = map.get(key);
+				V value = entry == null ? null : entry.get();
+				if (value != null) {
+					return value;
+				}
+				V created = make.apply(key);
+				Entry<V> fresh = new Entry<V>(key, created, collected);
+				// Lost a race to another thread, use its value instead
+				if (entry == null ? map.putIfAbsent(key, fresh) == null : map.replace(key, entry, fresh)) {
+					return created;
+				}
+			}
+		}
+		int size() {
+			expunge();
+			return map.size();
+		}
+		private void expunge() {
+			Object reference;
+			while ((reference = collected.poll()) != null) {
+				Entry<?> entry = (Entry<?>) reference;
+				map.remove(entry.key, entry);
+			}
+		}
+	}
+	private static final class Entry<V> extends WeakReference<V> {
+		private final Outline key;
+
+		Entry(Outline key, V value, ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Cache key comparing outlines by their local coordinates.
+	 */
+	private static final class Outline {
+		private final double[] xs;
+		private final double[] ys;
+		private final int hash;
+
+		Outline(double[] xs, double[] ys) {
+			this.xs = xs;
+			this.ys = ys;
+			this.hash = 31 * Arrays.hashCode(xs) + Arrays.hashCode(ys);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Outline)) {
+				return false;
+			}
+			Outline other = (Outline) o;
+			return hash == other.hash && Arrays.equals(xs, other.xs) && Arrays.equals(ys, other.ys);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -34,7 +34,7 @@ public class HXVector {
 	}
 	
 	public HXVector normalize() {
-		float magnitude = (float) Math.sqrt(this.x*this.x + this.y*this.y);
+		double magnitude = Math.sqrt(this.x*this.x + this.y*this.y);
 		return new HXVector(this.x / magnitude, this.y / magnitude);
 	}
 	public HXVector translate(double xTranslation, double yTranslation) {
@@ -69,6 +69,107 @@ public class HXVector {
 		return new HXVector(x / magnitude, y / magnitude);
 	}
 	
+	// Mark: IN PLACE
+	// ==============
+	// The following mutate this vector (or an out parameter) instead of allocating,
+	// for use in per tick code. Each returns the vector written to for chaining.
+	
+	public HXVector set(double x, double y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+	public HXVector set(HXVector v) {
+		this.x = v.x;
+		this.y = v.y;
+		return this;
+	}
+	/**
+	 * Set this vector to the perpendicular of v, matching perpendicular().
+	 */
+	public HXVector setPerp(HXVector v) {
+		double vx = v.x;
+		this.x = v.y;
+		this.y = -vx;
+		return this;
+	}
+	public HXVector negateInPlace() {
+		this.x = -this.x;
+		this.y = -this.y;
+		return this;
+	}
+	public HXVector translateInPlace(double xTranslation, double yTranslation) {
+		this.x += xTranslation;
+		this.y += yTranslation;
+		return this;
+	}
+	public HXVector scaleInPlace(double scale) {
+		this.x *= scale;
+		this.y *= scale;
+		return this;
+	}
+	/**
+	 * Scale this vector to a length of 1. A zero vector is left unchanged.
+	 */
+	public HXVector normalizeInPlace() {
+		double magnitude = Math.sqrt(this.x*this.x + this.y*this.y);
+		if (magnitude > 0) {
+			this.x /= magnitude;
+			this.y /= magnitude;
+		}
+		return this;
+	}
+	/**
+	 * Write a - b into out. Out may be a or b.
+	 */
+	public static HXVector subInto(HXVector a, HXVector b, HXVector out) {
+		out.x = a.x - b.x;
+		out.y = a.y - b.y;
+		return out;
+	}
+	/**
+	 * Write a + b into out. Out may be a or b.
+	 */
+	public static HXVector addInto(HXVector a, HXVector b, HXVector out) {
+		out.x = a.x + b.x;
+		out.y = a.y + b.y;
+		return out;
+	}
+	/**
+	 * Write 'a' projected onto 'b' into out, matching proj(). Out may be a or b.
+	 */
+	public static HXVector projInto(HXVector a, HXVector b, HXVector out) {
+		double calc = dot(a, b) / (b.x * b.x + b.y * b.y);
+		out.x = b.x * calc;
+		out.y = b.y * calc;
+		return out;
+	}
+	
+	// Mark: PRIMITIVES
+	// ================
+	// Helpers on raw double components, for code that keeps coordinates in locals or arrays.
+	
+	public static double dot(double ax, double ay, double bx, double by) {
+		return ax * bx + ay * by;
+	}
+	/**
+	 * Z component of the 3D cross product (ax, ay, 0) x (bx, by, 0).
+	 */
+	public static double cross(double ax, double ay, double bx, double by) {
+		return ax * by - ay * bx;
+	}
+	public static double lengthSqrd(double x, double y) {
+		return x * x + y * y;
+	}
+	public static double length(double x, double y) {
+		return Math.sqrt(x * x + y * y);
+	}
+	public static double distanceSqrd(double ax, double ay, double bx, double by) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		return dx * dx + dy * dy;
+	}
+	
 	public String toString() {
 		
 		DecimalFormat df = new DecimalFormat();
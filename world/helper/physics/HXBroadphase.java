@@ -0,0 +1,481 @@
+package world.helper.physics;
+
+import java.util.Arrays;
+import java.util.List;
+
+import world.entities.HXEntity;
+import world.helper.math.HXVector;
+import world.helper.properties.HXCollider;
+
+public class HXBroadphase {
+
+	private final double cellSize;
+
+	// Colliders captured on the last rebuild, indexed by pair and cell entries
+	private HXCollider[] items = new HXCollider[0];
+	private int itemCount = 0;
+	// Swept bounds of every item (bounds now unioned with bounds after this tick's velocity)
+	private double[] minX = new double[0];
+	private double[] minY = new double[0];
+	private double[] maxX = new double[0];
+	private double[] maxY = new double[0];
+
+	// Spatial hash. Cells are hashed into buckets, bucket contents are packed by counting sort
+	private int tableMask = 0;
+	private int[] bucketStart = new int[1];
+	private int[] bucketOwner = new int[0];
+	private int[] bucketCursor = new int[0];
+	private int[] entries = new int[0];
+
+	// Candidate pairs (indices into items) from the last rebuild
+	private int[] pairA = new int[0];
+	private int[] pairB = new int[0];
+	private int pairCount = 0;
+	// Pairs grouped by their first collider: neighbors of item i are neighbors[neighborStart[i]..neighborStart[i+1])
+	private int[] neighborStart = new int[1];
+	private int[] neighborCursor = new int[0];
+	private HXCollider[] neighbors = new HXCollider[0];
+
+	// Query de-duplication. An item is tested at most once per query, when its stamp is behind the counter
+	private int[] queryStamp = new int[0];
+	private int queryCounter = 0;
+	private final HXVector castNormal = new HXVector();
+
+	/**
+	 * Uniform grid broadphase over swept collider bounds.
+	 * <p>
+	 * Grid cells are hashed into a fixed table so the world does not need to be
+	 * bounded. Rebuilt once per tick, after which candidate pairs are available.
+	 * @param cellSize - Width and height of a grid cell in world units.
+	 */
+	public HXBroadphase(double cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Rebuild the grid and candidate pairs from the given colliders.
+	 * <p>
+	 * Each collider is inserted with its bounds swept by its parent's step, so
+	 * that fast moving bodies find everything they could touch during the tick.
+	 * Pairs where both parents are resting (static and not being dragged, or
+	 * asleep) are skipped, as are pairs of colliders sharing one parent.
+	 * @param colliders - All colliders taking part in this tick.
+	 */
+	public void rebuild(List<HXCollider> colliders) {
+		index(colliders);
+		findPairs(bucketOwner.length);
+		groupNeighbors();
+	}
+
+	/**
+	 * Rebuild only the grid, for queries, and drop the candidate pairs.
+	 * <p>
+	 * Used when colliders have moved since the last rebuild but no pairs are needed.
+	 * @param colliders - All colliders to index.
+	 */
+	public void rebuildIndex(List<HXCollider> colliders) {
+		index(colliders);
+		pairCount = 0;
+		groupNeighbors();
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Captures the colliders and their swept bounds and packs them into the hashed grid.
+	 */
+	private void index(List<HXCollider> colliders) {
+		itemCount = 0;
+		ensureItemCapacity(colliders.size());
+		for (HXCollider c : colliders) {
+			items[itemCount] = c;
+			minX[itemCount] = c.getMinX();
+			minY[itemCount] = c.getMinY();
+			maxX[itemCount] = c.getMaxX();
+			maxY[itemCount] = c.getMaxY();
+			HXEntity parent = c.getParent();
+			if (parent != null) {
+				double dx = parent.getxVel() * parent.getStepScale();
+				double dy = parent.getyVel() * parent.getStepScale();
+				if (dx < 0) minX[itemCount] += dx; else maxX[itemCount] += dx;
+				if (dy < 0) minY[itemCount] += dy; else maxY[itemCount] += dy;
+			}
+			itemCount++;
+		}
+		for (int i = itemCount; i < items.length; i++) {
+			items[i] = null;
+		}
+
+		// Size the table from the number of covered cells
+		int cellTotal = 0;
+		for (int i = 0; i < itemCount; i++) {
+			cellTotal += (cell(maxX[i]) - cell(minX[i]) + 1) * (cell(maxY[i]) - cell(minY[i]) + 1);
+		}
+		int tableSize = 64;
+		while (tableSize < cellTotal * 2) {
+			tableSize <<= 1;
+		}
+		if (bucketOwner.length != tableSize) {
+			bucketOwner = new int[tableSize];
+			bucketStart = new int[tableSize + 1];
+			bucketCursor = new int[tableSize];
+		}
+		tableMask = tableSize - 1;
+
+		// Counting pass. An item is counted once per bucket even if several of its cells hash there
+		Arrays.fill(bucketOwner, -1);
+		Arrays.fill(bucketStart, 0);
+		for (int i = 0; i < itemCount; i++) {
+			for (int cx = cell(minX[i]); cx <= cell(maxX[i]); cx++) {
+				for (int cy = cell(minY[i]); cy <= cell(maxY[i]); cy++) {
+					int b = bucket(cx, cy);
+					if (bucketOwner[b] != i) {
+						bucketOwner[b] = i;
+						bucketStart[b + 1]++;
+					}
+				}
+			}
+		}
+		for (int b = 0; b < tableSize; b++) {
+			bucketStart[b + 1] += bucketStart[b];
+		}
+		if (entries.length < bucketStart[tableSize]) {
+			entries = new int[bucketStart[tableSize] * 2];
+		}
+		// Fill pass
+		Arrays.fill(bucketOwner, -1);
+		System.arraycopy(bucketStart, 0, bucketCursor, 0, tableSize);
+		for (int i = 0; i < itemCount; i++) {
+			for (int cx = cell(minX[i]); cx <= cell(maxX[i]); cx++) {
+				for (int cy = cell(minY[i]); cy <= cell(maxY[i]); cy++) {
+					int b = bucket(cx, cy);
+					if (bucketOwner[b] != i) {
+						bucketOwner[b] = i;
+						entries[bucketCursor[b]++] = i;
+					}
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Emits every overlapping pair exactly once. A pair is reported only from the
+	 * bucket of the cell holding the corner of its bounds intersection.
+	 */
+	private void findPairs(int tableSize) {
+		pairCount = 0;
+		for (int b = 0; b < tableSize; b++) {
+			int end = bucketStart[b + 1];
+			for (int s = bucketStart[b]; s < end; s++) {
+				int i = entries[s];
+				for (int t = s + 1; t < end; t++) {
+					int j = entries[t];
+					if (minX[i] > maxX[j] || minX[j] > maxX[i] || minY[i] > maxY[j] || minY[j] > maxY[i]) {
+						continue;
+					}
+					if (bucket(cell(Math.max(minX[i], minX[j])), cell(Math.max(minY[i], minY[j]))) != b) {
+						continue;
+					}
+					if (isResting(items[i]) && isResting(items[j])) {
+						continue;
+					}
+					if (items[i].getParent() != null && items[i].getParent() == items[j].getParent()) {
+						// Parts of the same compound collider
+						continue;
+					}
+					addPair(Math.min(i, j), Math.max(i, j));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Counting sort of the pairs by their first collider, so each collider's
+	 * candidates can be streamed through one batch narrowphase call.
+	 */
+	private void groupNeighbors() {
+		if (neighborStart.length < itemCount + 1) {
+			neighborStart = new int[items.length + 1];
+			neighborCursor = new int[items.length];
+		}
+		Arrays.fill(neighborStart, 0, itemCount + 1, 0);
+		for (int p = 0; p < pairCount; p++) {
+			neighborStart[pairA[p] + 1]++;
+		}
+		for (int i = 0; i < itemCount; i++) {
+			neighborStart[i + 1] += neighborStart[i];
+		}
+		if (neighbors.length < pairCount) {
+			neighbors = new HXCollider[pairA.length];
+		}
+		// Keeps pair order within each group, so results are stable tick to tick
+		System.arraycopy(neighborStart, 0, neighborCursor, 0, itemCount);
+		for (int p = 0; p < pairCount; p++) {
+			neighbors[neighborCursor[pairA[p]]++] = items[pairB[p]];
+		}
+		for (int n = pairCount; n < neighbors.length && neighbors[n] != null; n++) {
+			neighbors[n] = null;
+		}
+	}
+
+	/**
+	 * Cast a ray through the grid built by the last rebuild.
+	 * <p>
+	 * Walks the cells the ray crosses in order (DDA) and tests only the colliders
+	 * listed in those cells, each once. In CLOSEST mode the walk stops as soon as
+	 * the best hit lies before the current cell's exit. Bounds are swept, so they
+	 * still cover colliders that moved during the tick, but colliders added since
+	 * the last rebuild are not found. Not thread safe.
+	 * @param ox - X of the ray origin.
+	 * @param oy - Y of the ray origin.
+	 * @param dx - X of the ray direction.
+	 * @param dy - Y of the ray direction.
+	 * @param maxT - Furthest point along the ray, in units of the direction.
+	 * @param mode - Which hits to report.
+	 * @param ignore - Colliders of this entity are skipped. May be null.
+	 * @param hitsOut - Receives the hits, nearest first except in ANY mode.
+	 * @return Number of hits written to hitsOut.
+	 */
+	public int cast(double ox, double oy, double dx, double dy, double maxT, HXCastMode mode, HXEntity ignore, HXRayHit[] hitsOut) {
+		if (hitsOut.length == 0 || itemCount == 0) {
+			return 0;
+		}
+		nextQueryStamp();
+		int hitCount = 0;
+
+		int cx = cell(ox);
+		int cy = cell(oy);
+		int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+		int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+		// Ray distance to the next vertical and horizontal cell boundary, and between boundaries
+		double nextX = stepX > 0 ? ((cx + 1) * cellSize - ox) / dx : (stepX < 0 ? (cx * cellSize - ox) / dx : Double.POSITIVE_INFINITY);
+		double nextY = stepY > 0 ? ((cy + 1) * cellSize - oy) / dy : (stepY < 0 ? (cy * cellSize - oy) / dy : Double.POSITIVE_INFINITY);
+		double deltaX = stepX != 0 ? cellSize / Math.abs(dx) : Double.POSITIVE_INFINITY;
+		double deltaY = stepY != 0 ? cellSize / Math.abs(dy) : Double.POSITIVE_INFINITY;
+
+		while (true) {
+			int b = bucket(cx, cy);
+			int end = bucketStart[b + 1];
+			for (int s = bucketStart[b]; s < end; s++) {
+				int i = entries[s];
+				if (queryStamp[i] == queryCounter) {
+					continue;
+				}
+				queryStamp[i] = queryCounter;
+				HXCollider c = items[i];
+				if (ignore != null && c.getParent() == ignore) {
+					continue;
+				}
+				double limit = mode == HXCastMode.CLOSEST && hitCount > 0 ? hitsOut[0].getT() : maxT;
+				if (!rayMeetsBounds(ox, oy, dx, dy, limit, i)) {
+					continue;
+				}
+				double t = c.raycast(ox, oy, dx, dy, limit, castNormal);
+				if (t < 0) {
+					continue;
+				}
+				if (mode == HXCastMode.ANY) {
+					hitsOut[0].set(c, t, ox + dx * t, oy + dy * t, castNormal.x, castNormal.y);
+					return 1;
+				}
+				hitCount = insertHit(hitsOut, hitCount, mode == HXCastMode.CLOSEST ? 1 : hitsOut.length, c, t, ox + dx * t, oy + dy * t);
+			}
+
+			double cellExit = Math.min(nextX, nextY);
+			if (cellExit > maxT || (mode == HXCastMode.CLOSEST && hitCount > 0 && hitsOut[0].getT() <= cellExit)) {
+				break;
+			}
+			if (nextX < nextY) {
+				cx += stepX;
+				nextX += deltaX;
+			} else {
+				cy += stepY;
+				nextY += deltaY;
+			}
+		}
+		return hitCount;
+	}
+
+	/**
+	 * Find the colliders whose bounds overlap a box, using the grid from the last rebuild.
+	 * <p>
+	 * Visits only the cells the box covers, or every item if the box covers more
+	 * cells than there are items. Not thread safe.
+	 * @param qMinX - Left of the box.
+	 * @param qMinY - Top of the box.
+	 * @param qMaxX - Right of the box.
+	 * @param qMaxY - Bottom of the box.
+	 * @param out - Receives the colliders. The query stops when it is full.
+	 * @return Number of colliders written to out.
+	 */
+	public int query(double qMinX, double qMinY, double qMaxX, double qMaxY, HXCollider[] out) {
+		int count = 0;
+		if (itemCount == 0 || out.length == 0) {
+			return 0;
+		}
+		int fromX = cell(qMinX);
+		int toX = cell(qMaxX);
+		int fromY = cell(qMinY);
+		int toY = cell(qMaxY);
+		if ((long) (toX - fromX + 1) * (toY - fromY + 1) > itemCount) {
+			for (int i = 0; i < itemCount && count < out.length; i++) {
+				if (boundsOverlap(items[i], qMinX, qMinY, qMaxX, qMaxY)) {
+					out[count++] = items[i];
+				}
+			}
+			return count;
+		}
+		nextQueryStamp();
+		for (int cx = fromX; cx <= toX; cx++) {
+			for (int cy = fromY; cy <= toY; cy++) {
+				int b = bucket(cx, cy);
+				int end = bucketStart[b + 1];
+				for (int s = bucketStart[b]; s < end; s++) {
+					int i = entries[s];
+					if (queryStamp[i] == queryCounter) {
+						continue;
+					}
+					queryStamp[i] = queryCounter;
+					if (boundsOverlap(items[i], qMinX, qMinY, qMaxX, qMaxY)) {
+						out[count++] = items[i];
+						if (count == out.length) {
+							return count;
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	private static boolean boundsOverlap(HXCollider c, double qMinX, double qMinY, double qMaxX, double qMaxY) {
+		return c.getMinX() <= qMaxX && qMinX <= c.getMaxX() && c.getMinY() <= qMaxY && qMinY <= c.getMaxY();
+	}
+
+	private void nextQueryStamp() {
+		if (++queryCounter == 0) {
+			Arrays.fill(queryStamp, 0);
+			queryCounter = 1;
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Slab test of the ray against the swept bounds of an item.
+	 */
+	private boolean rayMeetsBounds(double ox, double oy, double dx, double dy, double maxT, int i) {
+		double enter = 0;
+		double exit = maxT;
+		if (dx == 0) {
+			if (ox < minX[i] || ox > maxX[i]) return false;
+		} else {
+			double t0 = (minX[i] - ox) / dx;
+			double t1 = (maxX[i] - ox) / dx;
+			enter = Math.max(enter, Math.min(t0, t1));
+			exit = Math.min(exit, Math.max(t0, t1));
+		}
+		if (dy == 0) {
+			if (oy < minY[i] || oy > maxY[i]) return false;
+		} else {
+			double t0 = (minY[i] - oy) / dy;
+			double t1 = (maxY[i] - oy) / dy;
+			enter = Math.max(enter, Math.min(t0, t1));
+			exit = Math.min(exit, Math.max(t0, t1));
+		}
+		return enter <= exit;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Insert a hit keeping hitsOut sorted by t, dropping the furthest hit when full.
+	 */
+	private int insertHit(HXRayHit[] hitsOut, int hitCount, int capacity, HXCollider c, double t, double x, double y) {
+		int slot = hitCount;
+		while (slot > 0 && hitsOut[slot - 1].getT() > t) {
+			slot--;
+		}
+		if (slot >= capacity) {
+			return hitCount;
+		}
+		int last = Math.min(hitCount, capacity - 1);
+		for (int h = last; h > slot; h--) {
+			hitsOut[h].set(hitsOut[h - 1]);
+		}
+		hitsOut[slot].set(c, t, x, y, castNormal.x, castNormal.y);
+		return Math.min(hitCount + 1, capacity);
+	}
+
+	private static boolean isResting(HXCollider c) {
+		HXEntity e = c.getParent();
+		return e != null && ((e.isStaticObject() && !e.isInteracting()) || e.isSleeping());
+	}
+
+	private void addPair(int a, int b) {
+		if (pairCount == pairA.length) {
+			int size = Math.max(16, pairCount * 2);
+			pairA = Arrays.copyOf(pairA, size);
+			pairB = Arrays.copyOf(pairB, size);
+		}
+		pairA[pairCount] = a;
+		pairB[pairCount] = b;
+		pairCount++;
+	}
+
+	private void ensureItemCapacity(int n) {
+		if (items.length < n) {
+			int size = Math.max(16, n * 2);
+			items = Arrays.copyOf(items, size);
+			minX = Arrays.copyOf(minX, size);
+			minY = Arrays.copyOf(minY, size);
+			maxX = Arrays.copyOf(maxX, size);
+			maxY = Arrays.copyOf(maxY, size);
+			queryStamp = Arrays.copyOf(queryStamp, size);
+		}
+	}
+
+	private int cell(double v) {
+		return (int) Math.floor(v / cellSize);
+	}
+
+	private int bucket(int cx, int cy) {
+		return ((cx * 73856093) ^ (cy * 19349663)) & tableMask;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public int getPairCount() {
+		return pairCount;
+	}
+	public HXCollider getPairA(int pair) {
+		return items[pairA[pair]];
+	}
+	public HXCollider getPairB(int pair) {
+		return items[pairB[pair]];
+	}
+	/**
+	 * Candidates of collider i are getNeighbors()[getNeighborStart(i)] up to
+	 * getNeighborStart(i + 1). Each pair is listed only under its first collider.
+	 */
+	public int getNeighborStart(int index) {
+		return neighborStart[index];
+	}
+	public HXCollider[] getNeighbors() {
+		return neighbors;
+	}
+	public int getColliderCount() {
+		return itemCount;
+	}
+	public HXCollider getCollider(int index) {
+		return items[index];
+	}
+	public double getCellSize() {
+		return cellSize;
+	}
+}
@@ -0,0 +1,13 @@
+package world.helper.physics;
+
+/**
+ * How many hits a world raycast or segment cast should report.
+ */
+public enum HXCastMode {
+	// Only the nearest hit
+	CLOSEST,
+	// Every hit, nearest first, up to the size of the result buffer
+	ALL,
+	// The first hit found, which is not necessarily the nearest. Cheapest, for line of sight checks
+	ANY
+}
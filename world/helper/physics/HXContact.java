@@ -0,0 +1,73 @@
+package world.helper.physics;
+
+import world.helper.properties.HXCollider;
+
+public class HXContact {
+
+	private HXCollider a;
+	private HXCollider b;
+
+	// Contact points, rebuilt in place every tick the pair keeps touching
+	final HXManifold manifold = new HXManifold();
+	// Deepest penetration over the manifold (or the SAT depth if clipping found no points)
+	double depth;
+	double friction;
+
+	// Tick on which the narrowphase last reported this contact
+	long lastTouched = -1;
+
+	/**
+	 * A persistent contact between two colliders.
+	 * <p>
+	 * Owned by the HXContactSolver's contact cache and recycled through its pool.
+	 * Kept alive across ticks as long as the pair keeps overlapping so its
+	 * manifold's impulses can warm start the solver.
+	 */
+	HXContact() {
+	}
+
+	/**
+	 * Internal usage only.
+	 * <p>
+	 * Reinitialize a pooled contact for a new pair.
+	 * @param a - The collider with the lower id.
+	 * @param b - The collider with the higher id.
+	 */
+	void reset(HXCollider a, HXCollider b) {
+		this.a = a;
+		this.b = b;
+		this.depth = 0;
+		this.lastTouched = -1;
+		manifold.clearImpulses();
+	}
+
+	/**
+	 * Key of the collider pair in the contact cache, independent of pair order.
+	 */
+	static long key(HXCollider a, HXCollider b) {
+		long lo = Math.min(a.getId(), b.getId());
+		long hi = Math.max(a.getId(), b.getId());
+		return (lo << 32) | hi;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public HXCollider getA() {
+		return a;
+	}
+	public HXCollider getB() {
+		return b;
+	}
+	public HXManifold getManifold() {
+		return manifold;
+	}
+	public double getNormalX() {
+		return manifold.normalX;
+	}
+	public double getNormalY() {
+		return manifold.normalY;
+	}
+	public double getDepth() {
+		return depth;
+	}
+}
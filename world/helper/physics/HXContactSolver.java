@@ -0,0 +1,502 @@
+package world.helper.physics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import world.HXPhysicsConstants;
+import world.entities.HXEntity;
+import world.helper.math.HXVector;
+import world.helper.properties.HXCollider;
+
+public class HXContactSolver {
+
+	// Contact cache keyed by collider pair, survives across ticks for warm starting
+	private final HXContactTable cache = new HXContactTable();
+	// Contacts reported this tick, in narrowphase order
+	private final ArrayList<HXContact> active = new ArrayList<HXContact>();
+	// Recycled contacts (and their manifold buffers) from pairs that separated
+	private final ArrayDeque<HXContact> pool = new ArrayDeque<HXContact>();
+
+	// Islands built this tick, and recycled islands kept for the next ones
+	private final ArrayList<HXIsland> islands = new ArrayList<HXIsland>();
+	private final ArrayDeque<HXIsland> islandPool = new ArrayDeque<HXIsland>();
+	// Union-find over the movable bodies of this tick's contacts
+	private final ArrayList<HXEntity> bodies = new ArrayList<HXEntity>();
+	private int[] parent = new int[16];
+	private int[] islandOfRoot = new int[16];
+
+	private int iterations = HXPhysicsConstants.getSolverIterations();
+	private long tick = 0;
+	// Worker pool for islands. Small ticks are solved on the calling thread
+	private ExecutorService executor = ForkJoinPool.commonPool();
+	private boolean parallel = true;
+	private static final int PARALLEL_MIN_CONTACTS = 64;
+
+	/**
+	 * Sequential impulse solver for the contacts found by the narrowphase.
+	 * <p>
+	 * Every contact carries a clipped manifold of up to two points. Relative
+	 * velocity at each point is resolved along the normal (with restitution) and
+	 * the tangent (with friction), including the angular velocity of both bodies
+	 * so off-center contacts produce torque. Remaining penetration is removed with
+	 * a mass weighted position correction. Accumulated impulses are matched across
+	 * ticks by feature id and warm start the next tick, which lets stacks settle in
+	 * a few ticks instead of jittering.
+	 */
+	public HXContactSolver() {
+	}
+
+	/**
+	 * Start collecting contacts for a new tick.
+	 */
+	public void beginTick() {
+		tick++;
+		active.clear();
+	}
+
+	/**
+	 * Report an overlap found by the narrowphase this tick.
+	 * @param a - The first collider.
+	 * @param b - The second collider.
+	 * @param mtv - Minimum translation vector pointing from a toward b, as returned by a.doesOverlap(b).
+	 * @return The persistent contact for this pair.
+	 */
+	public HXContact addContact(HXCollider a, HXCollider b, HXVector mtv) {
+		double depth = mtv.getMagnitude();
+		double nx = 0;
+		double ny = 0;
+		if (depth > 0) {
+			nx = mtv.x / depth;
+			ny = mtv.y / depth;
+		}
+		// Cached contacts always point from the lower id collider
+		if (a.getId() > b.getId()) {
+			HXCollider swap = a;
+			a = b;
+			b = swap;
+			nx = -nx;
+			ny = -ny;
+		}
+		long key = HXContact.key(a, b);
+		HXContact contact = cache.get(key);
+		if (contact == null) {
+			contact = pool.isEmpty() ? new HXContact() : pool.poll();
+			contact.reset(a, b);
+			cache.put(key, contact);
+		} else if (contact.lastTouched != tick - 1) {
+			// Stale impulses from an old contact shouldn't warm start a new one
+			contact.manifold.clearImpulses();
+		}
+		contact.manifold.update(a, b, nx, ny);
+		contact.depth = depth;
+		for (int p = 0; p < contact.manifold.pointCount; p++) {
+			contact.depth = Math.max(contact.depth, contact.manifold.depth[p]);
+		}
+		contact.lastTouched = tick;
+		active.add(contact);
+		return contact;
+	}
+
+	/**
+	 * Solve all contacts reported this tick and recycle pairs that stopped touching.
+	 * <p>
+	 * Contacts are split into islands of connected movable bodies. Each island is
+	 * solved and put to sleep independently, on the worker pool when there is
+	 * more than one island and enough contacts to be worth dispatching.
+	 */
+	public void solve() {
+		for (int s = 0; s < cache.capacity(); s++) {
+			HXContact contact = cache.getSlot(s);
+			if (contact != null && contact.lastTouched != tick) {
+				pool.push(contact);
+			}
+		}
+		// Every contact still cached was touched this tick, so it is in active
+		cache.clear();
+		for (int c = 0; c < active.size(); c++) {
+			HXContact contact = active.get(c);
+			cache.put(HXContact.key(contact.getA(), contact.getB()), contact);
+		}
+
+		buildIslands();
+		if (parallel && islands.size() > 1 && active.size() >= PARALLEL_MIN_CONTACTS) {
+			try {
+				List<Future<Void>> results = executor.invokeAll(islands);
+				for (Future<Void> result : results) {
+					result.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		} else {
+			for (int i = 0; i < islands.size(); i++) {
+				islands.get(i).call();
+			}
+		}
+	}
+
+	/**
+	 * Solve a group of contacts that share no movable bodies with any other group.
+	 * @param contacts - The contacts of one island.
+	 */
+	void solveContacts(List<HXContact> contacts) {
+		for (int c = 0; c < contacts.size(); c++) {
+			preStep(contacts.get(c));
+		}
+		for (int i = 0; i < iterations; i++) {
+			for (int c = 0; c < contacts.size(); c++) {
+				applyImpulse(contacts.get(c));
+			}
+		}
+		for (int c = 0; c < contacts.size(); c++) {
+			correctPosition(contacts.get(c));
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Union-find over the contact graph. Only movable bodies are joined, so a
+	 * static floor under two separate piles doesn't merge them into one island.
+	 * Contacts between two immovable bodies are left out entirely.
+	 */
+	private void buildIslands() {
+		for (int i = 0; i < islands.size(); i++) {
+			islands.get(i).clear();
+			islandPool.push(islands.get(i));
+		}
+		islands.clear();
+		bodies.clear();
+
+		for (int c = 0; c < active.size(); c++) {
+			active.get(c).getA().getParent().setIslandIndex(-1);
+			active.get(c).getB().getParent().setIslandIndex(-1);
+		}
+		for (int c = 0; c < active.size(); c++) {
+			addBody(active.get(c).getA().getParent());
+			addBody(active.get(c).getB().getParent());
+		}
+		for (int c = 0; c < active.size(); c++) {
+			int a = active.get(c).getA().getParent().getIslandIndex();
+			int b = active.get(c).getB().getParent().getIslandIndex();
+			if (a >= 0 && b >= 0) {
+				int rootA = find(a);
+				int rootB = find(b);
+				if (rootA != rootB) {
+					parent[rootA] = rootB;
+				}
+			}
+		}
+
+		for (int b = 0; b < bodies.size(); b++) {
+			islandOfRoot[b] = -1;
+		}
+		for (int b = 0; b < bodies.size(); b++) {
+			islandFor(b).bodies.add(bodies.get(b));
+		}
+		for (int c = 0; c < active.size(); c++) {
+			HXContact contact = active.get(c);
+			int body = contact.getA().getParent().getIslandIndex();
+			if (body < 0) {
+				body = contact.getB().getParent().getIslandIndex();
+			}
+			if (body >= 0) {
+				islandFor(body).contacts.add(contact);
+			}
+		}
+	}
+
+	private void addBody(HXEntity e) {
+		if (e.getIslandIndex() >= 0 || e.getInverseMass() == 0) {
+			return;
+		}
+		int index = bodies.size();
+		if (index == parent.length) {
+			parent = Arrays.copyOf(parent, index * 2);
+			islandOfRoot = Arrays.copyOf(islandOfRoot, index * 2);
+		}
+		parent[index] = index;
+		e.setIslandIndex(index);
+		bodies.add(e);
+	}
+
+	private int find(int body) {
+		while (parent[body] != body) {
+			parent[body] = parent[parent[body]];
+			body = parent[body];
+		}
+		return body;
+	}
+
+	private HXIsland islandFor(int body) {
+		int root = find(body);
+		if (islandOfRoot[root] < 0) {
+			HXIsland island = islandPool.isEmpty() ? new HXIsland(this) : islandPool.pop();
+			islandOfRoot[root] = islands.size();
+			islands.add(island);
+		}
+		return islands.get(islandOfRoot[root]);
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Computes effective masses and restitution targets for every manifold point,
+	 * then applies the impulses carried over from the previous tick.
+	 */
+	private void preStep(HXContact c) {
+		HXManifold m = c.manifold;
+		HXEntity a = c.getA().getParent();
+		HXEntity b = c.getB().getParent();
+		HXVector centerA = c.getA().getCenter();
+		HXVector centerB = c.getB().getCenter();
+		double invA = a.getInverseMass();
+		double invB = b.getInverseMass();
+		double invIA = a.getInverseInertia();
+		double invIB = b.getInverseInertia();
+		double restitution = Math.max(a.getRestitution(), b.getRestitution());
+		c.friction = Math.sqrt(a.getFriction() * b.getFriction());
+
+		double nx = m.normalX;
+		double ny = m.normalY;
+		double tx = -ny;
+		double ty = nx;
+		for (int p = 0; p < m.pointCount; p++) {
+			double rax = m.pointX[p] - centerA.x;
+			double ray = m.pointY[p] - centerA.y;
+			double rbx = m.pointX[p] - centerB.x;
+			double rby = m.pointY[p] - centerB.y;
+
+			double rnA = rax * ny - ray * nx;
+			double rnB = rbx * ny - rby * nx;
+			double kNormal = invA + invB + invIA * rnA * rnA + invIB * rnB * rnB;
+			m.normalMass[p] = kNormal > 0 ? 1 / kNormal : 0;
+
+			double rtA = rax * ty - ray * tx;
+			double rtB = rbx * ty - rby * tx;
+			double kTangent = invA + invB + invIA * rtA * rtA + invIB * rtB * rtB;
+			m.tangentMass[p] = kTangent > 0 ? 1 / kTangent : 0;
+
+			double vn = relativeVelocityX(a, b, rax, ray, rbx, rby) * nx + relativeVelocityY(a, b, rax, ray, rbx, rby) * ny;
+			m.restitutionBias[p] = vn < -HXPhysicsConstants.getRestitutionThreshold() ? -restitution * vn : 0;
+
+			// Warm start
+			double px = m.normalImpulse[p] * nx + m.tangentImpulse[p] * tx;
+			double py = m.normalImpulse[p] * ny + m.tangentImpulse[p] * ty;
+			applyToBodies(a, b, invA, invB, invIA, invIB, rax, ray, rbx, rby, px, py);
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * One sequential impulse step over the manifold points. Accumulated impulses
+	 * are clamped rather than the per step impulse, so early iterations can be
+	 * undone by later ones.
+	 */
+	private void applyImpulse(HXContact c) {
+		HXManifold m = c.manifold;
+		HXEntity a = c.getA().getParent();
+		HXEntity b = c.getB().getParent();
+		HXVector centerA = c.getA().getCenter();
+		HXVector centerB = c.getB().getCenter();
+		double invA = a.getInverseMass();
+		double invB = b.getInverseMass();
+		double invIA = a.getInverseInertia();
+		double invIB = b.getInverseInertia();
+
+		double nx = m.normalX;
+		double ny = m.normalY;
+		double tx = -ny;
+		double ty = nx;
+		for (int p = 0; p < m.pointCount; p++) {
+			if (m.normalMass[p] == 0) {
+				continue;
+			}
+			double rax = m.pointX[p] - centerA.x;
+			double ray = m.pointY[p] - centerA.y;
+			double rbx = m.pointX[p] - centerB.x;
+			double rby = m.pointY[p] - centerB.y;
+
+			// Normal
+			double vn = relativeVelocityX(a, b, rax, ray, rbx, rby) * nx + relativeVelocityY(a, b, rax, ray, rbx, rby) * ny;
+			double dPn = m.normalMass[p] * (-vn + m.restitutionBias[p]);
+			double pn0 = m.normalImpulse[p];
+			m.normalImpulse[p] = Math.max(pn0 + dPn, 0);
+			dPn = m.normalImpulse[p] - pn0;
+			applyToBodies(a, b, invA, invB, invIA, invIB, rax, ray, rbx, rby, dPn * nx, dPn * ny);
+
+			// Friction
+			double vt = relativeVelocityX(a, b, rax, ray, rbx, rby) * tx + relativeVelocityY(a, b, rax, ray, rbx, rby) * ty;
+			double dPt = m.tangentMass[p] * -vt;
+			double maxPt = c.friction * m.normalImpulse[p];
+			double pt0 = m.tangentImpulse[p];
+			m.tangentImpulse[p] = Math.max(-maxPt, Math.min(pt0 + dPt, maxPt));
+			dPt = m.tangentImpulse[p] - pt0;
+			applyToBodies(a, b, invA, invB, invIA, invIB, rax, ray, rbx, rby, dPt * tx, dPt * ty);
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Pushes the bodies apart by the penetration beyond the allowed slop, split
+	 * by inverse mass so light bodies move more than heavy ones.
+	 */
+	private void correctPosition(HXContact c) {
+		double invA = c.getA().getParent().getInverseMass();
+		double invB = c.getB().getParent().getInverseMass();
+		if (invA + invB == 0) {
+			return;
+		}
+		double excess = c.depth - HXPhysicsConstants.getPenetrationSlop();
+		if (excess <= 0) {
+			return;
+		}
+		double correction = excess * HXPhysicsConstants.getCorrectionPercent() / (invA + invB);
+		double nx = c.manifold.normalX;
+		double ny = c.manifold.normalY;
+		if (invA > 0) {
+			c.getA().getParent().translateBy(-nx * correction * invA, -ny * correction * invA);
+		}
+		if (invB > 0) {
+			c.getB().getParent().translateBy(nx * correction * invB, ny * correction * invB);
+		}
+	}
+
+	// Velocity of b relative to a at a contact point, including angular velocity (w x r)
+	private static double relativeVelocityX(HXEntity a, HXEntity b, double rax, double ray, double rbx, double rby) {
+		return (b.getxVel() - b.getRotationalVelocity() * rby) - (a.getxVel() - a.getRotationalVelocity() * ray);
+	}
+	private static double relativeVelocityY(HXEntity a, HXEntity b, double rax, double ray, double rbx, double rby) {
+		return (b.getyVel() + b.getRotationalVelocity() * rbx) - (a.getyVel() + a.getRotationalVelocity() * rax);
+	}
+
+	private static void applyToBodies(HXEntity a, HXEntity b, double invA, double invB, double invIA, double invIB,
+			double rax, double ray, double rbx, double rby, double px, double py) {
+		if (invA > 0) {
+			a.setVelocity(a.getxVel() - px * invA, a.getyVel() - py * invA);
+		}
+		if (invIA > 0) {
+			a.setRotationalVelocity(a.getRotationalVelocity() - invIA * (rax * py - ray * px));
+		}
+		if (invB > 0) {
+			b.setVelocity(b.getxVel() + px * invB, b.getyVel() + py * invB);
+		}
+		if (invIB > 0) {
+			b.setRotationalVelocity(b.getRotationalVelocity() + invIB * (rbx * py - rby * px));
+		}
+	}
+
+	/**
+	 * Drop every cached contact and island, for instance before restoring a snapshot.
+	 */
+	public void clear() {
+		for (int s = 0; s < cache.capacity(); s++) {
+			if (cache.getSlot(s) != null) {
+				pool.push(cache.getSlot(s));
+			}
+		}
+		cache.clear();
+		active.clear();
+		for (int i = 0; i < islands.size(); i++) {
+			islands.get(i).clear();
+			islandPool.push(islands.get(i));
+		}
+		islands.clear();
+	}
+
+	/**
+	 * Recreate a contact as if it was touched on the last tick.
+	 * <p>
+	 * Used when restoring a snapshot, so the restored pair warm starts exactly like
+	 * the original would have on the next tick.
+	 * @param a - The first collider.
+	 * @param b - The second collider.
+	 * @param pointCount - Number of manifold points.
+	 * @param featureIds - Feature id of each point.
+	 * @param normalImpulses - Accumulated normal impulse of each point.
+	 * @param tangentImpulses - Accumulated tangent impulse of each point.
+	 */
+	public void restoreContact(HXCollider a, HXCollider b, int pointCount, int[] featureIds, double[] normalImpulses, double[] tangentImpulses) {
+		if (a.getId() > b.getId()) {
+			HXCollider swap = a;
+			a = b;
+			b = swap;
+		}
+		HXContact contact = pool.isEmpty() ? new HXContact() : pool.poll();
+		contact.reset(a, b);
+		HXManifold manifold = contact.manifold;
+		manifold.pointCount = Math.min(pointCount, HXManifold.MAX_POINTS);
+		for (int p = 0; p < manifold.pointCount; p++) {
+			manifold.featureId[p] = featureIds[p];
+			manifold.normalImpulse[p] = normalImpulses[p];
+			manifold.tangentImpulse[p] = tangentImpulses[p];
+		}
+		contact.lastTouched = tick;
+		cache.put(HXContact.key(a, b), contact);
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	/**
+	 * Contacts kept for warm starting, copied into a new collection. After solve()
+	 * these are exactly the pairs touched this tick.
+	 */
+	public Collection<HXContact> getCachedContacts() {
+		ArrayList<HXContact> contacts = new ArrayList<HXContact>(cache.size());
+		for (int s = 0; s < cache.capacity(); s++) {
+			if (cache.getSlot(s) != null) {
+				contacts.add(cache.getSlot(s));
+			}
+		}
+		return Collections.unmodifiableCollection(contacts);
+	}
+	public int getIterations() {
+		return iterations;
+	}
+	/**
+	 * @param iterations - Number of impulse passes over all contacts per tick. More
+	 * iterations give stiffer stacks at a higher cost.
+	 */
+	public void setIterations(int iterations) {
+		this.iterations = Math.max(1, iterations);
+	}
+	public ArrayList<HXContact> getActiveContacts() {
+		return active;
+	}
+	public int getCachedContactCount() {
+		return cache.size();
+	}
+	public int getPooledContactCount() {
+		return pool.size();
+	}
+	public ArrayList<HXIsland> getIslands() {
+		return islands;
+	}
+	/**
+	 * @param executor - Worker pool islands are dispatched to. Defaults to the common ForkJoinPool.
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+	/**
+	 * @param parallel - False to solve every island on the calling thread.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	public boolean isParallel() {
+		return parallel;
+	}
+}
@@ -0,0 +1,106 @@
+package world.helper.physics;
+
+import java.util.Arrays;
+
+class HXContactTable {
+
+	private static final int MIN_CAPACITY = 64;
+
+	// Open addressing with linear probing. A null value marks an empty slot
+	private long[] keys = new long[MIN_CAPACITY];
+	private HXContact[] values = new HXContact[MIN_CAPACITY];
+	private int size = 0;
+
+	/**
+	 * Contacts by collider pair key, for the HXContactSolver's cache.
+	 * <p>
+	 * Keys stay primitive longs, so lookups and inserts on the narrowphase's hot
+	 * path never box a key or allocate an entry. The table doubles when it is
+	 * half full and never shrinks, so after the first busy ticks it doesn't
+	 * allocate at all. There is no single removal: the solver clears the table
+	 * and puts back the contacts it keeps.
+	 */
+	HXContactTable() {
+	}
+
+	HXContact get(long key) {
+		int mask = values.length - 1;
+		for (int slot = slotOf(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Insert a contact, replacing the one under the same key.
+	 */
+	void put(long key, HXContact contact) {
+		if ((size + 1) * 2 > values.length) {
+			grow();
+		}
+		int mask = values.length - 1;
+		int slot = slotOf(key, mask);
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				values[slot] = contact;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = contact;
+		size++;
+	}
+
+	void clear() {
+		if (size > 0) {
+			Arrays.fill(values, null);
+			size = 0;
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Doubles the table and reinserts every contact.
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		HXContact[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new HXContact[oldValues.length * 2];
+		size = 0;
+		for (int s = 0; s < oldValues.length; s++) {
+			if (oldValues[s] != null) {
+				put(oldKeys[s], oldValues[s]);
+			}
+		}
+	}
+
+	private static int slotOf(long key, int mask) {
+		// Pair keys put ids in both halves, so mix them all before masking
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	int size() {
+		return size;
+	}
+	/**
+	 * @return Number of slots, for iterating with getSlot().
+	 */
+	int capacity() {
+		return values.length;
+	}
+	/**
+	 * @return The contact in a slot, or null if it is empty.
+	 */
+	HXContact getSlot(int slot) {
+		return values[slot];
+	}
+
+}
@@ -0,0 +1,76 @@
+package world.helper.physics;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+import world.HXPhysicsConstants;
+import world.entities.HXEntity;
+
+public class HXIsland implements Callable<Void> {
+
+	private final HXContactSolver solver;
+
+	// Contacts and movable bodies connected through them. Static bodies are never part of an island
+	final ArrayList<HXContact> contacts = new ArrayList<HXContact>();
+	final ArrayList<HXEntity> bodies = new ArrayList<HXEntity>();
+
+	/**
+	 * A group of movable bodies connected by contacts, found each tick by the
+	 * HXContactSolver.
+	 * <p>
+	 * No body or contact belongs to two islands, so islands can be solved on
+	 * different threads without locking. Static and dragged bodies may touch many
+	 * islands but are only ever read by the solver.
+	 * @param solver - The solver that owns and recycles this island.
+	 */
+	HXIsland(HXContactSolver solver) {
+		this.solver = solver;
+	}
+
+	void clear() {
+		contacts.clear();
+		bodies.clear();
+	}
+
+	/**
+	 * Solve this island's contacts then put its bodies to sleep if all of them
+	 * have been resting long enough, otherwise keep them all awake.
+	 */
+	@Override
+	public Void call() {
+		solver.solveContacts(contacts);
+
+		double linear = HXPhysicsConstants.getSleepLinearTolerance();
+		double angular = HXPhysicsConstants.getSleepAngularTolerance();
+		int minSleepTime = Integer.MAX_VALUE;
+		for (int b = 0; b < bodies.size(); b++) {
+			HXEntity body = bodies.get(b);
+			double speedSqrd = body.getxVel() * body.getxVel() + body.getyVel() * body.getyVel();
+			if (body.isInteracting() || speedSqrd > linear * linear || Math.abs(body.getRotationalVelocity()) > angular) {
+				body.setSleepTime(0);
+			} else {
+				body.setSleepTime(body.getSleepTime() + 1);
+			}
+			minSleepTime = Math.min(minSleepTime, body.getSleepTime());
+		}
+		boolean sleep = minSleepTime >= HXPhysicsConstants.getSleepTicks();
+		for (int b = 0; b < bodies.size(); b++) {
+			if (sleep) {
+				bodies.get(b).sleep();
+			} else if (bodies.get(b).isSleeping()) {
+				// A sleeping body touched by an awake island wakes with it
+				bodies.get(b).wake();
+			}
+		}
+		return null;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public ArrayList<HXContact> getContacts() {
+		return contacts;
+	}
+	public ArrayList<HXEntity> getBodies() {
+		return bodies;
+	}
+}
@@ -0,0 +1,254 @@
+package world.helper.physics;
+
+import world.helper.math.HXVector;
+import world.helper.properties.HXCollider;
+
+public class HXManifold {
+
+	public static final int MAX_POINTS = 2;
+
+	// Feature id layout: reference edge | incident edge << 8 | point origin << 16 | flip << 20
+	private static final int ORIGIN_INCIDENT_START = 0;
+	private static final int ORIGIN_INCIDENT_END = 1;
+	private static final int ORIGIN_CLIP_START = 2;
+	private static final int ORIGIN_CLIP_END = 3;
+
+	// Unit normal pointing from collider a toward collider b
+	double normalX;
+	double normalY;
+
+	int pointCount = 0;
+	final double[] pointX = new double[MAX_POINTS];
+	final double[] pointY = new double[MAX_POINTS];
+	final double[] depth = new double[MAX_POINTS];
+	final int[] featureId = new int[MAX_POINTS];
+
+	// Solver state per point, matched across ticks by feature id
+	final double[] normalImpulse = new double[MAX_POINTS];
+	final double[] tangentImpulse = new double[MAX_POINTS];
+	final double[] normalMass = new double[MAX_POINTS];
+	final double[] tangentMass = new double[MAX_POINTS];
+	final double[] restitutionBias = new double[MAX_POINTS];
+
+	// Scratch for clipping, reused to avoid allocating per pair
+	private final double[] clipX = new double[MAX_POINTS];
+	private final double[] clipY = new double[MAX_POINTS];
+	private final int[] clipOrigin = new int[MAX_POINTS];
+	private final double[] oldImpulseN = new double[MAX_POINTS];
+	private final double[] oldImpulseT = new double[MAX_POINTS];
+	private final int[] oldFeatureId = new int[MAX_POINTS];
+
+	/**
+	 * Contact points between two overlapping convex colliders.
+	 * <p>
+	 * Instances are pooled by the HXContactSolver and rebuilt in place every tick
+	 * the pair keeps touching. Each point carries a feature id naming the edges it
+	 * came from so its impulses can be carried over to the next tick.
+	 */
+	HXManifold() {
+	}
+
+	/**
+	 * Rebuild the manifold with reference/incident edge clipping.
+	 * <p>
+	 * Picks the edge of each shape most perpendicular to the normal. The more
+	 * perpendicular of the two is the reference edge, the other is clipped against
+	 * its side planes and any points past the reference face become contacts.
+	 * Impulses from points with matching feature ids are kept, others reset.
+	 * @param a - The first collider.
+	 * @param b - The second collider.
+	 * @param nx - X of the unit normal pointing from a toward b.
+	 * @param ny - Y of the unit normal pointing from a toward b.
+	 */
+	void update(HXCollider a, HXCollider b, double nx, double ny) {
+		int oldCount = pointCount;
+		for (int p = 0; p < oldCount; p++) {
+			oldImpulseN[p] = normalImpulse[p];
+			oldImpulseT[p] = tangentImpulse[p];
+			oldFeatureId[p] = featureId[p];
+		}
+		normalX = nx;
+		normalY = ny;
+		pointCount = 0;
+		if (nx != 0 || ny != 0) {
+			clip(a.getVertices(), b.getVertices(), nx, ny);
+		}
+		for (int p = 0; p < pointCount; p++) {
+			normalImpulse[p] = 0;
+			tangentImpulse[p] = 0;
+			for (int o = 0; o < oldCount; o++) {
+				if (oldFeatureId[o] == featureId[p]) {
+					normalImpulse[p] = oldImpulseN[o];
+					tangentImpulse[p] = oldImpulseT[o];
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forget cached impulses, used when a pair starts touching again after a gap.
+	 */
+	void clearImpulses() {
+		for (int p = 0; p < MAX_POINTS; p++) {
+			normalImpulse[p] = 0;
+			tangentImpulse[p] = 0;
+		}
+		pointCount = 0;
+	}
+
+	private void clip(HXVector[] aVerts, HXVector[] bVerts, double nx, double ny) {
+		int aEdge = bestEdge(aVerts, nx, ny);
+		int bEdge = bestEdge(bVerts, -nx, -ny);
+
+		// The reference edge is the one most perpendicular to the normal
+		boolean flip = Math.abs(edgeDot(bVerts, bEdge, nx, ny)) < Math.abs(edgeDot(aVerts, aEdge, nx, ny));
+		HXVector[] ref = flip ? bVerts : aVerts;
+		HXVector[] inc = flip ? aVerts : bVerts;
+		int refEdge = flip ? bEdge : aEdge;
+		int incEdge = flip ? aEdge : bEdge;
+
+		HXVector r1 = ref[refEdge];
+		HXVector r2 = ref[(refEdge + 1) % ref.length];
+		double refX = r2.x - r1.x;
+		double refY = r2.y - r1.y;
+		double refLength = Math.sqrt(refX * refX + refY * refY);
+		if (refLength == 0) {
+			return;
+		}
+		refX /= refLength;
+		refY /= refLength;
+
+		HXVector i1 = inc[incEdge];
+		HXVector i2 = inc[(incEdge + 1) % inc.length];
+		clipX[0] = i1.x;
+		clipY[0] = i1.y;
+		clipOrigin[0] = ORIGIN_INCIDENT_START;
+		clipX[1] = i2.x;
+		clipY[1] = i2.y;
+		clipOrigin[1] = ORIGIN_INCIDENT_END;
+
+		// Clip against both side planes of the reference edge
+		if (clipSegment(refX, refY, refX * r1.x + refY * r1.y, ORIGIN_CLIP_START) < 2) {
+			return;
+		}
+		if (clipSegment(-refX, -refY, -(refX * r2.x + refY * r2.y), ORIGIN_CLIP_END) < 2) {
+			return;
+		}
+
+		// Reference face normal, facing out of the reference shape
+		double faceX = -refY;
+		double faceY = refX;
+		double outX = flip ? -nx : nx;
+		double outY = flip ? -ny : ny;
+		if (faceX * outX + faceY * outY < 0) {
+			faceX = -faceX;
+			faceY = -faceY;
+		}
+		double face = faceX * r1.x + faceY * r1.y;
+		for (int c = 0; c < 2; c++) {
+			double d = face - (faceX * clipX[c] + faceY * clipY[c]);
+			if (d >= 0) {
+				pointX[pointCount] = clipX[c];
+				pointY[pointCount] = clipY[c];
+				depth[pointCount] = d;
+				featureId[pointCount] = (refEdge & 0xFF) | (incEdge & 0xFF) << 8 | clipOrigin[c] << 16 | (flip ? 1 : 0) << 20;
+				pointCount++;
+			}
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Keeps the part of the clip segment where dot(dir, p) >= offset.
+	 * @return Number of points remaining.
+	 */
+	private int clipSegment(double dirX, double dirY, double offset, int origin) {
+		double d0 = dirX * clipX[0] + dirY * clipY[0] - offset;
+		double d1 = dirX * clipX[1] + dirY * clipY[1] - offset;
+		if (d0 >= 0 && d1 >= 0) {
+			return 2;
+		}
+		if (d0 < 0 && d1 < 0) {
+			return 0;
+		}
+		double t = d0 / (d0 - d1);
+		double x = clipX[0] + (clipX[1] - clipX[0]) * t;
+		double y = clipY[0] + (clipY[1] - clipY[0]) * t;
+		int replace = d0 < 0 ? 0 : 1;
+		clipX[replace] = x;
+		clipY[replace] = y;
+		clipOrigin[replace] = origin;
+		return 2;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Finds the vertex farthest along the direction, then picks whichever of its
+	 * two edges is more perpendicular to the direction.
+	 * @return Index of the start vertex of the chosen edge.
+	 */
+	private static int bestEdge(HXVector[] verts, double dirX, double dirY) {
+		int n = verts.length;
+		int best = 0;
+		double max = verts[0].x * dirX + verts[0].y * dirY;
+		for (int v = 1; v < n; v++) {
+			double d = verts[v].x * dirX + verts[v].y * dirY;
+			if (d > max) {
+				max = d;
+				best = v;
+			}
+		}
+		int prev = (best - 1 + n) % n;
+		int next = (best + 1) % n;
+		double prevDot = Math.abs(normalizedEdgeDot(verts[prev], verts[best], dirX, dirY));
+		double nextDot = Math.abs(normalizedEdgeDot(verts[best], verts[next], dirX, dirY));
+		return prevDot <= nextDot ? prev : best;
+	}
+
+	private static double edgeDot(HXVector[] verts, int edge, double dirX, double dirY) {
+		return normalizedEdgeDot(verts[edge], verts[(edge + 1) % verts.length], dirX, dirY);
+	}
+
+	private static double normalizedEdgeDot(HXVector from, HXVector to, double dirX, double dirY) {
+		double ex = to.x - from.x;
+		double ey = to.y - from.y;
+		double length = Math.sqrt(ex * ex + ey * ey);
+		if (length == 0) {
+			return 1;
+		}
+		return (ex * dirX + ey * dirY) / length;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public double getNormalImpulse(int point) {
+		return normalImpulse[point];
+	}
+	public double getTangentImpulse(int point) {
+		return tangentImpulse[point];
+	}
+	public int getPointCount() {
+		return pointCount;
+	}
+	public double getPointX(int point) {
+		return pointX[point];
+	}
+	public double getPointY(int point) {
+		return pointY[point];
+	}
+	public double getDepth(int point) {
+		return depth[point];
+	}
+	public int getFeatureId(int point) {
+		return featureId[point];
+	}
+	public double getNormalX() {
+		return normalX;
+	}
+	public double getNormalY() {
+		return normalY;
+	}
+}
@@ -0,0 +1,63 @@
+package world.helper.physics;
+
+import world.helper.properties.HXCollider;
+
+public class HXRayHit {
+
+	private HXCollider collider;
+	// Distance along the cast, in units of the cast direction
+	private double t;
+	private double x;
+	private double y;
+	private double normalX;
+	private double normalY;
+
+	/**
+	 * Reusable result of a raycast or segment cast.
+	 * <p>
+	 * Callers allocate a buffer of these once and pass it to every cast, which
+	 * overwrites the entries it reports.
+	 */
+	public HXRayHit() {
+	}
+
+	void set(HXCollider collider, double t, double x, double y, double normalX, double normalY) {
+		this.collider = collider;
+		this.t = t;
+		this.x = x;
+		this.y = y;
+		this.normalX = normalX;
+		this.normalY = normalY;
+	}
+
+	void set(HXRayHit other) {
+		set(other.collider, other.t, other.x, other.y, other.normalX, other.normalY);
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public HXCollider getCollider() {
+		return collider;
+	}
+	/**
+	 * Distance to the hit for a raycast, or fraction of the segment for a segment cast.
+	 */
+	public double getT() {
+		return t;
+	}
+	public double getX() {
+		return x;
+	}
+	public double getY() {
+		return y;
+	}
+	public double getNormalX() {
+		return normalX;
+	}
+	public double getNormalY() {
+		return normalY;
+	}
+	public String toString() {
+		return "HXRayHit(t: " + t + ", at: " + x + ", " + y + ")";
+	}
+}
@@ -1,58 +1,101 @@
 package world.helper.properties;
 
-import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import world.entities.HXEntity;
+import world.helper.math.HXProjection;
+import world.helper.math.HXShape;
+import world.helper.math.HXShapeFactory;
 import world.helper.math.HXVector;
 
 public class HXCollider {
 	
+	private static final AtomicInteger NEXT_ID = new AtomicInteger();
+	
+	// Identifies this collider in contact caches, stable for its lifetime. Renewed by reset()
+	private int id = NEXT_ID.getAndIncrement();
 	private HXEntity parent;
 	
-	// Collider vertices
+	// Shared local space geometry, never modified
+	private HXShape shape;
+	// Rotation of the shape in radians and its cached trigonometry
+	private double angle = 0;
+	private double cos = 1;
+	private double sin = 0;
+	// Collider vertices, derived from the shape and transform
 	private HXVector[] vertices;
-	// Average center of verties
+	// Same vertices packed as flat coordinate arrays for projection kernels
+	private double[] xs;
+	private double[] ys;
+	// Average center of verties, the origin of the shape
 	private HXVector center = new HXVector(0, 0);;
-	// Bounding circle radius
-	private double boundingRadius = 0;
+	// Axis aligned bounding box, kept current by every transformation
+	private double minX = 0;
+	private double minY = 0;
+	private double maxX = 0;
+	private double maxY = 0;
 	
 	// Collider Results
 	boolean colliding = true;
 	HXVector mtvDirection = new HXVector();
 	double mtvMagnitude = 0;
 	boolean mtvMagnitudeSet = false;
+	// Scratch reused by every test so collision checks don't allocate
+	private final HXVector axis = new HXVector();
+	private final HXVector minMaxThis = new HXVector();
+	private final HXVector minMaxPeer = new HXVector();
+	// This collider's own axes and projections, cached once per query by cacheQueryAxes()
+	private double[] queryAxisX = new double[0];
+	private double[] queryAxisY = new double[0];
+	private double[] queryMin = new double[0];
+	private double[] queryMax = new double[0];
+	
+	// Sweep Results
+	private double sweepEnter = 0;
+	private double sweepExit = 1;
+	private boolean sweepEnterSet = false;
+	private HXVector impactNormal = new HXVector();
 	
 	// Constructor
 	public HXCollider(HXVector[] vertices, HXEntity parent) {
 		this.parent = parent;
-		
-		this.vertices = new HXVector[vertices.length];
-		this.vertices = vertices;
-		
-		if (vertices.length != 0) {
-			
-			// Calculate center
-			double midX = 0;
-			double midY = 0;
-			for (int v = 0; v < vertices.length; v++) {
-				midX += vertices[v].x;
-				midY += vertices[v].y;
-			}
-			midX /= vertices.length;
-			midY /= vertices.length;
-			this.center.x = midX;
-			this.center.y = midY;
-		
-			// Calculate smallest circle that encompasses all vertices
-			double farthestDistance = 0;
-			for (int v = 0; v < vertices.length; v++) {
-				double distSqrd = Math.pow(vertices[v].x - midX, 2) + Math.pow(vertices[v].y - midY, 2);
-				if (distSqrd > farthestDistance) {
-					farthestDistance = distSqrd;
-				}
-			}
-			this.boundingRadius = Math.sqrt(farthestDistance);
-		}
+		// Shape is the convex hull of the given vertices, centered on their average
+		setShape(HXShapeFactory.polygon(vertices, center));
+	}
+	public HXCollider(HXShape shape, double centerX, double centerY, double angle, HXEntity parent) {
+		this.parent = parent;
+		this.center.set(centerX, centerY);
+		this.angle = angle;
+		this.cos = StrictMath.cos(angle);
+		this.sin = StrictMath.sin(angle);
+		setShape(shape);
+	}
+	
+	/**
+	 * Reuse the collider for a recycled entity, as if newly constructed.
+	 * <p>
+	 * Vertex storage is kept when the vertex count matches. The collider takes a
+	 * new id so contacts cached for its previous life never warm start the new one.
+	 * @param shape - Shared local space geometry.
+	 * @param centerX - X of the center.
+	 * @param centerY - Y of the center.
+	 * @param angle - Rotation in radians.
+	 */
+	public void reset(HXShape shape, double centerX, double centerY, double angle) {
+		this.id = NEXT_ID.getAndIncrement();
+		this.center.set(centerX, centerY);
+		this.angle = angle;
+		this.cos = StrictMath.cos(angle);
+		this.sin = StrictMath.sin(angle);
+		colliding = true;
+		mtvDirection.set(0, 0);
+		mtvMagnitude = 0;
+		mtvMagnitudeSet = false;
+		sweepEnter = 0;
+		sweepExit = 1;
+		sweepEnterSet = false;
+		impactNormal.set(0, 0);
+		setShape(shape);
 	}
 	
 	// Mark: TRANSFORMATIONS
@@ -71,45 +114,128 @@ public class HXCollider {
 		for (int v = 0; v < vertices.length; v++) {
 			vertices[v].x += x;
 			vertices[v].y += y;
+			xs[v] += x;
+			ys[v] += y;
 		}
+		minX += x;
+		minY += y;
+		maxX += x;
+		maxY += y;
 	}
 	/**
 	 * Rotate the collider.
 	 * <p>
-	 * Applies a rotation to the vertices of the collider.
+	 * Accumulates the rotation into the collider's angle and rebuilds the vertices
+	 * from the local shape. Vertices are never rotated from their previous world
+	 * positions, so rounding error can't build up and distort the shape over time.
+	 * Trigonometry goes through StrictMath so results are bit identical on every JVM.
 	 * @param rads - The amount in radians to rotate the collider.
 	 * @param anchor - The point around which to rotate the collider.
 	 */
 	public void rotateBy(double rads, HXVector anchor) {
-		for (int v = 0; v < vertices.length; v++) {
-			
-			// The following has been converted to BigDecimal to avoid (floating point) rounding errors
-			// vertices[v].x = anchor.x + (vertices[v].x - anchor.x) * Math.cos(rads) - (vertices[v].y - anchor.y) * Math.sin(rads);
-			// vertices[v].y = anchor.y + (vertices[v].x - anchor.x) * Math.sin(rads) + (vertices[v].y - anchor.y) * Math.cos(rads);
-			
-			BigDecimal t0 = BigDecimal.valueOf(Math.cos(rads)).multiply(BigDecimal.valueOf(vertices[v].x - anchor.x));
-			BigDecimal t1 = BigDecimal.valueOf(Math.sin(rads)).multiply(BigDecimal.valueOf(vertices[v].y - anchor.y));
-			BigDecimal t2 = BigDecimal.valueOf(Math.sin(rads)).multiply(BigDecimal.valueOf(vertices[v].x - anchor.x));
-			BigDecimal t3 = BigDecimal.valueOf(Math.cos(rads)).multiply(BigDecimal.valueOf(vertices[v].y - anchor.y));
-			
-			vertices[v].x = t0.subtract(t1).add(BigDecimal.valueOf(anchor.x)).doubleValue();
-			vertices[v].y = t2.add(t3).add(BigDecimal.valueOf(anchor.y)).doubleValue();
+		if (rads == 0) {
+			return;
 		}
+		if (anchor != center) {
+			double c = StrictMath.cos(rads);
+			double s = StrictMath.sin(rads);
+			double rx = center.x - anchor.x;
+			double ry = center.y - anchor.y;
+			center.set(anchor.x + rx * c - ry * s, anchor.y + rx * s + ry * c);
+		}
+		angle = (angle + rads) % (2 * Math.PI);
+		cos = StrictMath.cos(angle);
+		sin = StrictMath.sin(angle);
+		updateTransform();
 	}
 	public void rotateBy(double rads) {
 		this.rotateBy(rads, this.getCenter());
 	}
+	/**
+	 * Place the collider at an absolute center and angle.
+	 * @param centerX - X of the new center.
+	 * @param centerY - Y of the new center.
+	 * @param angle - New rotation in radians.
+	 */
+	public void setTransform(double centerX, double centerY, double angle) {
+		center.set(centerX, centerY);
+		this.angle = angle;
+		cos = StrictMath.cos(angle);
+		sin = StrictMath.sin(angle);
+		updateTransform();
+	}
+	/**
+	 * Swap in a shape and place it, keeping the collider's id.
+	 * <p>
+	 * Lets one collider that was never added to a world stand in for many
+	 * different regions, such as HXWorld's shape queries.
+	 * @param shape - Shared local space geometry.
+	 * @param centerX - X of the new center.
+	 * @param centerY - Y of the new center.
+	 * @param angle - New rotation in radians.
+	 */
+	public void setPose(HXShape shape, double centerX, double centerY, double angle) {
+		center.set(centerX, centerY);
+		this.angle = angle;
+		cos = StrictMath.cos(angle);
+		sin = StrictMath.sin(angle);
+		setShape(shape);
+	}
 	/**
 	 * Scale the collider
 	 * <p>
-	 * Applies a scaling factor to the vertices of the collider.
+	 * Swaps to the shared prototype of the scaled shape.
 	 * @param scale - Amount to increase or decrease collider shape by.
 	 * @param anchor - The center point of the shape.
 	 */
 	public void scaleBy(double scale, HXVector anchor) {
+		if (anchor != center) {
+			center.set(anchor.x + (center.x - anchor.x) * scale, anchor.y + (center.y - anchor.y) * scale);
+		}
+		setShape(HXShapeFactory.scaled(shape, scale));
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Replaces the shape, resizing the derived vertex storage if needed.
+	 */
+	private void setShape(HXShape shape) {
+		this.shape = shape;
+		int n = shape.getVertexCount();
+		if (vertices == null || vertices.length != n) {
+			vertices = new HXVector[n];
+			for (int v = 0; v < n; v++) {
+				vertices[v] = new HXVector();
+			}
+			xs = new double[n];
+			ys = new double[n];
+		}
+		updateTransform();
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Recalculates the vertices, packed coordinates and the axis aligned bounding
+	 * box from the shape, center and angle.
+	 */
+	private void updateTransform() {
+		if (vertices.length == 0) {
+			return;
+		}
 		for (int v = 0; v < vertices.length; v++) {
-			vertices[v].x = anchor.x + (vertices[v].x - anchor.x) * scale;
-			vertices[v].y = anchor.y + (vertices[v].y - anchor.y) * scale;
+			double lx = shape.getX(v);
+			double ly = shape.getY(v);
+			xs[v] = center.x + lx * cos - ly * sin;
+			ys[v] = center.y + lx * sin + ly * cos;
+			vertices[v].set(xs[v], ys[v]);
+		}
+		minX = maxX = xs[0];
+		minY = maxY = ys[0];
+		for (int v = 1; v < vertices.length; v++) {
+			minX = Math.min(minX, xs[v]);
+			maxX = Math.max(maxX, xs[v]);
+			minY = Math.min(minY, ys[v]);
+			maxY = Math.max(maxY, ys[v]);
 		}
 	}
 	
@@ -130,6 +256,21 @@ public class HXCollider {
 	 * - Returns <b>null</b> if shapes do not overlap.
 	 */
 	public HXVector doesOverlap(HXCollider peer) {
+		HXVector mtv = new HXVector();
+		if (!doesOverlap(peer, mtv)) {
+			return null;
+		}
+		return mtv;
+	}
+	/**
+	 * Calculate overlap between another collider and this collider without allocating.
+	 * <p>
+	 * Same test as doesOverlap(HXCollider), writing the MTV into the given vector.
+	 * @param peer - The other HXCollider to test for overlap against.
+	 * @param mtvOut - Receives the MTV pointing from this collider toward the peer. Untouched if there is no overlap.
+	 * @return True if the shapes overlap.
+	 */
+	public boolean doesOverlap(HXCollider peer, HXVector mtvOut) {
 		
 //		// Find center points for preliminary check of circle intersections
 //		double aMidX = this.getCenter().x;
@@ -155,113 +296,401 @@ public class HXCollider {
 //			thisVertices[v] = this.getVertices()[v].translate(this.getParent().getxVel(), this.getParent().getyVel());
 //		}
 		
-		// In the case of parallel lines, need to note this vector for checking direction
-		HXVector betweenCenters = new HXVector(this.getCenter(), peer.getCenter());
+		cacheQueryAxes();
+		return overlapCached(peer, mtvOut);
+	}
+	/**
+	 * Calculate overlap between this collider and many others.
+	 * <p>
+	 * Same test as doesOverlap(HXCollider, HXVector) for every peer, but this
+	 * collider's axes and its projections onto them are derived only once for the
+	 * whole batch. Suited to a broadphase that lists each collider's neighbors.
+	 * @param peers - Candidate colliders to test against.
+	 * @param from - Index of the first peer to test.
+	 * @param to - Index after the last peer to test.
+	 * @param mtvOut - Receives each MTV at index (peer index - from), pointing from this collider toward that peer.
+	 * @param hitOut - Receives at index (peer index - from) whether that peer overlaps.
+	 * @return Number of peers that overlap.
+	 */
+	public int overlapMany(HXCollider[] peers, int from, int to, HXVector[] mtvOut, boolean[] hitOut) {
+		cacheQueryAxes();
+		int hits = 0;
+		for (int p = from; p < to; p++) {
+			hitOut[p - from] = overlapCached(peers[p], mtvOut[p - from]);
+			if (hitOut[p - from]) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Derives this collider's normalized edge axes and projects its own vertices
+	 * onto them, ready for any number of overlapCached() calls.
+	 */
+	private void cacheQueryAxes() {
+		int n = vertices.length;
+		if (queryAxisX.length != n) {
+			queryAxisX = new double[n];
+			queryAxisY = new double[n];
+			queryMin = new double[n];
+			queryMax = new double[n];
+		}
+		for (int a = 0; a < n; a++) {
+			axisFor(a, axis);
+			minMaxForAxis(axis.x, axis.y, minMaxThis);
+			queryAxisX[a] = axis.x;
+			queryAxisY[a] = axis.y;
+			queryMin[a] = minMaxThis.x;
+			queryMax[a] = minMaxThis.y;
+		}
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * SAT against one peer, using the axes from the last cacheQueryAxes() for
+	 * this collider's side of the test.
+	 */
+	private boolean overlapCached(HXCollider peer, HXVector mtvOut) {
 		// Reset all values
-		mtvDirection = new HXVector();
+		mtvDirection.set(0, 0);
 		mtvMagnitude = 0;
 		mtvMagnitudeSet = false;
 		colliding = true;
-		// Using axes on this HXCollider, test both this/peer vertices
-		testVerticesOnAxes(this.getVertices(), peer.getVertices());
+		// Using cached axes on this HXCollider, test both this/peer vertices
+		for (int a = 0; a < queryAxisX.length && colliding; a++) {
+			peer.minMaxForAxis(queryAxisX[a], queryAxisY[a], minMaxPeer);
+			minMaxThis.set(queryMin[a], queryMax[a]);
+			axis.set(queryAxisX[a], queryAxisY[a]);
+			recordAxis();
+		}
 		if (colliding) {
 			// If still collidiing, use axes on peer HXCollider, test both this/peer vertices
-			testVerticesOnAxes(peer.getVertices(), this.getVertices());
+			testVerticesOnAxes(peer, this);
 		}
 		if (!colliding) {
-			return null;
+			return false;
 		}
-		// Parallel lines fix: 
-		if (HXVector.dot(betweenCenters, mtvDirection) < 0) {
-			mtvDirection = mtvDirection.opposite();
+		// Parallel lines fix: in the case of parallel lines, check direction against the vector between centers
+		double betweenCentersX = peer.getCenter().x - this.getCenter().x;
+		double betweenCentersY = peer.getCenter().y - this.getCenter().y;
+		if (HXVector.dot(betweenCentersX, betweenCentersY, mtvDirection.x, mtvDirection.y) < 0) {
+			mtvDirection.negateInPlace();
 		}
 		// An mtv direction and magnitude has been set by now so return mtv
-		double xComp = mtvDirection.x * mtvMagnitude;
-		double yComp = mtvDirection.y * mtvMagnitude;
-		HXVector mtv = new HXVector(xComp, yComp);
-		
-		// If all four axes had projection overlap then the objects overlap
-		if (mtv.x != 0 || mtv.y != 0) {
-			System.out.println("Overlap: " + mtv.x + ", " + mtv.y);
-		}
-		return mtv;
+		mtvOut.set(mtvDirection).scaleInPlace(mtvMagnitude);
+		return true;
 	}
 	/**
 	 * Test for overlap from two shapes on one axis set.
 	 * <p>
-	 * The axes iterated through are from the first array of vertices supplied.
-	 * Vertices from both arrays are projected onto the axes created by the first
-	 * array of vertices. Will update mtvDirection and mtvMagnitude with the smallest
+	 * The axes iterated through are from the first collider supplied.
+	 * Vertices from both colliders are projected onto the axes created by the first
+	 * collider. Will update mtvDirection and mtvMagnitude with the smallest
 	 * values of overlap calculated.
-	 * @param thisAxisVertices - The first shape and source of axes.
-	 * @param peerAxisVertices - the second shape.
+	 * @param axisSource - The first shape and source of axes.
+	 * @param other - the second shape.
 	 */
-	private void testVerticesOnAxes(HXVector[] thisAxisVertices, HXVector[] peerAxisVertices) {
+	private void testVerticesOnAxes(HXCollider axisSource, HXCollider other) {
 		// Number of axes == number of vertices
-		for (int a = 0; a < thisAxisVertices.length; a++) {
-			// Generate axis
-			HXVector axis = new HXVector(thisAxisVertices[(a+1)%thisAxisVertices.length], thisAxisVertices[a]).perpendicular().normalize();
+		for (int a = 0; a < axisSource.vertices.length; a++) {
+			axisSource.axisFor(a, axis);
 			
-			HXVector minMaxThis = minMaxForAxis(thisAxisVertices, axis);
-			HXVector minMaxPeer = minMaxForAxis(peerAxisVertices, axis);
+			axisSource.minMaxForAxis(axis.x, axis.y, minMaxThis);
+			other.minMaxForAxis(axis.x, axis.y, minMaxPeer);
 			
-			double overlap = Math.min((minMaxThis.y - minMaxPeer.x),(minMaxPeer.y - minMaxThis.x));
-			
-			if (minMaxPeer.x > minMaxThis.y || minMaxPeer.y < minMaxThis.x) {
-				// No overlap = break out of SAT check, no collision present
-				colliding = false;
+			if (!recordAxis()) {
 				return;
-			} else if (mtvMagnitudeSet && overlap < mtvMagnitude) {
-				mtvDirection = axis;
-				mtvMagnitude = overlap;
-			} else if (!mtvMagnitudeSet) {
-				mtvDirection = axis;
-				mtvMagnitude = overlap;
-				mtvMagnitudeSet = true;
 			}
 		}
 	}
 	/**
-	 * Calculate min/max dot products.
+	 * Internal class usage only.
 	 * <p>
-	 * Calculates the minimum and maxmimum dot product on the axis with
-	 * the given vertices. Note return syntax.
-	 * @param verts - The vectors to project onto the axis.
-	 * @param axis - The axis to be projected onto.
-	 * @return - Will return a vector whose x value is the minimum and
-	 * whose y value is the maximum.
+	 * Compares the projections in minMaxThis and minMaxPeer on the current axis.
+	 * Keeps the axis as the MTV if its overlap is the smallest so far.
+	 * @return False (and clears colliding) if the axis separates the shapes.
+	 */
+	private boolean recordAxis() {
+		double overlap = Math.min((minMaxThis.y - minMaxPeer.x),(minMaxPeer.y - minMaxThis.x));
+		
+		if (minMaxPeer.x > minMaxThis.y || minMaxPeer.y < minMaxThis.x) {
+			// No overlap = break out of SAT check, no collision present
+			colliding = false;
+			return false;
+		} else if (mtvMagnitudeSet && overlap < mtvMagnitude) {
+			mtvDirection.set(axis);
+			mtvMagnitude = overlap;
+		} else if (!mtvMagnitudeSet) {
+			mtvDirection.set(axis);
+			mtvMagnitude = overlap;
+			mtvMagnitudeSet = true;
+		}
+		return true;
+	}
+	/**
+	 * Test whether a point is inside this collider.
+	 * <p>
+	 * Bounding box check, then a half plane test against every edge using the
+	 * shape's shared normals. Points on the outline count as inside.
+	 * @param x - X of the point.
+	 * @param y - Y of the point.
 	 */
-	private HXVector minMaxForAxis(HXVector[] verts, HXVector axis) {
-		// Dot product all corners with the axis then select max/min for object
-		double min = HXVector.dot(verts[0], axis);
-		double max = min;
-		// Find max/min dot of this object.
-		for (int c = 1; c < verts.length; c++) {
-			double value = HXVector.dot(verts[c], axis);
-			if (value < min) {
-				min = value;
+	public boolean containsPoint(double x, double y) {
+		if (vertices.length < 3 || x < minX || x > maxX || y < minY || y > maxY) {
+			return false;
+		}
+		for (int a = 0; a < vertices.length; a++) {
+			axisFor(a, axis);
+			if (HXVector.dot(axis.x, axis.y, x - xs[a], y - ys[a]) > 0) {
+				return false;
 			}
-			if (value > max) {
-				max = value;
+		}
+		return true;
+	}
+	/**
+	 * Test whether a circle overlaps this collider.
+	 * <p>
+	 * True if the circle's center is inside every edge's half plane, or if the
+	 * closest point on the outline is within the radius.
+	 * @param cx - X of the circle center.
+	 * @param cy - Y of the circle center.
+	 * @param radius - Radius of the circle.
+	 */
+	public boolean overlapsCircle(double cx, double cy, double radius) {
+		if (vertices.length == 0) {
+			return false;
+		}
+		boolean inside = true;
+		double closest = Double.POSITIVE_INFINITY;
+		for (int a = 0; a < vertices.length; a++) {
+			int next = (a+1)%vertices.length;
+			axisFor(a, axis);
+			if (HXVector.dot(axis.x, axis.y, cx - xs[a], cy - ys[a]) > 0) {
+				inside = false;
 			}
+			// Distance to the edge segment
+			double ex = xs[next] - xs[a];
+			double ey = ys[next] - ys[a];
+			double lengthSqrd = HXVector.lengthSqrd(ex, ey);
+			double t = lengthSqrd > 0 ? HXVector.dot(cx - xs[a], cy - ys[a], ex, ey) / lengthSqrd : 0;
+			t = Math.max(0, Math.min(1, t));
+			closest = Math.min(closest, HXVector.distanceSqrd(cx, cy, xs[a] + ex * t, ys[a] + ey * t));
 		}
-		return new HXVector(min, max);
+		return inside || closest <= radius * radius;
+	}
+	/**
+	 * Cast a ray against this collider.
+	 * <p>
+	 * Cyrus-Beck clipping: the ray is clipped by the half plane of every edge,
+	 * using the shape's shared normals. The last entering edge gives the hit.
+	 * @param ox - X of the ray origin.
+	 * @param oy - Y of the ray origin.
+	 * @param dx - X of the ray direction.
+	 * @param dy - Y of the ray direction.
+	 * @param maxT - Furthest point along the ray to accept, in units of the direction.
+	 * @param normalOut - Receives the outward unit normal of the edge that was hit.
+	 * If the origin is inside the collider it is set to the reversed direction.
+	 * @return 
+	 * - Distance along the ray to the hit, in units of the direction. Returns 0 if
+	 * the origin is inside the collider.
+	 * <br>
+	 * - Returns <b>-1</b> if the ray misses within maxT.
+	 */
+	public double raycast(double ox, double oy, double dx, double dy, double maxT, HXVector normalOut) {
+		double enter = 0;
+		double exit = maxT;
+		int enterEdge = -1;
+		for (int a = 0; a < vertices.length; a++) {
+			axisFor(a, axis);
+			// Positive when the origin is on the inner side of this edge
+			double distance = axis.x * (xs[a] - ox) + axis.y * (ys[a] - oy);
+			double speed = axis.x * dx + axis.y * dy;
+			if (speed == 0) {
+				if (distance < 0) {
+					// Parallel to and outside this edge
+					return -1;
+				}
+				continue;
+			}
+			double t = distance / speed;
+			if (speed < 0) {
+				if (t > enter) {
+					enter = t;
+					enterEdge = a;
+				}
+			} else if (t < exit) {
+				exit = t;
+			}
+			if (enter > exit) {
+				return -1;
+			}
+		}
+		if (vertices.length == 0) {
+			return -1;
+		}
+		if (enterEdge == -1) {
+			normalOut.set(-dx, -dy).normalizeInPlace();
+			return 0;
+		}
+		axisFor(enterEdge, normalOut);
+		return enter;
+	}
+	/**
+	 * Calculate the time of impact with another collider under linear motion.
+	 * <p>
+	 * Sweeps the projections of both shapes along every SAT axis while this
+	 * collider moves by the given displacement relative to the peer. The latest
+	 * entry time over all axes is the time of first contact. Rotation during the
+	 * sweep is not accounted for.
+	 * @param peer - The other HXCollider to sweep against.
+	 * @param dx - Displacement in x of this collider relative to the peer over the tick.
+	 * @param dy - Displacement in y of this collider relative to the peer over the tick.
+	 * @return 
+	 * - Fraction of the displacement (0 to 1) at which the shapes first touch.
+	 * The contact axis is available from getImpactNormal().
+	 * <br>
+	 * - Returns <b>-1</b> if the shapes do not touch during the sweep, or if they
+	 * already overlap at the start (overlap is left to the contact resolution).
+	 */
+	public double timeOfImpact(HXCollider peer, double dx, double dy) {
+		sweepEnter = 0;
+		sweepExit = 1;
+		sweepEnterSet = false;
+		if (!sweepAxes(this, peer, dx, dy) || !sweepAxes(peer, peer, dx, dy)) {
+			return -1;
+		}
+		if (!sweepEnterSet || sweepEnter > sweepExit) {
+			return -1;
+		}
+		return sweepEnter;
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Narrows the sweep interval with the axes of the given vertices. Returns false
+	 * as soon as an axis proves the shapes stay apart for the whole sweep.
+	 */
+	private boolean sweepAxes(HXCollider axisSource, HXCollider peer, double dx, double dy) {
+		for (int a = 0; a < axisSource.vertices.length; a++) {
+			axisSource.axisFor(a, axis);
+			double axisX = axis.x;
+			double axisY = axis.y;
+			
+			this.minMaxForAxis(axisX, axisY, minMaxThis);
+			peer.minMaxForAxis(axisX, axisY, minMaxPeer);
+			double speed = dx * axisX + dy * axisY;
+			
+			double enter;
+			double exit;
+			if (minMaxThis.y < minMaxPeer.x) {
+				// This is behind the peer on this axis, must move forward to touch
+				if (speed <= 0) return false;
+				enter = (minMaxPeer.x - minMaxThis.y) / speed;
+				exit = (minMaxPeer.y - minMaxThis.x) / speed;
+			} else if (minMaxThis.x > minMaxPeer.y) {
+				// This is ahead of the peer on this axis, must move backward to touch
+				if (speed >= 0) return false;
+				enter = (minMaxPeer.y - minMaxThis.x) / speed;
+				exit = (minMaxPeer.x - minMaxThis.y) / speed;
+			} else {
+				// Already overlapping on this axis
+				enter = 0;
+				if (speed > 0) {
+					exit = (minMaxPeer.y - minMaxThis.x) / speed;
+				} else if (speed < 0) {
+					exit = (minMaxPeer.x - minMaxThis.y) / speed;
+				} else {
+					exit = Double.POSITIVE_INFINITY;
+				}
+			}
+			if (enter > sweepEnter) {
+				sweepEnter = enter;
+				sweepEnterSet = true;
+				// Orient the normal along the motion, pointing from this collider into the peer
+				double sign = speed > 0 ? 1 : -1;
+				impactNormal.x = sign * axisX;
+				impactNormal.y = sign * axisY;
+			}
+			if (exit < sweepExit) {
+				sweepExit = exit;
+			}
+			if (sweepEnter > sweepExit) {
+				return false;
+			}
+		}
+		return true;
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * The shape's shared unit normal for an edge, rotated into world space.
+	 */
+	private HXVector axisFor(int edge, HXVector out) {
+		double nx = shape.getNormalX(edge);
+		double ny = shape.getNormalY(edge);
+		return out.set(nx * cos - ny * sin, nx * sin + ny * cos);
+	}
+	/**
+	 * Calculate min/max dot products.
+	 * <p>
+	 * Calculates the minimum and maxmimum dot product on the axis with
+	 * this collider's vertices, using the packed coordinates. Note return syntax.
+	 * @param axisX - X of the axis to be projected onto.
+	 * @param axisY - Y of the axis to be projected onto.
+	 * @param out - Will be set to a vector whose x value is the minimum and
+	 * whose y value is the maximum.
+	 */
+	private HXVector minMaxForAxis(double axisX, double axisY, HXVector out) {
+		return HXProjection.minMax(xs, ys, xs.length, axisX, axisY, out);
 	}
 	
 	
 	// Mark: GETTERS & SETTERS
 	// =======================
+	public int getId() {
+		return this.id;
+	}
 	public HXVector[] getVertices() {
 		return this.vertices;
 	}
 	public HXVector getCenter() {
 		return this.center;
 	}
+	public HXShape getShape() {
+		return this.shape;
+	}
+	public double getAngle() {
+		return this.angle;
+	}
 	public double getBoundingRadius() {
-		return this.boundingRadius;
+		return this.shape.getBoundingRadius();
+	}
+	public double getUnitInertia() {
+		return this.shape.getUnitInertia();
 	}
 	public HXEntity getParent() {
 		return this.parent;
 	}
+	public double getMinX() {
+		return this.minX;
+	}
+	public double getMinY() {
+		return this.minY;
+	}
+	public double getMaxX() {
+		return this.maxX;
+	}
+	public double getMaxY() {
+		return this.maxY;
+	}
+	/**
+	 * Unit normal of the axis that stopped the last timeOfImpact() sweep, pointing
+	 * from this collider toward the peer.
+	 */
+	public HXVector getImpactNormal() {
+		return this.impactNormal;
+	}
 
 }
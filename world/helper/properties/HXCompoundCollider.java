@@ -0,0 +1,214 @@
+package world.helper.properties;
+
+import world.entities.HXEntity;
+import world.helper.math.HXCompoundShape;
+import world.helper.math.HXShapeFactory;
+import world.helper.math.HXVector;
+
+public class HXCompoundCollider {
+
+	private HXEntity parent;
+
+	// Shared decomposition of the outline, never modified
+	private HXCompoundShape shape;
+	// One convex collider per part of the decomposition
+	private HXCollider[] parts;
+	// Outline in world space, for drawing
+	private HXVector[] outline;
+	// Average center of the outline vertices
+	private HXVector center = new HXVector(0, 0);
+	// Axis aligned bounding box around every part
+	private double minX = 0;
+	private double minY = 0;
+	private double maxX = 0;
+	private double maxY = 0;
+
+	// Scratch for the per part tests
+	private final HXVector partMtv = new HXVector();
+
+	/**
+	 * Collider for a concave polygon, made of convex HXColliders.
+	 * <p>
+	 * The outline is decomposed once per distinct shape by HXShapeFactory and the
+	 * parts share its interned geometry. Each part is an ordinary HXCollider with the
+	 * same parent, so the parts can be registered with the world to take part in the
+	 * broadphase and contact solving like any other collider.
+	 * @param outline - World space outline in order, either winding. Must not self intersect.
+	 * @param parent - The entity this collider belongs to.
+	 */
+	public HXCompoundCollider(HXVector[] outline, HXEntity parent) {
+		this.parent = parent;
+		this.shape = HXShapeFactory.concave(outline, center);
+
+		this.parts = new HXCollider[shape.getPartCount()];
+		for (int p = 0; p < parts.length; p++) {
+			parts[p] = new HXCollider(shape.getPart(p), center.x + shape.getPartX(p), center.y + shape.getPartY(p), 0, parent);
+		}
+		this.outline = new HXVector[shape.getOutlineCount()];
+		for (int v = 0; v < this.outline.length; v++) {
+			this.outline[v] = new HXVector(center.x + shape.getOutlineX(v), center.y + shape.getOutlineY(v));
+		}
+		updateBounds();
+	}
+
+	// Mark: TRANSFORMATIONS
+	// =====================
+
+	/**
+	 * Translate the collider and all of its parts.
+	 * @param x - Amount in the x direction to translate.
+	 * @param y - Amount in the y direction to translate.
+	 */
+	public void translateBy(double x, double y) {
+		center.translateInPlace(x, y);
+		for (int p = 0; p < parts.length; p++) {
+			parts[p].translateBy(x, y);
+		}
+		for (int v = 0; v < outline.length; v++) {
+			outline[v].translateInPlace(x, y);
+		}
+		minX += x;
+		minY += y;
+		maxX += x;
+		maxY += y;
+	}
+	/**
+	 * Rotate the collider and all of its parts.
+	 * @param rads - The amount in radians to rotate the collider.
+	 * @param anchor - The point around which to rotate the collider.
+	 */
+	public void rotateBy(double rads, HXVector anchor) {
+		if (rads == 0) {
+			return;
+		}
+		double ax = anchor.x;
+		double ay = anchor.y;
+		double c = StrictMath.cos(rads);
+		double s = StrictMath.sin(rads);
+		for (int p = 0; p < parts.length; p++) {
+			parts[p].rotateBy(rads, anchor);
+		}
+		for (int v = 0; v < outline.length; v++) {
+			double rx = outline[v].x - ax;
+			double ry = outline[v].y - ay;
+			outline[v].set(ax + rx * c - ry * s, ay + rx * s + ry * c);
+		}
+		double rx = center.x - ax;
+		double ry = center.y - ay;
+		center.set(ax + rx * c - ry * s, ay + rx * s + ry * c);
+		updateBounds();
+	}
+	public void rotateBy(double rads) {
+		this.rotateBy(rads, this.getCenter());
+	}
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Recalculates the bounding box as the union of the part bounds.
+	 */
+	private void updateBounds() {
+		if (parts.length == 0) {
+			return;
+		}
+		minX = parts[0].getMinX();
+		minY = parts[0].getMinY();
+		maxX = parts[0].getMaxX();
+		maxY = parts[0].getMaxY();
+		for (int p = 1; p < parts.length; p++) {
+			minX = Math.min(minX, parts[p].getMinX());
+			minY = Math.min(minY, parts[p].getMinY());
+			maxX = Math.max(maxX, parts[p].getMaxX());
+			maxY = Math.max(maxY, parts[p].getMaxY());
+		}
+	}
+
+	// Mark: COLLISION TESTING
+	// =======================
+	/**
+	 * Calculate overlap between a convex collider and this compound.
+	 * <p>
+	 * The peer is first checked against the bounding box of the whole compound,
+	 * then against the box of each part, and only parts passing both checks are
+	 * tested with SAT. The deepest part overlap is kept.
+	 * @param peer - The convex HXCollider to test for overlap against.
+	 * @param mtvOut - Receives the MTV pointing from this compound toward the peer. Untouched if there is no overlap.
+	 * @return True if any part overlaps the peer.
+	 */
+	public boolean doesOverlap(HXCollider peer, HXVector mtvOut) {
+		if (!boundsOverlap(minX, minY, maxX, maxY, peer)) {
+			return false;
+		}
+		boolean found = false;
+		double deepest = 0;
+		for (int p = 0; p < parts.length; p++) {
+			HXCollider part = parts[p];
+			if (!boundsOverlap(part.getMinX(), part.getMinY(), part.getMaxX(), part.getMaxY(), peer)) {
+				continue;
+			}
+			if (part.doesOverlap(peer, partMtv)) {
+				double depth = HXVector.lengthSqrd(partMtv.x, partMtv.y);
+				if (!found || depth > deepest) {
+					mtvOut.set(partMtv);
+					deepest = depth;
+					found = true;
+				}
+			}
+		}
+		return found;
+	}
+	public HXVector doesOverlap(HXCollider peer) {
+		HXVector mtv = new HXVector();
+		if (!doesOverlap(peer, mtv)) {
+			return null;
+		}
+		return mtv;
+	}
+	/**
+	 * Test whether a point is inside this compound.
+	 * <p>
+	 * Bounding box check, then the winding number of the outline around the point.
+	 * @param x - X of the point.
+	 * @param y - Y of the point.
+	 */
+	public boolean containsPoint(double x, double y) {
+		if (x < minX || x > maxX || y < minY || y > maxY) {
+			return false;
+		}
+		return HXInteractable.isPointInPolygon(x, y, outline);
+	}
+	private static boolean boundsOverlap(double minX, double minY, double maxX, double maxY, HXCollider peer) {
+		return minX <= peer.getMaxX() && peer.getMinX() <= maxX && minY <= peer.getMaxY() && peer.getMinY() <= maxY;
+	}
+
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public HXCollider[] getParts() {
+		return this.parts;
+	}
+	public HXCompoundShape getShape() {
+		return this.shape;
+	}
+	public HXVector[] getOutline() {
+		return this.outline;
+	}
+	public HXVector getCenter() {
+		return this.center;
+	}
+	public HXEntity getParent() {
+		return this.parent;
+	}
+	public double getMinX() {
+		return this.minX;
+	}
+	public double getMinY() {
+		return this.minY;
+	}
+	public double getMaxX() {
+		return this.maxX;
+	}
+	public double getMaxY() {
+		return this.maxY;
+	}
+
+}
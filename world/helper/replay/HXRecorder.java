@@ -0,0 +1,276 @@
+package world.helper.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import readers.HXInputSnapshot;
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.helper.properties.HXInteractable;
+import world.helper.snapshot.HXSnapshot;
+
+public class HXRecorder implements Closeable {
+
+	// "HXRP"
+	static final int MAGIC = 0x48585250;
+	static final short VERSION = 2;
+	// Magic, version, then the file offset of the seek table or 0 while recording
+	static final int HEADER_SIZE = 4 + 2 + 8;
+
+	/* === Record types, 0 marks the end of an unfinished file === */
+	static final byte TYPE_END = 0;
+	static final byte TYPE_TICK = 1;
+	static final byte TYPE_KEYFRAME = 2;
+	static final byte TYPE_SEEK_TABLE = 3;
+
+	/* === Panel events, the world's input is in the tick record === */
+	static final byte EVENT_PAN = 4;
+
+	// Type, tick, dT, keys, pressed and released keys, mouse flags, mouse and press
+	// coordinates, flags, event count
+	static final int TICK_SIZE = 1 + 8 + 8 + 4 + 4 + 4 + 1 + 4 * 4 + 1 + 1;
+	// Offset of the flags in a tick record
+	static final int TICK_FLAGS_OFFSET = TICK_SIZE - 2;
+	// Kind, two coordinates
+	static final int EVENT_SIZE = 1 + 4 + 4;
+	static final int MAX_EVENTS_PER_TICK = 255;
+	// Type, tick, serial of the interaction target or -1, snapshot length
+	static final int KEYFRAME_SIZE = 1 + 8 + 8 + 4;
+	static final byte FLAG_HASH = 1;
+
+	// Size of each mapped region of the file
+	private static final int REGION_SIZE = 16 * 1024 * 1024;
+	private static final int MIN_KEYFRAME_RESERVE = 64 * 1024;
+
+	private final FileChannel channel;
+	private MappedByteBuffer region;
+	// File offset of the start of the mapped region
+	private long regionStart;
+
+	// Camera pans from the event dispatch thread, drained into the next tick record
+	private final ConcurrentLinkedQueue<int[]> events = new ConcurrentLinkedQueue<int[]>();
+
+	private final int keyframeInterval;
+	private long lastKeyframeTick = Long.MIN_VALUE;
+	private long lastTick = Long.MIN_VALUE;
+	private int keyframeReserve = MIN_KEYFRAME_RESERVE;
+
+	/* === Seek table, one entry per keyframe === */
+	private long[] seekTicks = new long[64];
+	private long[] seekOffsets = new long[64];
+	private int seekCount = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * Records a session to an append-only file for HXReplayPlayer.
+	 * <p>
+	 * Every tick appends the world's HXInputSnapshot and the camera pans queued
+	 * since the last tick, and every keyframeInterval ticks a full HXSnapshot is appended
+	 * so playback can start near any tick. The file is written through memory mapped
+	 * regions, so a record is a few puts into memory on the clock thread and the
+	 * operating system flushes pages in the background. If the process dies the
+	 * written records survive and the player rebuilds the seek table by scanning.
+	 * @param file - File to create or overwrite.
+	 * @param keyframeInterval - Ticks between keyframe snapshots. Shorter seeks faster but the file grows quicker.
+	 */
+	public HXRecorder(Path file, int keyframeInterval) throws IOException {
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("Keyframe interval must be at least 1 tick");
+		}
+		this.keyframeInterval = keyframeInterval;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.regionStart = 0;
+		this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+		region.putInt(MAGIC);
+		region.putShort(VERSION);
+		region.putLong(0);
+	}
+
+	// Mark: PANEL EVENTS
+	// ==================
+	// Called from the event dispatch thread
+
+	public void pan(int x, int y) {
+		events.add(new int[] {EVENT_PAN, x, y});
+	}
+
+	// Mark: RECORDING
+	// ===============
+
+	/**
+	 * Append the inputs of the tick about to run, and a keyframe when one is due.
+	 * <p>
+	 * Call on the clock thread right before world.updateTick(), once the tick's input
+	 * is set on the world. Pans are tagged with this tick, at most
+	 * MAX_EVENTS_PER_TICK per tick with the rest carried to the next. An I/O failure, or a
+	 * keyframe of a world with chunks in its store, stops the recording rather than the clock.
+	 * Keyframes are due every keyframeInterval ticks and whenever the world tick
+	 * doesn't follow the last recorded one.
+	 * @param world - The world about to tick.
+	 * @param dT - The delta the world is about to tick by.
+	 */
+	public synchronized void recordTick(HXWorld world, double dT) {
+		if (closed) {
+			return;
+		}
+		try {
+			long tick = world.getTick();
+			// A jump in ticks, such as a snapshot restore, needs a keyframe to replay across
+			if (tick != lastTick + 1 || tick - lastKeyframeTick >= keyframeInterval) {
+				writeKeyframe(world, tick);
+			}
+			lastTick = tick;
+
+			int count = Math.min(events.size(), MAX_EVENTS_PER_TICK);
+			reserve(TICK_SIZE + 8 + count * EVENT_SIZE);
+			boolean hash = world.isDeterministic();
+			region.put(TYPE_TICK);
+			region.putLong(tick);
+			region.putDouble(dT);
+			HXInputSnapshot input = world.getInput();
+			region.putInt(input.getKeys());
+			region.putInt(input.getPressed());
+			region.putInt(input.getReleased());
+			region.put((byte) input.getMouseFlags());
+			region.putInt(input.getMouseX());
+			region.putInt(input.getMouseY());
+			region.putInt(input.getPressX());
+			region.putInt(input.getPressY());
+			region.put(hash ? FLAG_HASH : 0);
+			int countAt = region.position();
+			region.put((byte) 0);
+			if (hash) {
+				region.putLong(world.getStateHash());
+			}
+			int written = 0;
+			int[] event;
+			while (written < count && (event = events.poll()) != null) {
+				region.put((byte) event[0]);
+				region.putInt(event[1]);
+				region.putInt(event[2]);
+				written++;
+			}
+			region.put(countAt, (byte) written);
+		} catch (IOException | IllegalStateException e) {
+			e.printStackTrace();
+			closeQuietly();
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Snapshots straight into the mapped region, growing the reservation until it fits.
+	 */
+	private void writeKeyframe(HXWorld world, long tick) throws IOException {
+		while (true) {
+			reserve(KEYFRAME_SIZE + keyframeReserve);
+			int start = region.position();
+			try {
+				region.put(TYPE_KEYFRAME);
+				region.putLong(tick);
+				HXInteractable target = world.getInteractTarget();
+				region.putLong(target instanceof HXEntity ? ((HXEntity) target).getSerial() : -1);
+				int lengthAt = region.position();
+				region.putInt(0);
+				HXSnapshot.write(world, region);
+				int length = region.position() - lengthAt - 4;
+				region.putInt(lengthAt, length);
+				keyframeReserve = Math.max(keyframeReserve, length * 2);
+				addSeekEntry(tick, regionStart + start);
+				lastKeyframeTick = tick;
+				return;
+			} catch (BufferOverflowException e) {
+				region.position(start);
+				keyframeReserve *= 2;
+			}
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Maps a new region from the write position when the current one can't hold
+	 * the given bytes. Records never straddle two regions.
+	 */
+	private void reserve(int bytes) throws IOException {
+		if (region.remaining() >= bytes) {
+			return;
+		}
+		long offset = regionStart + region.position();
+		region = channel.map(FileChannel.MapMode.READ_WRITE, offset, Math.max(REGION_SIZE, bytes));
+		regionStart = offset;
+	}
+
+	private void addSeekEntry(long tick, long offset) {
+		if (seekCount == seekTicks.length) {
+			long[] ticks = new long[seekCount * 2];
+			long[] offsets = new long[seekCount * 2];
+			System.arraycopy(seekTicks, 0, ticks, 0, seekCount);
+			System.arraycopy(seekOffsets, 0, offsets, 0, seekCount);
+			seekTicks = ticks;
+			seekOffsets = offsets;
+		}
+		seekTicks[seekCount] = tick;
+		seekOffsets[seekCount] = offset;
+		seekCount++;
+	}
+
+	/**
+	 * Append the seek table, point the header at it and trim the unused end of the
+	 * last region. Events queued after the last tick are dropped.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		reserve(1 + 4 + seekCount * 16);
+		long tableOffset = regionStart + region.position();
+		region.put(TYPE_SEEK_TABLE);
+		region.putInt(seekCount);
+		for (int k = 0; k < seekCount; k++) {
+			region.putLong(seekTicks[k]);
+			region.putLong(seekOffsets[k]);
+		}
+		long end = regionStart + region.position();
+		region.force();
+		region = null;
+
+		ByteBuffer footer = ByteBuffer.allocate(8);
+		footer.putLong(tableOffset).flip();
+		channel.write(footer, 4 + 2);
+		channel.truncate(end);
+		channel.close();
+	}
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+	public synchronized int getKeyframeCount() {
+		return seekCount;
+	}
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+}
@@ -0,0 +1,393 @@
+package world.helper.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import readers.HXInputSnapshot;
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.helper.properties.HXInteractable;
+import world.helper.snapshot.HXSnapshot;
+
+public class HXReplayPlayer implements Closeable {
+
+	// Size of each mapped window of the file
+	private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+	private final FileChannel channel;
+	private final long size;
+	// End of the records, the seek table or the end of written data
+	private long end;
+	private MappedByteBuffer window;
+	// File offset of the start of the mapped window
+	private long windowStart = 0;
+
+	/* === Seek table, one entry per keyframe === */
+	private long[] seekTicks = new long[64];
+	private long[] seekOffsets = new long[64];
+	private int seekCount = 0;
+	private long lastTick = -1;
+
+	/* === Playback === */
+	private HXWorld world;
+	// File offset of the next record to play
+	private long cursor = -1;
+	// Set by seek() so the next keyframe is restored even if the world is at its tick
+	private boolean restorePending = false;
+	// First tick whose recorded state hash differed from the replayed one, or -1
+	private long desyncTick = -1;
+
+	/**
+	 * Plays back a file written by HXRecorder through the headless tick path.
+	 * <p>
+	 * Opening reads the seek table the recorder appended on close, or rebuilds it
+	 * by scanning the records if the recording was cut short. Playback restores the
+	 * closest keyframe at or before a tick and then runs every recorded tick as fast
+	 * as it can: the recorded HXInputSnapshot is set on the world and
+	 * world.updateTick() is called with the recorded delta, the same path a live
+	 * tick takes. Camera pans are skipped since there is no panel. When the
+	 * recording was made in deterministic mode each tick's state hash is compared
+	 * on the way, see getDesyncTick().
+	 * @param file - The recording to open.
+	 */
+	public HXReplayPlayer(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.end = size;
+		ByteBuffer header = at(0, HXRecorder.HEADER_SIZE);
+		if (header == null || header.getInt() != HXRecorder.MAGIC) {
+			throw new IllegalArgumentException("Not an HXRecorder recording");
+		}
+		short version = header.getShort();
+		if (version != HXRecorder.VERSION) {
+			throw new IllegalArgumentException("Unsupported recording version " + version);
+		}
+		long tableOffset = header.getLong();
+		if (tableOffset != 0) {
+			readSeekTable(tableOffset);
+		} else {
+			scan();
+		}
+		if (seekCount == 0) {
+			throw new IllegalArgumentException("Recording has no keyframes");
+		}
+	}
+
+	// Mark: PLAYBACK
+	// ==============
+
+	/**
+	 * Restore the world to its state at the start of a tick, before that tick's inputs.
+	 * <p>
+	 * Restores the last keyframe at or before the tick and plays forward from there.
+	 * @param tick - Tick to seek to, between getFirstTick() and getLastTick() + 1.
+	 * @return The world, also available from getWorld().
+	 */
+	public HXWorld seek(long tick) {
+		if (tick < seekTicks[0] || tick > lastTick + 1) {
+			throw new IllegalArgumentException("Tick " + tick + " is outside the recording");
+		}
+		int low = 0;
+		int high = seekCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (seekTicks[mid] <= tick) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		cursor = seekOffsets[low];
+		desyncTick = -1;
+		restorePending = true;
+		playKeyframe();
+		playTo(tick);
+		return world;
+	}
+
+	/**
+	 * Play forward until the world is at the start of a tick, or the recording ends.
+	 * @param tick - Tick to stop at.
+	 * @return Number of ticks played.
+	 */
+	public long playTo(long tick) {
+		long played = 0;
+		while ((world == null || world.getTick() < tick) && step()) {
+			played++;
+		}
+		return played;
+	}
+	public long playToEnd() {
+		return playTo(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Play the next record. A keyframe only moves the world when playback starts or
+	 * when its tick doesn't follow the world's, as after a restore during recording.
+	 * @return False at the end of the recording.
+	 */
+	public boolean step() {
+		if (cursor < 0) {
+			cursor = seekOffsets[0];
+		}
+		while (cursor < end) {
+			ByteBuffer in = at(cursor, 1);
+			if (in == null) {
+				return false;
+			}
+			byte type = in.get(in.position());
+			if (type == HXRecorder.TYPE_KEYFRAME) {
+				playKeyframe();
+				continue;
+			}
+			if (type == HXRecorder.TYPE_TICK) {
+				playTick();
+				return true;
+			}
+			return false;
+		}
+		return false;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Restores the keyframe at the cursor when the world needs it, then moves past it.
+	 */
+	private void playKeyframe() {
+		ByteBuffer in = at(cursor, HXRecorder.KEYFRAME_SIZE);
+		in.get();
+		long tick = in.getLong();
+		long target = in.getLong();
+		int length = in.getInt();
+		if (restorePending || world == null || world.getTick() != tick) {
+			restorePending = false;
+			in = at(cursor + HXRecorder.KEYFRAME_SIZE, length);
+			ByteBuffer snapshot = in.slice().limit(length);
+			if (world == null) {
+				world = HXSnapshot.read(snapshot);
+			} else {
+				HXSnapshot.restore(world, snapshot);
+			}
+			world.setInteractTarget(null);
+			if (target >= 0) {
+				for (HXEntity e : world.getEntities()) {
+					if (e.getSerial() == target && e instanceof HXInteractable) {
+						e.interactNotify();
+						world.setInteractTarget((HXInteractable) e);
+						break;
+					}
+				}
+			}
+		}
+		cursor += HXRecorder.KEYFRAME_SIZE + length;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Applies the inputs of the tick record at the cursor and runs the tick.
+	 */
+	private void playTick() {
+		ByteBuffer in = at(cursor, HXRecorder.TICK_SIZE);
+		in.get();
+		long tick = in.getLong();
+		double dT = in.getDouble();
+		HXInputSnapshot input = new HXInputSnapshot(in.getInt(), in.getInt(), in.getInt(), in.get() & 0xFF,
+				in.getInt(), in.getInt(), in.getInt(), in.getInt());
+		byte flags = in.get();
+		int count = in.get() & 0xFF;
+		int length = HXRecorder.TICK_SIZE + ((flags & HXRecorder.FLAG_HASH) != 0 ? 8 : 0) + count * HXRecorder.EVENT_SIZE;
+		if (tick != world.getTick()) {
+			throw new IllegalStateException("Corrupt recording, tick " + tick + " found while the world is at " + world.getTick());
+		}
+		in = at(cursor + HXRecorder.TICK_SIZE, length - HXRecorder.TICK_SIZE);
+		if ((flags & HXRecorder.FLAG_HASH) != 0) {
+			long hash = in.getLong();
+			if (desyncTick < 0 && world.isDeterministic() && world.getStateHash() != hash) {
+				desyncTick = tick;
+			}
+		}
+		// Camera pans don't touch the world
+		world.setInput(input);
+		world.updateTick(dT);
+		cursor += length;
+	}
+
+	// Mark: FILE ACCESS
+	// =================
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Returns a buffer positioned at a file offset with at least the given bytes
+	 * after it, mapping a new window when the current one doesn't cover them.
+	 * @return The buffer, or null if the file ends first.
+	 */
+	private ByteBuffer at(long offset, int bytes) {
+		if (offset + bytes > size) {
+			return null;
+		}
+		if (window == null || offset < windowStart || offset + bytes > windowStart + window.capacity()) {
+			try {
+				long length = Math.min(Math.max(WINDOW_SIZE, bytes), size - offset);
+				window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+				windowStart = offset;
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not map recording", e);
+			}
+		}
+		window.position((int) (offset - windowStart));
+		return window;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Reads the seek table the recorder appended on close.
+	 */
+	private void readSeekTable(long offset) {
+		ByteBuffer in = at(offset, 1 + 4);
+		if (in == null || in.get() != HXRecorder.TYPE_SEEK_TABLE) {
+			throw new IllegalArgumentException("Corrupt recording, no seek table at " + offset);
+		}
+		int count = in.getInt();
+		in = at(offset + 1 + 4, count * 16);
+		for (int k = 0; k < count; k++) {
+			addSeekEntry(in.getLong(), in.getLong());
+		}
+		end = offset;
+		// The last tick is in the last tick record after the last keyframe
+		if (count > 0) {
+			scanFrom(seekOffsets[count - 1], false);
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Rebuilds the seek table of a recording that was never closed.
+	 */
+	private void scan() {
+		scanFrom(HXRecorder.HEADER_SIZE, true);
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Walks the records from an offset, noting the last tick and optionally the
+	 * keyframes. Stops at the end marker or at a record cut off by the end of the
+	 * file, and treats that point as the end of the recording.
+	 */
+	private void scanFrom(long offset, boolean keyframes) {
+		while (offset < end) {
+			ByteBuffer in = at(offset, 1);
+			if (in == null) {
+				break;
+			}
+			byte type = in.get();
+			if (type == HXRecorder.TYPE_KEYFRAME) {
+				in = at(offset, HXRecorder.KEYFRAME_SIZE);
+				if (in == null) {
+					break;
+				}
+				in.get();
+				long tick = in.getLong();
+				in.getLong();
+				int length = in.getInt();
+				if (at(offset, HXRecorder.KEYFRAME_SIZE + length) == null) {
+					break;
+				}
+				if (keyframes) {
+					addSeekEntry(tick, offset);
+				}
+				offset += HXRecorder.KEYFRAME_SIZE + length;
+			} else if (type == HXRecorder.TYPE_TICK) {
+				in = at(offset, HXRecorder.TICK_SIZE);
+				if (in == null) {
+					break;
+				}
+				in.get();
+				long tick = in.getLong();
+				in.position(in.position() - 1 - 8 + HXRecorder.TICK_FLAGS_OFFSET);
+				byte flags = in.get();
+				int count = in.get() & 0xFF;
+				int length = HXRecorder.TICK_SIZE + ((flags & HXRecorder.FLAG_HASH) != 0 ? 8 : 0) + count * HXRecorder.EVENT_SIZE;
+				if (at(offset, length) == null) {
+					break;
+				}
+				lastTick = Math.max(lastTick, tick);
+				offset += length;
+			} else {
+				break;
+			}
+		}
+		end = offset;
+	}
+
+	private void addSeekEntry(long tick, long offset) {
+		if (seekCount == seekTicks.length) {
+			long[] ticks = new long[seekCount * 2];
+			long[] offsets = new long[seekCount * 2];
+			System.arraycopy(seekTicks, 0, ticks, 0, seekCount);
+			System.arraycopy(seekOffsets, 0, offsets, 0, seekCount);
+			seekTicks = ticks;
+			seekOffsets = offsets;
+		}
+		seekTicks[seekCount] = tick;
+		seekOffsets[seekCount] = offset;
+		seekCount++;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public HXWorld getWorld() {
+		return world;
+	}
+	/**
+	 * Play into a world of the caller's instead of one built from the first keyframe.
+	 * <p>
+	 * Keyframes are restored into it, so spawners made on it beforehand, in the
+	 * same order as in the recorded world, are put back on their recorded schedule.
+	 * Call before the first seek() or step().
+	 * @param world - The world to restore keyframes into.
+	 */
+	public void setWorld(HXWorld world) {
+		this.world = world;
+		this.restorePending = true;
+	}
+	public long getFirstTick() {
+		return seekTicks[0];
+	}
+	/**
+	 * @return The last recorded tick. After playing it the world is at getLastTick() + 1.
+	 */
+	public long getLastTick() {
+		return lastTick;
+	}
+	public int getKeyframeCount() {
+		return seekCount;
+	}
+	public long getKeyframeTick(int k) {
+		return seekTicks[k];
+	}
+	/**
+	 * @return The first tick played whose state hash differed from the recording, or -1.
+	 * Only recordings made in deterministic mode carry hashes.
+	 */
+	public long getDesyncTick() {
+		return desyncTick;
+	}
+
+}
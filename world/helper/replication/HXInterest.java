@@ -0,0 +1,66 @@
+package world.helper.replication;
+
+import java.util.Arrays;
+
+public final class HXInterest {
+
+	static final HXInterest EMPTY = new HXInterest(-1, new long[0], new long[0], new long[0], new long[0]);
+
+	private final long tick;
+	private final long[] visible;
+	private final long[] entered;
+	private final long[] left;
+	private final long[] updated;
+
+	/**
+	 * The entities one subscriber of an HXInterestManager is interested in at a
+	 * tick, by serial in ascending order, and how that changed since the previous
+	 * update: entered are newly visible, left are no longer visible and updated
+	 * are visible in both. Never modified once built.
+	 */
+	HXInterest(long tick, long[] visible, long[] entered, long[] left, long[] updated) {
+		this.tick = tick;
+		this.visible = visible;
+		this.entered = entered;
+		this.left = left;
+		this.updated = updated;
+	}
+
+	/**
+	 * Binary search for a serial in the visible set.
+	 */
+	public boolean isVisible(long serial) {
+		return Arrays.binarySearch(visible, serial) >= 0;
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public long getTick() {
+		return tick;
+	}
+	public int getVisibleCount() {
+		return visible.length;
+	}
+	public long getVisible(int i) {
+		return visible[i];
+	}
+	public int getEnteredCount() {
+		return entered.length;
+	}
+	public long getEntered(int i) {
+		return entered[i];
+	}
+	public int getLeftCount() {
+		return left.length;
+	}
+	public long getLeft(int i) {
+		return left[i];
+	}
+	public int getUpdatedCount() {
+		return updated.length;
+	}
+	public long getUpdated(int i) {
+		return updated[i];
+	}
+
+}
@@ -0,0 +1,204 @@
+package world.helper.replication;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.helper.properties.HXCollider;
+
+public class HXInterestManager {
+
+	private final double margin;
+	private final ConcurrentHashMap<Integer, Subscriber> subscribers = new ConcurrentHashMap<Integer, Subscriber>();
+	private final AtomicInteger nextId = new AtomicInteger();
+
+	/* === Scratch, updating thread only === */
+	private HXCollider[] hits = new HXCollider[0];
+	// Serial << 1 | inside the view, per candidate entity
+	private long[] candidates = new long[0];
+	private long[] global = new long[0];
+	private long[] visible = new long[0];
+
+	/**
+	 * Works out which entities each subscriber can see, for per-client replication.
+	 * <p>
+	 * Each subscriber has a view rectangle, usually its HXCamera viewport in world
+	 * coordinates. update() runs one broadphase query per subscriber over the view
+	 * grown by the margin, so the cost per subscriber follows what it can see
+	 * rather than the size of the world. An entity enters when one of its colliders
+	 * overlaps the view and only leaves once none overlap the grown view, so bodies
+	 * moving along the edge don't flicker in and out. Entities without a collider of
+	 * their own, like borders, lines and terrain, are visible to every subscriber.
+	 * <p>
+	 * Views may be changed from any thread, update() runs on the clock thread.
+	 * @param margin - Distance past the view an entity can go before it leaves.
+	 */
+	public HXInterestManager(double margin) {
+		this.margin = margin;
+	}
+
+	// Mark: SUBSCRIBERS
+	// =================
+
+	/**
+	 * @return Id of the new subscriber. Its interest is empty until the next update().
+	 */
+	public int subscribe(double minX, double minY, double maxX, double maxY) {
+		int id = nextId.getAndIncrement();
+		Subscriber s = new Subscriber();
+		s.view = new double[] {minX, minY, maxX, maxY};
+		subscribers.put(id, s);
+		return id;
+	}
+	public void setView(int id, double minX, double minY, double maxX, double maxY) {
+		Subscriber s = subscribers.get(id);
+		if (s != null) {
+			s.view = new double[] {minX, minY, maxX, maxY};
+		}
+	}
+	public void unsubscribe(int id) {
+		subscribers.remove(id);
+	}
+
+	// Mark: UPDATE
+	// ============
+
+	/**
+	 * Recompute every subscriber's interest for the world's current tick.
+	 * @param world - The world, not ticking during the call.
+	 */
+	public void update(HXWorld world) {
+		if (subscribers.isEmpty()) {
+			return;
+		}
+		int globalCount = 0;
+		for (HXEntity e : world.getEntities()) {
+			if (e.getCollider() == null) {
+				if (globalCount == global.length) {
+					global = Arrays.copyOf(global, Math.max(16, globalCount * 2));
+				}
+				global[globalCount++] = e.getSerial();
+			}
+		}
+		Arrays.sort(global, 0, globalCount);
+		if (hits.length < world.getRotatedColliders().size()) {
+			hits = new HXCollider[world.getRotatedColliders().size() * 2];
+		}
+		for (Subscriber s : subscribers.values()) {
+			s.interest = update(world, s.view, s.interest, globalCount);
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Builds one subscriber's interest from a query over its grown view and its
+	 * previous interest, which is what gives entities leaving the hysteresis.
+	 */
+	private HXInterest update(HXWorld world, double[] view, HXInterest previous, int globalCount) {
+		double minX = view[0];
+		double minY = view[1];
+		double maxX = view[2];
+		double maxY = view[3];
+		int n = world.queryAABB(minX - margin, minY - margin, maxX + margin, maxY + margin, hits);
+		if (candidates.length < n) {
+			candidates = new long[n * 2];
+		}
+		int count = 0;
+		for (int h = 0; h < n; h++) {
+			HXCollider c = hits[h];
+			hits[h] = null;
+			if (c.getParent() == null) {
+				continue;
+			}
+			boolean inside = c.getMinX() <= maxX && minX <= c.getMaxX() && c.getMinY() <= maxY && minY <= c.getMaxY();
+			candidates[count++] = c.getParent().getSerial() << 1 | (inside ? 1 : 0);
+		}
+		Arrays.sort(candidates, 0, count);
+
+		// Merge the candidates with the global entities, keeping each serial once
+		if (visible.length < count + globalCount) {
+			visible = new long[(count + globalCount) * 2];
+		}
+		int v = 0;
+		int g = 0;
+		for (int c = 0; c < count; c++) {
+			long serial = candidates[c] >> 1;
+			boolean inside = (candidates[c] & 1) != 0;
+			// A compound entity has one candidate per part, inside if any part is
+			while (c + 1 < count && candidates[c + 1] >> 1 == serial) {
+				inside |= (candidates[++c] & 1) != 0;
+			}
+			while (g < globalCount && global[g] < serial) {
+				visible[v++] = global[g++];
+			}
+			if (g < globalCount && global[g] == serial) {
+				continue;
+			}
+			if (inside || previous.isVisible(serial)) {
+				visible[v++] = serial;
+			}
+		}
+		while (g < globalCount) {
+			visible[v++] = global[g++];
+		}
+		long[] now = Arrays.copyOf(visible, v);
+		return diff(world.getTick(), now, previous);
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Splits the new visible set into entered and updated, and finds what left.
+	 */
+	private static HXInterest diff(long tick, long[] now, HXInterest previous) {
+		int before = previous.getVisibleCount();
+		long[] entered = new long[now.length];
+		long[] updated = new long[now.length];
+		long[] left = new long[before];
+		int e = 0;
+		int u = 0;
+		int l = 0;
+		int p = 0;
+		for (int i = 0; i < now.length; i++) {
+			while (p < before && previous.getVisible(p) < now[i]) {
+				left[l++] = previous.getVisible(p++);
+			}
+			if (p < before && previous.getVisible(p) == now[i]) {
+				updated[u++] = now[i];
+				p++;
+			} else {
+				entered[e++] = now[i];
+			}
+		}
+		while (p < before) {
+			left[l++] = previous.getVisible(p++);
+		}
+		return new HXInterest(tick, now, Arrays.copyOf(entered, e), Arrays.copyOf(left, l), Arrays.copyOf(updated, u));
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	/**
+	 * @return The subscriber's interest as of the last update(), or null if it isn't subscribed.
+	 */
+	public HXInterest getInterest(int id) {
+		Subscriber s = subscribers.get(id);
+		return s == null ? null : s.interest;
+	}
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+	public double getMargin() {
+		return margin;
+	}
+
+	private static final class Subscriber {
+		// Min x, min y, max x, max y, replaced whole so readers never see half a change
+		private volatile double[] view;
+		private volatile HXInterest interest = HXInterest.EMPTY;
+	}
+
+}
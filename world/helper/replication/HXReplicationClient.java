@@ -0,0 +1,235 @@
+package world.helper.replication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.helper.snapshot.HXSnapshot;
+
+public class HXReplicationClient implements Closeable {
+
+	private final SocketChannel channel;
+	private ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+	// Messages to the server not written yet
+	private final ByteBuffer out = ByteBuffer.allocate(1024);
+
+	private HXWorld world;
+	private final HashMap<Long, HXEntity> bySerial = new HashMap<Long, HXEntity>();
+	private final HashMap<Long, ByteBuffer> spawns = new HashMap<Long, ByteBuffer>();
+
+	/* === Frames received, by tick === */
+	private final HXReplicationFrame[] history = new HXReplicationFrame[HXReplicationServer.HISTORY];
+	// Frame the world currently shows
+	private HXReplicationFrame current = HXReplicationFrame.EMPTY;
+	// Tick to acknowledge next, -1 asks for full state
+	private long ackTick = -1;
+	private boolean ackDue = false;
+
+	private long bytesReceived = 0;
+
+	/**
+	 * Mirrors the world of an HXReplicationServer.
+	 * <p>
+	 * The world is created from the server's HELLO and then only changed by
+	 * update(), which applies the received states to it: entities are created from
+	 * their spawn records, moved to their dequantized state or removed. It is never
+	 * ticked, so it can be drawn by an HXWorldPanel whose clock calls update()
+	 * instead of updating the world. Until setView() is called every entity is
+	 * received.
+	 * @param address - Address of the server.
+	 */
+	public HXReplicationClient(InetSocketAddress address) throws IOException {
+		this.channel = SocketChannel.open(address);
+		channel.socket().setTcpNoDelay(true);
+		channel.configureBlocking(false);
+	}
+
+	/**
+	 * Apply every state received since the last call and acknowledge the newest.
+	 * Never blocks.
+	 * @return Number of states applied.
+	 */
+	public int update() throws IOException {
+		int read;
+		while ((read = channel.read(in)) > 0) {
+			bytesReceived += read;
+			if (!in.hasRemaining()) {
+				ByteBuffer grown = ByteBuffer.allocate(in.capacity() * 2);
+				in.flip();
+				grown.put(in);
+				in = grown;
+			}
+		}
+		if (read < 0) {
+			throw new IOException("Server closed");
+		}
+
+		int applied = 0;
+		in.flip();
+		while (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+			int length = in.getInt();
+			int end = in.position() + length;
+			byte type = in.get();
+			if (type == HXReplicationCodec.MSG_HELLO) {
+				world = new HXWorld(in.getInt(), in.getInt(), false);
+				world.setScale(in.getDouble());
+			} else if (type == HXReplicationCodec.MSG_STATE && world != null) {
+				if (readState()) {
+					applied++;
+				}
+			}
+			in.position(end);
+		}
+		in.compact();
+
+		if (ackDue && out.remaining() >= HXReplicationCodec.ACK_SIZE) {
+			out.putInt(HXReplicationCodec.ACK_SIZE - 4);
+			out.put(HXReplicationCodec.MSG_ACK);
+			out.putLong(ackTick);
+			ackDue = false;
+		}
+		flush();
+		return applied;
+	}
+
+	/**
+	 * Only receive the entities in a rectangle of world coordinates, such as the
+	 * HXCamera viewport. Entities leaving it are removed from the replicated world
+	 * once they are a margin past it, entities entering it are created.
+	 */
+	public void setView(double minX, double minY, double maxX, double maxY) throws IOException {
+		if (out.remaining() < HXReplicationCodec.VIEW_SIZE) {
+			flush();
+			if (out.remaining() < HXReplicationCodec.VIEW_SIZE) {
+				throw new IOException("Server isn't reading");
+			}
+		}
+		out.putInt(HXReplicationCodec.VIEW_SIZE - 4);
+		out.put(HXReplicationCodec.MSG_VIEW);
+		out.putDouble(minX);
+		out.putDouble(minY);
+		out.putDouble(maxX);
+		out.putDouble(maxY);
+		flush();
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Decodes a STATE against its baseline and applies it. Spawn records point into
+	 * the receive buffer, so they are used up before it is compacted.
+	 * @return False if the baseline is no longer held, full state is asked for instead.
+	 */
+	private boolean readState() {
+		long tick = in.getLong();
+		long baselineTick = in.getLong();
+		HXReplicationFrame baseline = HXReplicationFrame.EMPTY;
+		if (baselineTick >= 0) {
+			baseline = history[(int) Math.floorMod(baselineTick, (long) history.length)];
+			if (baseline == null || baseline.tick != baselineTick) {
+				ackTick = -1;
+				ackDue = true;
+				return false;
+			}
+		}
+		spawns.clear();
+		HXReplicationFrame frame = HXReplicationCodec.decodeState(in, tick, baseline, spawns);
+		apply(frame);
+		spawns.clear();
+		history[(int) Math.floorMod(tick, (long) history.length)] = frame;
+		current = frame;
+		ackTick = tick;
+		ackDue = true;
+		return true;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Moves the world from the current frame to a new one, touching only entities
+	 * that differ between the two.
+	 */
+	private void apply(HXReplicationFrame frame) {
+		int c = 0;
+		for (int i = 0; i < frame.count; i++) {
+			long serial = frame.serials[i];
+			while (c < current.count && current.serials[c] < serial) {
+				remove(current.serials[c++]);
+			}
+			int f = i * HXReplicationFrame.FIELDS;
+			if (c < current.count && current.serials[c] == serial) {
+				if (!sameFields(current.fields, c * HXReplicationFrame.FIELDS, frame.fields, f)) {
+					HXEntity e = bySerial.get(serial);
+					if (e != null) {
+						HXReplicationCodec.apply(e, frame.fields, f);
+					}
+				}
+				c++;
+				continue;
+			}
+			ByteBuffer record = spawns.get(serial);
+			if (record == null) {
+				throw new IllegalStateException("Replicated entity " + serial + " arrived without a spawn record");
+			}
+			HXEntity e = HXSnapshot.readEntity(record, world);
+			if (e != null) {
+				bySerial.put(serial, e);
+				HXReplicationCodec.apply(e, frame.fields, f);
+			}
+		}
+		while (c < current.count) {
+			remove(current.serials[c++]);
+		}
+	}
+	private void remove(long serial) {
+		HXEntity e = bySerial.remove(serial);
+		if (e != null) {
+			e.remove();
+		}
+	}
+	private static boolean sameFields(int[] a, int aOffset, int[] b, int bOffset) {
+		for (int field = 0; field < HXReplicationFrame.FIELDS; field++) {
+			if (a[aOffset + field] != b[bOffset + field]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	private void flush() throws IOException {
+		out.flip();
+		channel.write(out);
+		out.compact();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	/**
+	 * @return The replicated world, null until the server's HELLO arrives.
+	 */
+	public HXWorld getWorld() {
+		return world;
+	}
+	/**
+	 * @return Tick of the newest state applied, -1 before the first.
+	 */
+	public long getTick() {
+		return current.tick;
+	}
+	public HXEntity getEntity(long serial) {
+		return bySerial.get(serial);
+	}
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+}
@@ -0,0 +1,270 @@
+package world.helper.replication;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import world.entities.HXEntity;
+
+/**
+ * Wire format shared by HXReplicationServer and HXReplicationClient.
+ * <p>
+ * Every message is an int length followed by a type byte. The server sends a
+ * HELLO (world width, height, scale) on connect and then STATE messages, each
+ * encoded against the last tick the client acknowledged. A STATE holds the tick,
+ * the baseline tick (-1 for none), the serials removed since the baseline, and an
+ * entry for every entity spawned or changed since the baseline: the serial, a
+ * mask of changed fields, the HXSnapshot entity record when it is new to the
+ * client, then the zigzag varint difference of each changed field. Serials are
+ * varint differences from the previous serial in the list. The client answers
+ * each batch of STATEs with an ACK of the newest tick it applied, and may send a
+ * VIEW rectangle at any time to only receive the entities it can see.
+ */
+final class HXReplicationCodec {
+
+	/* === Message types === */
+	static final byte MSG_HELLO = 1;
+	static final byte MSG_STATE = 2;
+	static final byte MSG_ACK = 3;
+	static final byte MSG_VIEW = 4;
+
+	static final int ACK_SIZE = 4 + 1 + 8;
+	// Min x, min y, max x, max y
+	static final int VIEW_SIZE = 4 + 1 + 4 * 8;
+
+	// Mask bit of an entry that carries the entity's spawn record
+	static final int SPAWN = 0x80;
+
+	/* === Quantization steps === */
+	private static final double POSITION_SCALE = 256; // 1/256 px
+	private static final double ROTATION_SCALE = 65536 / (2 * Math.PI); // 1/65536 turn
+	private static final double VELOCITY_SCALE = 4096; // 1/4096 px per tick
+	private static final double R_VEL_SCALE = 1 << 20; // 1/2^20 rad per tick
+	private static final double LIFESPAN_SCALE = 1024;
+
+	private HXReplicationCodec() {
+	}
+
+	// Mark: QUANTIZATION
+	// ==================
+
+	static void quantize(HXEntity e, int[] out, int offset) {
+		out[offset + HXReplicationFrame.X] = (int) Math.round(e.getxPos() * POSITION_SCALE);
+		out[offset + HXReplicationFrame.Y] = (int) Math.round(e.getyPos() * POSITION_SCALE);
+		out[offset + HXReplicationFrame.ROTATION] = (int) Math.round(e.getRotation() * ROTATION_SCALE) & 0xFFFF;
+		out[offset + HXReplicationFrame.X_VEL] = (int) Math.round(e.getxVel() * VELOCITY_SCALE);
+		out[offset + HXReplicationFrame.Y_VEL] = (int) Math.round(e.getyVel() * VELOCITY_SCALE);
+		out[offset + HXReplicationFrame.R_VEL] = (int) Math.round(e.getRotationalVelocity() * R_VEL_SCALE);
+		out[offset + HXReplicationFrame.LIFESPAN] = (int) Math.round(e.getLifespan() * LIFESPAN_SCALE);
+	}
+	static void apply(HXEntity e, int[] fields, int offset) {
+		e.setReplicatedState(
+				fields[offset + HXReplicationFrame.X] / POSITION_SCALE,
+				fields[offset + HXReplicationFrame.Y] / POSITION_SCALE,
+				fields[offset + HXReplicationFrame.ROTATION] / ROTATION_SCALE,
+				fields[offset + HXReplicationFrame.X_VEL] / VELOCITY_SCALE,
+				fields[offset + HXReplicationFrame.Y_VEL] / VELOCITY_SCALE,
+				fields[offset + HXReplicationFrame.R_VEL] / R_VEL_SCALE,
+				fields[offset + HXReplicationFrame.LIFESPAN] / LIFESPAN_SCALE);
+	}
+
+	// Mark: STATE MESSAGES
+	// ====================
+
+	/**
+	 * Write a STATE message for a frame against a baseline.
+	 * @throws java.nio.BufferOverflowException if the buffer is too small.
+	 */
+	static void encodeState(HXReplicationFrame frame, HXReplicationFrame baseline, ByteBuffer out) {
+		int lengthAt = out.position();
+		out.putInt(0);
+		out.put(MSG_STATE);
+		out.putLong(frame.tick);
+		out.putLong(baseline.tick);
+
+		// Serials in the baseline but no longer in the frame
+		int countAt = out.position();
+		out.putInt(0);
+		int removed = 0;
+		long last = 0;
+		int i = 0;
+		for (int j = 0; j < baseline.count; j++) {
+			long serial = baseline.serials[j];
+			while (i < frame.count && frame.serials[i] < serial) {
+				i++;
+			}
+			if (i < frame.count && frame.serials[i] == serial) {
+				continue;
+			}
+			putVarLong(out, serial - last);
+			last = serial;
+			removed++;
+		}
+		out.putInt(countAt, removed);
+
+		// Entities new to the baseline or with a changed field
+		countAt = out.position();
+		out.putInt(0);
+		int entries = 0;
+		last = 0;
+		int j = 0;
+		for (i = 0; i < frame.count; i++) {
+			long serial = frame.serials[i];
+			while (j < baseline.count && baseline.serials[j] < serial) {
+				j++;
+			}
+			boolean known = j < baseline.count && baseline.serials[j] == serial;
+			int f = i * HXReplicationFrame.FIELDS;
+			int b = j * HXReplicationFrame.FIELDS;
+			int mask = known ? 0 : SPAWN;
+			for (int field = 0; field < HXReplicationFrame.FIELDS; field++) {
+				if (frame.fields[f + field] != (known ? baseline.fields[b + field] : 0)) {
+					mask |= 1 << field;
+				}
+			}
+			if (mask == 0) {
+				continue;
+			}
+			putVarLong(out, serial - last);
+			last = serial;
+			out.put((byte) mask);
+			if (!known) {
+				putVarInt(out, frame.spawns[i].length);
+				out.put(frame.spawns[i]);
+			}
+			for (int field = 0; field < HXReplicationFrame.FIELDS; field++) {
+				if ((mask & (1 << field)) != 0) {
+					putVarInt(out, zigzag(frame.fields[f + field] - (known ? baseline.fields[b + field] : 0)));
+				}
+			}
+			entries++;
+		}
+		out.putInt(countAt, entries);
+		out.putInt(lengthAt, out.position() - lengthAt - 4);
+	}
+
+	/**
+	 * Read the body of a STATE message, after its tick and baseline tick, into a new frame.
+	 * @param tick - The tick of the message.
+	 * @param baseline - The frame the message was encoded against.
+	 * @param spawnsOut - Receives the spawn record of every entity new to the baseline, by serial.
+	 * @return The frame, without spawn records.
+	 */
+	static HXReplicationFrame decodeState(ByteBuffer in, long tick, HXReplicationFrame baseline, HashMap<Long, ByteBuffer> spawnsOut) {
+		// Flag the baseline entities removed since, both lists are in serial order
+		boolean[] removed = new boolean[baseline.count];
+		int removedCount = in.getInt();
+		long last = 0;
+		int j = 0;
+		for (int r = 0; r < removedCount; r++) {
+			last += getVarLong(in);
+			while (j < baseline.count && baseline.serials[j] < last) {
+				j++;
+			}
+			if (j < baseline.count && baseline.serials[j] == last) {
+				removed[j] = true;
+			}
+		}
+
+		int entries = in.getInt();
+		long[] serials = new long[baseline.count + entries];
+		int[] fields = new int[serials.length * HXReplicationFrame.FIELDS];
+		int count = 0;
+		j = 0;
+		last = 0;
+		for (int u = 0; u < entries; u++) {
+			long serial = last + getVarLong(in);
+			last = serial;
+			int mask = in.get() & 0xFF;
+			// Carry over the untouched baseline entities before this one
+			for (; j < baseline.count && baseline.serials[j] < serial; j++) {
+				if (!removed[j]) {
+					count = carry(baseline, j, serials, fields, count);
+				}
+			}
+			boolean known = j < baseline.count && baseline.serials[j] == serial;
+			if (!known && (mask & SPAWN) == 0) {
+				throw new IllegalStateException("Corrupt replication state, serial " + serial + " is not in the baseline");
+			}
+			if ((mask & SPAWN) != 0) {
+				int length = getVarInt(in);
+				ByteBuffer record = in.slice();
+				record.limit(length);
+				spawnsOut.put(serial, record);
+				in.position(in.position() + length);
+			}
+			serials[count] = serial;
+			int f = count * HXReplicationFrame.FIELDS;
+			int b = j * HXReplicationFrame.FIELDS;
+			for (int field = 0; field < HXReplicationFrame.FIELDS; field++) {
+				int value = known ? baseline.fields[b + field] : 0;
+				if ((mask & (1 << field)) != 0) {
+					value += unzigzag(getVarInt(in));
+				}
+				fields[f + field] = value;
+			}
+			count++;
+			if (known) {
+				j++;
+			}
+		}
+		for (; j < baseline.count; j++) {
+			if (!removed[j]) {
+				count = carry(baseline, j, serials, fields, count);
+			}
+		}
+		return new HXReplicationFrame(tick, count, serials, fields, null);
+	}
+
+	private static int carry(HXReplicationFrame baseline, int j, long[] serials, int[] fields, int count) {
+		serials[count] = baseline.serials[j];
+		System.arraycopy(baseline.fields, j * HXReplicationFrame.FIELDS, fields, count * HXReplicationFrame.FIELDS, HXReplicationFrame.FIELDS);
+		return count + 1;
+	}
+
+	// Mark: VARINTS
+	// =============
+
+	static int zigzag(int v) {
+		return (v << 1) ^ (v >> 31);
+	}
+	static int unzigzag(int v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+	static void putVarInt(ByteBuffer out, int v) {
+		while ((v & ~0x7F) != 0) {
+			out.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.put((byte) v);
+	}
+	static int getVarInt(ByteBuffer in) {
+		int v = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			v |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return v;
+			}
+		}
+		throw new IllegalStateException("Corrupt replication varint");
+	}
+	static void putVarLong(ByteBuffer out, long v) {
+		while ((v & ~0x7FL) != 0) {
+			out.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.put((byte) v);
+	}
+	static long getVarLong(ByteBuffer in) {
+		long v = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			byte b = in.get();
+			v |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return v;
+			}
+		}
+		throw new IllegalStateException("Corrupt replication varint");
+	}
+
+}
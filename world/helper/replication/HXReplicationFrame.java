@@ -0,0 +1,64 @@
+package world.helper.replication;
+
+import java.util.Arrays;
+
+/**
+ * Quantized state of every replicated entity at one tick, in ascending serial
+ * order. Never modified once built, so the clock thread can publish frames that
+ * the network thread reads without locking.
+ */
+final class HXReplicationFrame {
+
+	/* === Quantized fields per entity === */
+	static final int X = 0;
+	static final int Y = 1;
+	static final int ROTATION = 2;
+	static final int X_VEL = 3;
+	static final int Y_VEL = 4;
+	static final int R_VEL = 5;
+	static final int LIFESPAN = 6;
+	static final int FIELDS = 7;
+
+	// Baseline of a client that has acknowledged nothing
+	static final HXReplicationFrame EMPTY = new HXReplicationFrame(-1, 0, new long[0], new int[0], null);
+
+	final long tick;
+	final int count;
+	final long[] serials;
+	// FIELDS values per entity
+	final int[] fields;
+	// Server only: the HXSnapshot record each entity is created from on a client, shared between frames
+	final byte[][] spawns;
+
+	HXReplicationFrame(long tick, int count, long[] serials, int[] fields, byte[][] spawns) {
+		this.tick = tick;
+		this.count = count;
+		this.serials = serials;
+		this.fields = fields;
+		this.spawns = spawns;
+	}
+
+	/**
+	 * Keep only the entities of an interest set, for a client with a view.
+	 * Binary searches each visible serial, so the cost follows the interest size.
+	 */
+	HXReplicationFrame restrict(HXInterest interest) {
+		int n = interest.getVisibleCount();
+		long[] keptSerials = new long[n];
+		int[] keptFields = new int[n * FIELDS];
+		byte[][] keptSpawns = new byte[n][];
+		int kept = 0;
+		for (int v = 0; v < n; v++) {
+			int i = Arrays.binarySearch(serials, 0, count, interest.getVisible(v));
+			if (i < 0) {
+				continue;
+			}
+			keptSerials[kept] = serials[i];
+			System.arraycopy(fields, i * FIELDS, keptFields, kept * FIELDS, FIELDS);
+			keptSpawns[kept] = spawns[i];
+			kept++;
+		}
+		return new HXReplicationFrame(tick, kept, keptSerials, keptFields, keptSpawns);
+	}
+
+}
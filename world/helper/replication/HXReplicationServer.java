@@ -0,0 +1,433 @@
+package world.helper.replication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.helper.snapshot.HXSnapshot;
+
+public class HXReplicationServer implements Closeable {
+
+	// Frames kept as baselines, a client further behind than this gets full state
+	static final int HISTORY = 64;
+	// Distance past a client's view an entity can go before it stops being sent, one broadphase cell
+	private static final double INTEREST_MARGIN = 64;
+
+	private final HXWorld world;
+	private final ServerSocketChannel server;
+	private final Selector selector;
+	private Thread thread;
+	private volatile boolean running = false;
+
+	/* === Published on the clock thread === */
+	private final HXInterestManager interest = new HXInterestManager(INTEREST_MARGIN);
+	private volatile HXReplicationFrame latest = HXReplicationFrame.EMPTY;
+	// Set while publish() runs, to catch a server shared between concurrently ticking worlds
+	private final AtomicBoolean publishing = new AtomicBoolean();
+	// Scratch for capturing, clock thread only
+	private HXEntity[] sorted = new HXEntity[0];
+	private ByteBuffer spawnScratch = ByteBuffer.allocate(1024);
+
+	/* === Network thread only === */
+	private final ArrayList<Connection> connections = new ArrayList<Connection>();
+	// Encodings of the newest frame by baseline tick, shared by clients on the same baseline
+	private final HashMap<Long, ByteBuffer> encodings = new HashMap<Long, ByteBuffer>();
+	private long encodedTick = -1;
+	private ByteBuffer encodeScratch = ByteBuffer.allocate(64 * 1024);
+
+	/* === Stats === */
+	private volatile long bytesSent = 0;
+	private volatile long encodeCount = 0;
+
+	/**
+	 * Streams the state of a world to HXReplicationClients over TCP.
+	 * <p>
+	 * The clock thread only quantizes the world into an immutable frame each tick
+	 * with publish(). Encoding and socket writes happen on the server's own NIO
+	 * thread: each client is sent the newest frame as a delta against the last
+	 * frame it acknowledged, holding only entities that spawned, were removed or
+	 * changed a quantized transform, velocity or lifespan. Clients acknowledging
+	 * the same tick share one encoding. A client that can't keep up skips frames
+	 * rather than queueing them, since every message is relative to what it has.
+	 * <p>
+	 * A client that sends a view rectangle only receives the entities an
+	 * HXInterestManager finds in it. Entities entering the view arrive as spawns
+	 * and entities leaving it as removals, and its messages are encoded for it
+	 * alone, so its bandwidth and encode cost follow what it can see.
+	 * @param world - The world to replicate.
+	 * @param address - Address to listen on, port 0 picks a free port.
+	 */
+	public HXReplicationServer(HXWorld world, InetSocketAddress address) throws IOException {
+		this.world = world;
+		this.selector = Selector.open();
+		this.server = ServerSocketChannel.open();
+		server.bind(address);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Start the network thread.
+	 */
+	public void start() {
+		running = true;
+		thread = new Thread("HXReplicationServer") {
+			public void run() {
+				while (running) {
+					try {
+						selector.select();
+						handleKeys();
+						sendLatest();
+					} catch (IOException e) {
+						e.printStackTrace();
+						running = false;
+					}
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// Mark: CLOCK THREAD
+	// ==================
+
+	/**
+	 * Quantize the world into the frame for its current tick, update the interest
+	 * of clients with a view and wake the network thread. Call on the clock thread
+	 * after every world.updateTick(). Ticks must increase between calls, restart
+	 * the server after rolling the world back. Each server replicates one world
+	 * and must be published from one thread at a time, so rooms of an HXWorldHost
+	 * each need their own server.
+	 * @throws IllegalStateException if called while another publish() is running.
+	 */
+	public void publish() {
+		if (!publishing.compareAndSet(false, true)) {
+			throw new IllegalStateException("HXReplicationServer published from two threads at once, use one server per world");
+		}
+		try {
+			HXReplicationFrame previous = latest;
+			HXReplicationFrame frame = capture(previous);
+			interest.update(world);
+			latest = frame;
+			selector.wakeup();
+		} finally {
+			publishing.set(false);
+		}
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Builds the frame in serial order. Spawn records are carried over from the
+	 * previous frame, so only entities new since then are serialized.
+	 */
+	private HXReplicationFrame capture(HXReplicationFrame previous) {
+		int n = 0;
+		for (HXEntity e : world.getEntities()) {
+			if (n == sorted.length) {
+				sorted = Arrays.copyOf(sorted, Math.max(16, n * 2));
+			}
+			sorted[n++] = e;
+		}
+		// Nearly sorted already, newest first outside deterministic mode, which the sort detects
+		Arrays.sort(sorted, 0, n, (a, b) -> Long.compare(a.getSerial(), b.getSerial()));
+
+		long[] serials = new long[n];
+		int[] fields = new int[n * HXReplicationFrame.FIELDS];
+		byte[][] spawns = new byte[n][];
+		int p = 0;
+		for (int i = 0; i < n; i++) {
+			HXEntity e = sorted[i];
+			sorted[i] = null;
+			serials[i] = e.getSerial();
+			HXReplicationCodec.quantize(e, fields, i * HXReplicationFrame.FIELDS);
+			while (p < previous.count && previous.serials[p] < serials[i]) {
+				p++;
+			}
+			if (p < previous.count && previous.serials[p] == serials[i]) {
+				spawns[i] = previous.spawns[p];
+			} else {
+				spawns[i] = spawnRecord(e);
+			}
+		}
+		return new HXReplicationFrame(world.getTick(), n, serials, fields, spawns);
+	}
+	private byte[] spawnRecord(HXEntity e) {
+		while (true) {
+			try {
+				spawnScratch.clear();
+				HXSnapshot.writeEntity(e, spawnScratch);
+				spawnScratch.flip();
+				byte[] record = new byte[spawnScratch.remaining()];
+				spawnScratch.get(record);
+				return record;
+			} catch (BufferOverflowException ex) {
+				spawnScratch = ByteBuffer.allocate(spawnScratch.capacity() * 2);
+			}
+		}
+	}
+
+	// Mark: NETWORK THREAD
+	// ====================
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Accepts clients, reads acknowledgements and continues partial writes.
+	 */
+	private void handleKeys() throws IOException {
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			if (!key.isValid()) {
+				continue;
+			}
+			if (key.isAcceptable()) {
+				accept();
+				continue;
+			}
+			Connection c = (Connection) key.attachment();
+			try {
+				if (key.isReadable()) {
+					readMessages(c);
+				}
+				if (key.isValid() && key.isWritable()) {
+					flush(c);
+				}
+			} catch (IOException e) {
+				drop(c);
+			}
+		}
+	}
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Connection c = new Connection(channel);
+		c.key = channel.register(selector, SelectionKey.OP_READ, c);
+		connections.add(c);
+
+		ByteBuffer hello = ByteBuffer.allocate(4 + 1 + 4 + 4 + 8);
+		hello.putInt(hello.capacity() - 4);
+		hello.put(HXReplicationCodec.MSG_HELLO);
+		hello.putInt(world.getWidth());
+		hello.putInt(world.getHeight());
+		hello.putDouble(world.getScale());
+		hello.flip();
+		c.pending = hello;
+		try {
+			flush(c);
+		} catch (IOException e) {
+			drop(c);
+		}
+	}
+	private void readMessages(Connection c) throws IOException {
+		if (c.channel.read(c.in) < 0) {
+			throw new IOException("Client closed");
+		}
+		c.in.flip();
+		if (c.in.remaining() >= 4 && c.in.getInt(c.in.position()) > c.in.capacity() - 4) {
+			throw new IOException("Oversized message from client");
+		}
+		while (c.in.remaining() >= 4 + 1 && c.in.remaining() >= 4 + c.in.getInt(c.in.position())) {
+			int length = c.in.getInt();
+			byte type = c.in.get();
+			if (type == HXReplicationCodec.MSG_ACK && length == HXReplicationCodec.ACK_SIZE - 4) {
+				c.ackedTick = c.in.getLong();
+			} else if (type == HXReplicationCodec.MSG_VIEW && length == HXReplicationCodec.VIEW_SIZE - 4) {
+				double minX = c.in.getDouble();
+				double minY = c.in.getDouble();
+				double maxX = c.in.getDouble();
+				double maxY = c.in.getDouble();
+				if (c.subscriber < 0) {
+					c.subscriber = interest.subscribe(minX, minY, maxX, maxY);
+				} else {
+					interest.setView(c.subscriber, minX, minY, maxX, maxY);
+				}
+			} else {
+				throw new IOException("Unexpected message from client");
+			}
+		}
+		c.in.compact();
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Sends the newest frame to every client that is done writing and hasn't had it.
+	 * Clients without a view share encodings, the others get the frame restricted
+	 * to their interest. Either way the frame sent is kept as the client's baseline.
+	 */
+	private void sendLatest() {
+		HXReplicationFrame frame = latest;
+		if (frame.tick != encodedTick) {
+			encodings.clear();
+			encodedTick = frame.tick;
+		}
+		for (int i = connections.size() - 1; i >= 0; i--) {
+			Connection c = connections.get(i);
+			if (c.pending != null || c.sentTick >= frame.tick || frame == HXReplicationFrame.EMPTY) {
+				continue;
+			}
+			HXReplicationFrame baseline = c.baselineFor(frame.tick);
+			HXReplicationFrame sent = frame;
+			ByteBuffer encoding;
+			if (c.subscriber < 0) {
+				encoding = encodings.get(baseline.tick);
+				if (encoding == null) {
+					encoding = encode(frame, baseline);
+					encodings.put(baseline.tick, encoding);
+				}
+				encoding = encoding.duplicate();
+			} else {
+				HXInterest visible = interest.getInterest(c.subscriber);
+				if (visible.getTick() < 0) {
+					// Not updated since the view arrived
+					continue;
+				}
+				sent = frame.restrict(visible);
+				encoding = encode(sent, baseline);
+			}
+			c.sent[(int) Math.floorMod(frame.tick, (long) HISTORY)] = sent;
+			c.pending = encoding;
+			c.sentTick = frame.tick;
+			try {
+				flush(c);
+			} catch (IOException e) {
+				drop(c);
+			}
+		}
+	}
+	private ByteBuffer encode(HXReplicationFrame frame, HXReplicationFrame baseline) {
+		while (true) {
+			try {
+				encodeScratch.clear();
+				HXReplicationCodec.encodeState(frame, baseline, encodeScratch);
+				encodeScratch.flip();
+				ByteBuffer encoding = ByteBuffer.allocate(encodeScratch.remaining());
+				encoding.put(encodeScratch).flip();
+				encodeCount++;
+				return encoding.asReadOnlyBuffer();
+			} catch (BufferOverflowException e) {
+				encodeScratch = ByteBuffer.allocate(encodeScratch.capacity() * 2);
+			}
+		}
+	}
+	private void flush(Connection c) throws IOException {
+		if (c.pending != null) {
+			bytesSent += c.channel.write(c.pending);
+			if (c.pending.hasRemaining()) {
+				c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				return;
+			}
+			c.pending = null;
+		}
+		c.key.interestOps(SelectionKey.OP_READ);
+	}
+	private void drop(Connection c) {
+		connections.remove(c);
+		if (c.subscriber >= 0) {
+			interest.unsubscribe(c.subscriber);
+		}
+		c.key.cancel();
+		try {
+			c.channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stop the network thread and disconnect every client.
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		selector.wakeup();
+		if (thread != null) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for (Connection c : connections) {
+			c.channel.close();
+		}
+		connections.clear();
+		server.close();
+		selector.close();
+	}
+
+	// Mark: GETTERS & SETTERS
+	// =======================
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+	public long getPublishedTick() {
+		return latest.tick;
+	}
+	public HXInterestManager getInterestManager() {
+		return interest;
+	}
+	public long getBytesSent() {
+		return bytesSent;
+	}
+	/**
+	 * @return Number of STATE messages encoded. Lower than the number sent when clients share baselines.
+	 */
+	public long getEncodeCount() {
+		return encodeCount;
+	}
+
+	/**
+	 * A connected client, used by the network thread only.
+	 */
+	private static final class Connection {
+		private final SocketChannel channel;
+		private SelectionKey key;
+		private final ByteBuffer in = ByteBuffer.allocate(256);
+		// Message being written, or null
+		private ByteBuffer pending;
+		private long ackedTick = -1;
+		private long sentTick = -1;
+		// Frames as sent to this client, by tick, the baselines its acknowledgements refer to
+		private final HXReplicationFrame[] sent = new HXReplicationFrame[HISTORY];
+		// Interest manager id once the client sends a view, -1 receives everything
+		private int subscriber = -1;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		private HXReplicationFrame baselineFor(long tick) {
+			if (ackedTick < 0 || tick - ackedTick >= HISTORY) {
+				return HXReplicationFrame.EMPTY;
+			}
+			HXReplicationFrame baseline = sent[(int) Math.floorMod(ackedTick, (long) HISTORY)];
+			if (baseline == null || baseline.tick != ackedTick) {
+				return HXReplicationFrame.EMPTY;
+			}
+			return baseline;
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package world.helper.snapshot;
+
+import java.nio.ByteBuffer;
+
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.helper.properties.HXCollider;
+
+/**
+ * Saves and recreates one entity type for HXSnapshot without reflection.
+ * <p>
+ * A codec only handles what the type's constructor needs. Everything else
+ * (transforms, velocities, flags, lifespan) is written by HXEntity.writeState()
+ * and applied over the new entity afterwards.
+ * @param <T> - The entity type.
+ */
+public interface HXEntityCodec<T extends HXEntity> {
+
+	/**
+	 * Write the constructor arguments of the entity.
+	 */
+	public void writeArguments(T entity, ByteBuffer out);
+
+	/**
+	 * Read the arguments written by writeArguments() and construct the entity in the world.
+	 */
+	public T create(ByteBuffer in, HXWorld world);
+
+	/**
+	 * Index of one of the entity's colliders, for saving the contacts it is part of.
+	 * Types with more than one collider override this and collider().
+	 */
+	public default int colliderIndex(T entity, HXCollider collider) {
+		return 0;
+	}
+
+	/**
+	 * The entity's collider at an index returned by colliderIndex().
+	 */
+	public default HXCollider collider(T entity, int index) {
+		return entity.getCollider();
+	}
+}
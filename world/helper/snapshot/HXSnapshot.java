@@ -0,0 +1,421 @@
+package world.helper.snapshot;
+
+import java.awt.Color;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import world.HXWorld;
+import world.entities.HXEntity;
+import world.entities.Line;
+import world.entities.Square;
+import world.entities.Terrain;
+import world.entities.Wall;
+import world.entities.WorldBorder;
+import world.entities.WorldScreen;
+import world.helper.HXSpawner;
+import world.helper.chunks.HXChunkManager;
+import world.helper.math.HXVector;
+import world.helper.physics.HXContact;
+import world.helper.physics.HXManifold;
+import world.helper.properties.HXCollider;
+
+public class HXSnapshot {
+
+	// "HXSW"
+	public static final int MAGIC = 0x48585357;
+	// 2 added the spawn schedule
+	public static final short VERSION = 2;
+
+	private static final int INITIAL_CAPACITY = 64 * 1024;
+
+	// Entity types by class and by tag. Lookups use the exact class, never reflection
+	private static final ConcurrentHashMap<Class<?>, Registration<?>> BY_TYPE = new ConcurrentHashMap<Class<?>, Registration<?>>();
+	private static final ConcurrentHashMap<Short, Registration<?>> BY_TAG = new ConcurrentHashMap<Short, Registration<?>>();
+
+	static {
+		register((short) 1, WorldBorder.class, new HXEntityCodec<WorldBorder>() {
+			public void writeArguments(WorldBorder e, ByteBuffer out) {
+			}
+			public WorldBorder create(ByteBuffer in, HXWorld world) {
+				return new WorldBorder(world);
+			}
+		});
+		register((short) 2, WorldScreen.class, new HXEntityCodec<WorldScreen>() {
+			public void writeArguments(WorldScreen e, ByteBuffer out) {
+			}
+			public WorldScreen create(ByteBuffer in, HXWorld world) {
+				return new WorldScreen(world);
+			}
+		});
+		register((short) 3, Square.class, new HXEntityCodec<Square>() {
+			public void writeArguments(Square e, ByteBuffer out) {
+			}
+			public Square create(ByteBuffer in, HXWorld world) {
+				return new Square(0, 0, 0, 0, world);
+			}
+		});
+		// Walls saved with whole number dimensions, still read. Tag 7 replaces it for writing
+		register((short) 4, Wall.class, new HXEntityCodec<Wall>() {
+			public void writeArguments(Wall e, ByteBuffer out) {
+				out.putInt((int) e.getWidth());
+				out.putInt((int) e.getHeight());
+			}
+			public Wall create(ByteBuffer in, HXWorld world) {
+				return new Wall(0, 0, in.getInt(), in.getInt(), world);
+			}
+		});
+		register((short) 7, Wall.class, new HXEntityCodec<Wall>() {
+			public void writeArguments(Wall e, ByteBuffer out) {
+				out.putDouble(e.getWidth());
+				out.putDouble(e.getHeight());
+			}
+			public Wall create(ByteBuffer in, HXWorld world) {
+				return new Wall(0, 0, in.getDouble(), in.getDouble(), world);
+			}
+		});
+		register((short) 5, Line.class, new HXEntityCodec<Line>() {
+			public void writeArguments(Line e, ByteBuffer out) {
+				out.putInt(e.getxPosA());
+				out.putInt(e.getyPosA());
+				out.putInt(e.getxPosB());
+				out.putInt(e.getyPosB());
+				out.putInt(e.getColor() == null ? 0 : e.getColor().getRGB());
+			}
+			public Line create(ByteBuffer in, HXWorld world) {
+				return new Line(in.getInt(), in.getInt(), in.getInt(), in.getInt(), new Color(in.getInt(), true), world);
+			}
+		});
+		register((short) 6, Terrain.class, new HXEntityCodec<Terrain>() {
+			public void writeArguments(Terrain e, ByteBuffer out) {
+				HXVector[] outline = e.getCompoundCollider().getOutline();
+				out.putInt(outline.length);
+				for (HXVector v : outline) {
+					out.putDouble(v.x);
+					out.putDouble(v.y);
+				}
+			}
+			public Terrain create(ByteBuffer in, HXWorld world) {
+				HXVector[] outline = new HXVector[in.getInt()];
+				for (int v = 0; v < outline.length; v++) {
+					outline[v] = new HXVector(in.getDouble(), in.getDouble());
+				}
+				return new Terrain(outline, world);
+			}
+			public int colliderIndex(Terrain e, HXCollider collider) {
+				HXCollider[] parts = e.getCompoundCollider().getParts();
+				for (int p = 0; p < parts.length; p++) {
+					if (parts[p] == collider) {
+						return p;
+					}
+				}
+				return -1;
+			}
+			public HXCollider collider(Terrain e, int index) {
+				return e.getCompoundCollider().getParts()[index];
+			}
+		});
+	}
+
+	/**
+	 * Register how to save and recreate an entity type.
+	 * <p>
+	 * Tags are written to snapshots and must stay the same across versions of the
+	 * game. Tags 1 to 99 are used by the built in entities. Registering a type
+	 * again under a new tag writes it with the new codec from then on, while
+	 * records under the old tag still read.
+	 * @param tag - Unique id for the type in snapshots.
+	 * @param type - The exact entity class.
+	 * @param codec - Writes the constructor arguments and constructs the entity.
+	 */
+	public static <T extends HXEntity> void register(short tag, Class<T> type, HXEntityCodec<T> codec) {
+		Registration<?> existing = BY_TAG.get(tag);
+		if (existing != null && existing.type != type) {
+			throw new IllegalArgumentException("Snapshot tag " + tag + " is already used by " + existing.type.getName());
+		}
+		Registration<T> registration = new Registration<T>(tag, type, codec);
+		BY_TAG.put(tag, registration);
+		BY_TYPE.put(type, registration);
+	}
+
+	/**
+	 * @return True if entities of the exact class can be written with writeEntity().
+	 */
+	public static boolean isRegistered(Class<? extends HXEntity> type) {
+		return BY_TYPE.containsKey(type);
+	}
+
+	/**
+	 * Save the world into a new buffer sized to fit.
+	 * @return The snapshot, flipped and ready to be read or written to a channel.
+	 */
+	public static ByteBuffer capture(HXWorld world) {
+		int capacity = INITIAL_CAPACITY;
+		while (true) {
+			ByteBuffer out = ByteBuffer.allocate(capacity);
+			try {
+				write(world, out);
+				out.flip();
+				return out;
+			} catch (BufferOverflowException e) {
+				capacity *= 2;
+			}
+		}
+	}
+
+	/**
+	 * Save the world into a buffer.
+	 * <p>
+	 * Layout (big endian): header (magic, version, world size, scale, tick, next
+	 * serial, deterministic flag), then every entity in serial order as a type tag,
+	 * a record length, the codec's constructor arguments and HXEntity.writeState(),
+	 * then every cached contact with its warm starting impulses, then the id and
+	 * ticks until due of every running HXSpawner in spawn order. Records carry
+	 * their length so readers can skip types they don't know.
+	 * @param world - The world to save. Should not be ticking during the call.
+	 * @param out - Buffer to write to, from its position.
+	 * @throws BufferOverflowException if the buffer is too small.
+	 * @throws IllegalStateException if the world has chunks in its HXChunkStore,
+	 * whose entities a snapshot can't hold.
+	 */
+	public static void write(HXWorld world, ByteBuffer out) {
+		HXChunkManager chunks = world.getChunkManager();
+		if (chunks != null && chunks.getOfflineChunkCount() > 0) {
+			throw new IllegalStateException("Can't snapshot a world with " + chunks.getOfflineChunkCount() + " chunks in the store");
+		}
+		out.putInt(MAGIC);
+		out.putShort(VERSION);
+		out.putInt(world.getWidth());
+		out.putInt(world.getHeight());
+		out.putDouble(world.getScale());
+		out.putLong(world.getTick());
+		out.putLong(world.getNextEntitySerial());
+		out.put((byte) (world.isDeterministic() ? 1 : 0));
+
+		// Oldest first, so restored colliders get ids in the same relative order
+		ArrayList<HXEntity> entities = new ArrayList<HXEntity>(world.getEntities());
+		entities.sort((a, b) -> Long.compare(a.getSerial(), b.getSerial()));
+		out.putInt(entities.size());
+		for (HXEntity e : entities) {
+			writeEntity(e, out);
+		}
+
+		int countAt = out.position();
+		out.putInt(0);
+		int contacts = 0;
+		for (HXContact contact : world.getContactSolver().getCachedContacts()) {
+			HXEntity a = contact.getA().getParent();
+			HXEntity b = contact.getB().getParent();
+			if (a == null || b == null) {
+				continue;
+			}
+			HXManifold manifold = contact.getManifold();
+			out.putLong(a.getSerial());
+			out.putInt(registrationOf(a).colliderIndex(a, contact.getA()));
+			out.putLong(b.getSerial());
+			out.putInt(registrationOf(b).colliderIndex(b, contact.getB()));
+			out.put((byte) manifold.getPointCount());
+			for (int p = 0; p < manifold.getPointCount(); p++) {
+				out.putInt(manifold.getFeatureId(p));
+				out.putDouble(manifold.getNormalImpulse(p));
+				out.putDouble(manifold.getTangentImpulse(p));
+			}
+			contacts++;
+		}
+		out.putInt(countAt, contacts);
+
+		ArrayList<Long> dueIn = new ArrayList<Long>();
+		ArrayList<HXSpawner> spawners = world.getSpawnQueue().getSchedule(world.getTick(), dueIn);
+		out.putInt(spawners.size());
+		for (int s = 0; s < spawners.size(); s++) {
+			out.putLong(spawners.get(s).getId());
+			out.putLong(dueIn.get(s));
+		}
+	}
+
+	/**
+	 * Build a new world from a snapshot.
+	 * @param in - Buffer holding a snapshot at its position.
+	 * @return The restored world.
+	 */
+	public static HXWorld read(ByteBuffer in) {
+		int start = in.position();
+		readHeader(in);
+		HXWorld world = new HXWorld(in.getInt(), in.getInt(), false);
+		in.position(start);
+		restore(world, in);
+		return world;
+	}
+
+	/**
+	 * Replace the contents of a world with a snapshot, for rollback or to start a
+	 * scene at a known state.
+	 * <p>
+	 * Spawners running in the world are stopped, then those the snapshot lists by
+	 * id are started again on their saved schedule, including any stopped since
+	 * the snapshot was taken. Spawners the world doesn't have are skipped, so a world rebuilt from scratch has to make its spawners, in the
+	 * same order as the saved world did, before restoring.
+	 * @param world - The world to overwrite. Should not be ticking during the call.
+	 * @param in - Buffer holding a snapshot at its position.
+	 */
+	public static void restore(HXWorld world, ByteBuffer in) {
+		short version = readHeader(in);
+		world.clear();
+		world.setWidth(in.getInt());
+		world.setHeight(in.getInt());
+		world.setScale(in.getDouble());
+		long tick = in.getLong();
+		long nextSerial = in.getLong();
+		boolean deterministic = in.get() != 0;
+		// Build in creation order under the default ordering, setDeterministic() re-sorts at the end
+		world.setDeterministic(false);
+
+		HashMap<Long, HXEntity> bySerial = new HashMap<Long, HXEntity>();
+		int count = in.getInt();
+		for (int i = 0; i < count; i++) {
+			HXEntity e = readEntity(in, world);
+			if (e != null) {
+				bySerial.put(e.getSerial(), e);
+			}
+		}
+		world.setNextEntitySerial(nextSerial);
+		world.setTick(tick);
+
+		int contacts = in.getInt();
+		int[] featureIds = new int[HXManifold.MAX_POINTS];
+		double[] normalImpulses = new double[HXManifold.MAX_POINTS];
+		double[] tangentImpulses = new double[HXManifold.MAX_POINTS];
+		for (int c = 0; c < contacts; c++) {
+			HXEntity a = bySerial.get(in.getLong());
+			int partA = in.getInt();
+			HXEntity b = bySerial.get(in.getLong());
+			int partB = in.getInt();
+			int points = in.get();
+			if (points > HXManifold.MAX_POINTS) {
+				throw new IllegalArgumentException("Corrupt snapshot, contact with " + points + " points");
+			}
+			for (int p = 0; p < points; p++) {
+				featureIds[p] = in.getInt();
+				normalImpulses[p] = in.getDouble();
+				tangentImpulses[p] = in.getDouble();
+			}
+			if (a == null || b == null || partA < 0 || partB < 0) {
+				continue;
+			}
+			HXCollider colliderA = registrationOf(a).collider(a, partA);
+			HXCollider colliderB = registrationOf(b).collider(b, partB);
+			if (colliderA != null && colliderB != null) {
+				world.getContactSolver().restoreContact(colliderA, colliderB, points, featureIds, normalImpulses, tangentImpulses);
+			}
+		}
+
+		if (version >= 2) {
+			int spawners = in.getInt();
+			for (int s = 0; s < spawners; s++) {
+				HXSpawner spawner = world.getSpawnQueue().getSpawner(in.getLong());
+				long dueIn = in.getLong();
+				if (spawner != null) {
+					spawner.startIn(dueIn);
+				}
+			}
+		}
+		world.setDeterministic(deterministic);
+	}
+
+	/**
+	 * Save one entity as a type tag, serial, record length, the codec's constructor
+	 * arguments and HXEntity.writeState(). The same record format as inside a snapshot.
+	 * @param e - The entity to save.
+	 * @param out - Buffer to write to, from its position.
+	 * @throws BufferOverflowException if the buffer is too small.
+	 */
+	public static void writeEntity(HXEntity e, ByteBuffer out) {
+		Registration<?> registration = registrationOf(e);
+		out.putShort(registration.tag);
+		out.putLong(e.getSerial());
+		int lengthAt = out.position();
+		out.putInt(0);
+		registration.writeArguments(e, out);
+		e.writeState(out);
+		out.putInt(lengthAt, out.position() - lengthAt - 4);
+	}
+
+	/**
+	 * Create an entity in a world from a record written by writeEntity(), with the
+	 * saved serial. The world's next serial is left after the saved one.
+	 * @param in - Buffer holding the record at its position. Left after the record.
+	 * @param world - The world the entity is added to.
+	 * @return The entity, or null if its type tag isn't registered.
+	 */
+	public static HXEntity readEntity(ByteBuffer in, HXWorld world) {
+		short tag = in.getShort();
+		long serial = in.getLong();
+		int length = in.getInt();
+		int end = in.position() + length;
+		Registration<?> registration = BY_TAG.get(tag);
+		HXEntity e = null;
+		if (registration != null) {
+			world.setNextEntitySerial(serial);
+			e = registration.codec.create(in, world);
+			e.readState(in);
+		}
+		in.position(end);
+		return e;
+	}
+
+	/**
+	 * Internal class usage only.
+	 * <p>
+	 * Checks the magic number and version, leaving the buffer after them.
+	 */
+	private static short readHeader(ByteBuffer in) {
+		int magic = in.getInt();
+		if (magic != MAGIC) {
+			throw new IllegalArgumentException("Not an HXWorld snapshot");
+		}
+		short version = in.getShort();
+		if (version < 1 || version > VERSION) {
+			throw new IllegalArgumentException("Unsupported snapshot version " + version);
+		}
+		return version;
+	}
+
+	private static Registration<?> registrationOf(HXEntity e) {
+		Registration<?> registration = BY_TYPE.get(e.getClass());
+		if (registration == null) {
+			throw new IllegalArgumentException("No snapshot codec registered for " + e.getClass().getName());
+		}
+		return registration;
+	}
+
+	/**
+	 * A codec and its tag. Casts the entity back to the codec's type, which is
+	 * safe because registrations are looked up by the entity's exact class.
+	 */
+	private static final class Registration<T extends HXEntity> {
+		private final short tag;
+		private final Class<T> type;
+		private final HXEntityCodec<T> codec;
+
+		Registration(short tag, Class<T> type, HXEntityCodec<T> codec) {
+			this.tag = tag;
+			this.type = type;
+			this.codec = codec;
+		}
+
+		@SuppressWarnings("unchecked")
+		void writeArguments(HXEntity e, ByteBuffer out) {
+			codec.writeArguments((T) e, out);
+		}
+		@SuppressWarnings("unchecked")
+		int colliderIndex(HXEntity e, HXCollider collider) {
+			return codec.colliderIndex((T) e, collider);
+		}
+		@SuppressWarnings("unchecked")
+		HXCollider collider(HXEntity e, int index) {
+			return codec.collider((T) e, index);
+		}
+	}
+}
@@ -15,9 +15,12 @@ import java.awt.event.MouseWheelListener;
 import javax.swing.*;
 import javax.swing.border.BevelBorder;
 
+import readers.HXInput;
+import readers.HXInputSnapshot;
 import world.HXWorld;
 import world.helper.HXCamera;
 import world.helper.HXClock;
+import world.helper.replay.HXRecorder;
 
 public class HXWorldPanel extends JPanel implements MouseListener, MouseMotionListener, MouseWheelListener, ComponentListener{
 	private static final long serialVersionUID = 1L;
@@ -36,10 +39,17 @@ public class HXWorldPanel extends JPanel implements MouseListener, MouseMotionLi
 	private HXCamera camera;
 	private int mouse_x_last = 0;
 	private int mouse_y_last = 0;
+	// Keys and mouse queued by the listeners, latched by the clock every tick
+	private final HXInput input = new HXInput();
+	// False from a press until a tick has applied it, drags don't pan meanwhile
+	private volatile boolean pressApplied = true;
 	
 	/* === world === */
 	private HXWorld world;
 	
+	/* === Recording, null when not recording === */
+	private HXRecorder recorder;
+	
 	/**
 	 * Extension of a JPanel that contains an HXWorld and paints all of this object's entities.
 	 * <p>
@@ -89,7 +99,24 @@ public class HXWorldPanel extends JPanel implements MouseListener, MouseMotionLi
 	
 	public void updateTick(double dT) {
 		camera.updatePanning();
+		if (world.getChunkManager() != null) {
+			// Keeps the chunks on screen loaded
+			world.getChunkManager().setView(0, camera.getCamera_x(), camera.getCamera_y(),
+					camera.getCamera_x() + getWidth(), camera.getCamera_y() + getHeight());
+		}
+		if (world.getLevelOfDetail() != null) {
+			// Full detail around the middle of the screen
+			world.getLevelOfDetail().setObserver(0, camera.getCamera_x() + getWidth() / 2.0, camera.getCamera_y() + getHeight() / 2.0);
+		}
+		HXInputSnapshot tickInput = input.latch();
+		world.setInput(tickInput);
+		if (recorder != null) {
+			recorder.recordTick(world, dT);
+		}
 		world.updateTick(dT);
+		if (tickInput.wasMousePressed()) {
+			pressApplied = true;
+		}
 	}
 	
 	public void repaintWorld(float withInterpolation) {
@@ -104,6 +131,23 @@ public class HXWorldPanel extends JPanel implements MouseListener, MouseMotionLi
 	public HXWorld getWorld() {
 		return world;
 	}
+	/**
+	 * Where key bindings queue their keys, see HXMasterWindow.
+	 */
+	public HXInput getInput() {
+		return input;
+	}
+	
+	/**
+	 * Start recording inputs and keyframes on every tick, or stop with null.
+	 * The caller closes the recorder once recording has stopped.
+	 */
+	public void setRecorder(HXRecorder recorder) {
+		this.recorder = recorder;
+	}
+	public HXRecorder getRecorder() {
+		return recorder;
+	}
 	
 	public void updateWorldEntitiesScale(double s) {
 		world.setScale(s);
@@ -119,15 +163,14 @@ public class HXWorldPanel extends JPanel implements MouseListener, MouseMotionLi
 	public void mousePressed(MouseEvent e) {
 		mouse_x_last = e.getX();
 		mouse_y_last = e.getY();
-		world.interactAt(
-				e.getX() + camera.getCamera_x(), 
-				e.getY() + camera.getCamera_y());
+		pressApplied = false;
+		input.mousePressed(e.getX() + camera.getCamera_x(), e.getY() + camera.getCamera_y());
 	}
 
 	@Override
 	public void mouseReleased(MouseEvent e) {
 		setCursor(Cursor.getDefaultCursor());
-		world.interactStop();
+		input.mouseReleased(e.getX() + camera.getCamera_x(), e.getY() + camera.getCamera_y());
 	}
 
 	@Override
@@ -145,14 +188,18 @@ public class HXWorldPanel extends JPanel implements MouseListener, MouseMotionLi
 	@Override
 	public void mouseDragged(MouseEvent e) {
 		setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-		if (world.isInteracting()) {
-			world.interactMove(
-					e.getX() + camera.getCamera_x(), 
-					e.getY() + camera.getCamera_y());
-		} else {
-			camera.dragPan(
-					mouse_x_last - e.getX(), 
-					e.getY() - mouse_y_last);
+		input.mouseDragged(e.getX() + camera.getCamera_x(), e.getY() + camera.getCamera_y());
+		if (!pressApplied) {
+			// Not known yet whether the press picked up an entity, pan later by the whole drag
+			return;
+		}
+		if (!world.isInteracting()) {
+			int panX = mouse_x_last - e.getX();
+			int panY = e.getY() - mouse_y_last;
+			camera.dragPan(panX, panY);
+			if (recorder != null) {
+				recorder.pan(panX, panY);
+			}
 		}
 		mouse_x_last = e.getX();
 		mouse_y_last = e.getY();